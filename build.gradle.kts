@@ -35,6 +35,7 @@ plugins {
 	`java-library`
 	`maven-publish`
 	id("com.github.ben-manes.versions") version "0.36.0"
+	id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 group = "com.elex-project"
@@ -74,6 +75,13 @@ tasks.jar {
 	}
 }
 
+tasks.withType<JavaCompile> {
+	if (JavaVersion.current().isJava9Compatible) {
+		// JDK 9 이상으로 빌드해도 Java 8 API 에 맞춰 컴파일한다. (ByteBuffer.flip() 등의 반환 타입)
+		options.release.set(8)
+	}
+}
+
 tasks.compileJava {
 	options.encoding = "UTF-8"
 }
@@ -86,6 +94,11 @@ tasks.test {
 	useJUnitPlatform()
 }
 
+jmh {
+	jmhVersion = "1.27"
+	duplicateClassesStrategy = DuplicatesStrategy.EXCLUDE
+}
+
 tasks.javadoc {
 	if (JavaVersion.current().isJava9Compatible) {
 		(options as StandardJavadocDocletOptions).addBooleanOption("html5", true)
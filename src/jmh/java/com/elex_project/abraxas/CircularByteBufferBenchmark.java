@@ -0,0 +1,105 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 생산자 스레드 하나와 소비자 스레드 하나가 버퍼를 통해 바이트를 주고 받는 처리량 비교.
+ * <pre><code>
+ * ./gradlew jmh -Pjmh.includes=CircularByteBufferBenchmark
+ * </code></pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircularByteBufferBenchmark {
+	private static final int CAPACITY = 64 * 1024;
+
+	@Param({"1", "64", "4096"})
+	public int size;
+
+	private CircularByteBuffer locked;
+	private SpscCircularByteBuffer spsc;
+	private byte[] src;
+	private byte[] dst;
+
+	@Setup
+	public void setUp() {
+		locked = new CircularByteBuffer(CAPACITY);
+		spsc = new SpscCircularByteBuffer(CAPACITY);
+		src = new byte[size];
+		dst = new byte[size];
+		Random.nextBytes(src);
+	}
+
+	@Benchmark
+	@Group("locked")
+	public int lockedPut() {
+		// 생산자가 하나뿐이므로 free()를 확인한 뒤에 공간이 줄어들지 않는다.
+		if (locked.free() < size) return 0;
+		if (size == 1) {
+			locked.put(src[0]);
+		} else {
+			locked.put(src, 0, size);
+		}
+		return size;
+	}
+
+	@Benchmark
+	@Group("locked")
+	public int lockedGet() {
+		return locked.get(dst, 0, size);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	public int spscPut() {
+		if (size == 1) {
+			return spsc.put(src[0]) ? 1 : 0;
+		} else {
+			return spsc.put(src, 0, size);
+		}
+	}
+
+	@Benchmark
+	@Group("spsc")
+	public int spscGet() {
+		return spsc.get(dst, 0, size);
+	}
+}
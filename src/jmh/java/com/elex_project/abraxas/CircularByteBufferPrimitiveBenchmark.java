@@ -0,0 +1,88 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 정수 값 하나를 저장하고 읽는 비용.
+ * 임시 배열과 {@link Numberz}를 거치던 이전 방식과 링에서 바로 조립하는 방식을 비교한다.
+ * <pre><code>
+ * ./gradlew jmh -Pjmh.includes=CircularByteBufferPrimitiveBenchmark
+ * </code></pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircularByteBufferPrimitiveBenchmark {
+
+	/**
+	 * 링의 끝에 걸치는 값이 섞이도록 용량을 값의 크기로 나누어 떨어지지 않게 잡는다.
+	 */
+	private final CircularByteBuffer buffer = new CircularByteBuffer(1021);
+	private final byte[] tmp4 = new byte[4];
+	private final byte[] tmp8 = new byte[8];
+	private int intValue = 0x12345678;
+	private long longValue = 0x0102030405060708L;
+
+	@Benchmark
+	public int intViaArray() {
+		buffer.put(Numberz.toBytes(intValue++));
+		buffer.get(tmp4, 0, tmp4.length);
+		return Numberz.toInt(tmp4);
+	}
+
+	@Benchmark
+	public int intDirect() {
+		buffer.putInt(intValue++);
+		return buffer.getInt();
+	}
+
+	@Benchmark
+	public long longViaArray() {
+		buffer.put(Numberz.toBytes(longValue++));
+		buffer.get(tmp8, 0, tmp8.length);
+		return Numberz.toLong(tmp8);
+	}
+
+	@Benchmark
+	public long longDirect() {
+		buffer.putLong(longValue++);
+		return buffer.getLong();
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+/**
+ * 200~800 바이트의 비슷한 JSON 메시지를 사전 없이, 그리고 학습한 사전으로 압축하는 비용.
+ * 압축률은 준비할 때 출력한다.
+ * <pre><code>
+ * ./gradlew jmh -Pjmh.includes=DeflateDictionaryBenchmark
+ * </code></pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeflateDictionaryBenchmark {
+	private static final int MESSAGES = 1024;
+
+	@Param({"4096", "32768"})
+	private int dictionarySize;
+
+	private byte[][] messages;
+	private byte[][] plain;
+	private byte[][] compressed;
+	private DeflateDictionary dictionary;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final java.util.Random random = new java.util.Random(1);
+		final List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			samples.add(message(random));
+		}
+		dictionary = DeflateDictionary.train(samples, dictionarySize);
+
+		messages = new byte[MESSAGES][];
+		plain = new byte[MESSAGES][];
+		compressed = new byte[MESSAGES][];
+		long raw = 0, plainBytes = 0, dictionaryBytes = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			messages[i] = message(random);
+			plain[i] = Compressez.deflate(messages[i], Deflater.DEFAULT_COMPRESSION,
+					Deflater.DEFAULT_STRATEGY);
+			compressed[i] = Compressez.deflate(messages[i], dictionary);
+			raw += messages[i].length;
+			plainBytes += plain[i].length;
+			dictionaryBytes += compressed[i].length;
+		}
+		System.out.printf("%n%s: ratio plain %.3f, dictionary %.3f%n", dictionary,
+				(double) plainBytes / raw, (double) dictionaryBytes / raw);
+	}
+
+	/**
+	 * 주문 하나
+	 */
+	private static byte[] message(final java.util.Random random) {
+		final StringBuilder sb = new StringBuilder("{\"type\":\"order\",\"id\":").append(random.nextInt(1_000_000))
+				.append(",\"customer\":{\"name\":\"user").append(random.nextInt(10_000))
+				.append("\",\"country\":\"").append(random.nextBoolean() ? "KR" : "US").append("\"},\"items\":[");
+		final int items = 1 + random.nextInt(6);
+		for (int i = 0; i < items; i++) {
+			if (i > 0) sb.append(',');
+			sb.append("{\"sku\":\"SKU-").append(random.nextInt(5000)).append("\",\"quantity\":")
+					.append(1 + random.nextInt(9)).append(",\"price\":").append(random.nextInt(100_000) / 100.0)
+					.append(",\"currency\":\"KRW\"}");
+		}
+		return sb.append("],\"status\":\"created\"}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private int next() {
+		index = (index + 1) & (MESSAGES - 1);
+		return index;
+	}
+
+	@Benchmark
+	public byte[] plainDeflate() {
+		return Compressez.deflate(messages[next()], Deflater.DEFAULT_COMPRESSION,
+				Deflater.DEFAULT_STRATEGY);
+	}
+
+	@Benchmark
+	public byte[] dictionaryDeflate() {
+		return Compressez.deflate(messages[next()], dictionary);
+	}
+
+	@Benchmark
+	public byte[] plainInflate() throws Exception {
+		return Compressez.inflate(plain[next()]);
+	}
+
+	@Benchmark
+	public byte[] dictionaryInflate() throws DataFormatException {
+		return Compressez.inflate(compressed[next()], dictionary);
+	}
+}
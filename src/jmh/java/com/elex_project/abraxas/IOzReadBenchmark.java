@@ -0,0 +1,117 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 파일 전체를 읽는 비용.
+ * 스트림을 {@link ByteArrayOutputStream}에 모으던 이전 방식, 크기에 맞춘 배열에 위치 지정 읽기, 메모리 맵을 비교한다.
+ * 1GB 파일은 힙이 충분해야 한다.
+ * <pre><code>
+ * ./gradlew jmh -Pjmh.includes=IOzReadBenchmark
+ * </code></pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IOzReadBenchmark {
+
+	@Param({"1024", "1048576", "1073741824"})
+	private long size;
+
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = Files.createTempFile("ioz-bench", ".bin");
+		final byte[] block = Random.nextBytes(1 << 20);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			for (long written = 0; written < size; written += block.length) {
+				out.write(block, 0, (int) Math.min(block.length, size - written));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public byte[] legacyStream() throws IOException {
+		try (InputStream in = new FileInputStream(file.toFile())) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] buf = new byte[1024];
+			int nRead;
+			while ((nRead = in.read(buf, 0, buf.length)) != -1) {
+				buffer.write(buf, 0, nRead);
+			}
+			return buffer.toByteArray();
+		}
+	}
+
+	@Benchmark
+	public byte[] positionalRead() throws IOException {
+		return IOz.readByteArrayFrom(file);
+	}
+
+	/**
+	 * 매핑만으로는 페이지를 읽지 않으므로 전체를 훑어서 비교한다.
+	 */
+	@Benchmark
+	public long mapped() throws IOException {
+		final ByteBuffer buffer = IOz.readByteBufferFrom(file, 0);
+		long sum = 0;
+		while (buffer.remaining() >= 8) {
+			sum += buffer.getLong();
+		}
+		while (buffer.hasRemaining()) {
+			sum += buffer.get();
+		}
+		return sum;
+	}
+}
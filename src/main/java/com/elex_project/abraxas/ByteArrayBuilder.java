@@ -7,28 +7,89 @@
 package com.elex_project.abraxas;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Byte Array Builder
+ * <p>
+ * 데이터를 여러 개의 청크에 나누어 담으므로, 크기가 늘어날 때 이미 담은 데이터를 복사하지 않는다.
+ * 큰 데이터는 {@link #toByteArray()}로 합치지 말고 {@link #writeTo(OutputStream)},
+ * {@link #writeTo(WritableByteChannel)}, {@link #toByteBuffers()}로 청크를 그대로 내보내시오.
+ * <p>
+ * 정수, 실수 값은 {@link #order()}의 바이트 순서(기본은 빅 엔디언)로 기록한다.
  *
  * @author Elex
  */
 public final class ByteArrayBuilder implements Appendable {
-	private final ByteArrayOutputStream buffer;
+	private static final int FIRST_CHUNK_SIZE = 64;
+	private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * 청크 풀. null이면 청크의 크기를 두 배씩 늘려가며 새로 할당한다.
+	 */
+	@Nullable
+	private final ChunkPool pool;
+	/**
+	 * 가득 찬 청크
+	 */
+	private final ArrayList<byte[]> chunks = new ArrayList<>();
+	/**
+	 * 데이터를 담고 있는 마지막 청크
+	 */
+	private byte[] current;
+	/**
+	 * 마지막 청크에 담긴 데이터의 크기
+	 */
+	private int pos;
+	private int size;
+	/**
+	 * 정수, 실수 값의 바이트 순서
+	 */
+	private ByteOrder order = ByteOrder.BIG_ENDIAN;
 
 	public ByteArrayBuilder() {
-		buffer = new ByteArrayOutputStream();
+		this(null);
+	}
+
+	/**
+	 * @param pool 고정 크기의 청크를 빌려주는 풀. null이면 풀을 사용하지 않는다.
+	 */
+	public ByteArrayBuilder(@Nullable final ChunkPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * 마지막 청크가 가득 찼으면 새 청크를 준비한다.
+	 */
+	private void nextChunk() {
+		if (null != current) {
+			chunks.add(current);
+		}
+		if (null != pool) {
+			current = pool.acquire();
+		} else {
+			current = new byte[null == current ? FIRST_CHUNK_SIZE : Math.min(current.length * 2, MAX_CHUNK_SIZE)];
+		}
+		pos = 0;
 	}
 
 	public ByteArrayBuilder append(final byte b) {
-		buffer.write(b);
+		if (null == current || pos == current.length) {
+			nextChunk();
+		}
+		current[pos++] = b;
+		size++;
 		return this;
 	}
 
@@ -39,7 +100,7 @@ public final class ByteArrayBuilder implements Appendable {
 	 */
 	public ByteArrayBuilder append(final byte b, final int size) {
 		for (int i = 0; i < size; i++) {
-			buffer.write(b);
+			append(b);
 		}
 		return this;
 	}
@@ -47,27 +108,262 @@ public final class ByteArrayBuilder implements Appendable {
 	public ByteArrayBuilder append(final byte[] b) {
 		if (null == b) return this;
 
-		buffer.write(b, 0, b.length);
-		return this;
+		return append(b, 0, b.length);
 	}
 
-	public ByteArrayBuilder append(final byte[] b, final int from, final int to) {
+	/**
+	 * @param b    바이트 배열
+	 * @param from 옵셋
+	 * @param to   길이
+	 * @return this
+	 */
+	public ByteArrayBuilder append(final byte[] b, int from, int to) {
 		if (null == b) return this;
+		if (from < 0 || to < 0 || to > b.length - from) {
+			throw new IndexOutOfBoundsException();
+		}
 
-		buffer.write(b, from, to);
+		while (to > 0) {
+			if (null == current || pos == current.length) {
+				nextChunk();
+			}
+			final int n = Math.min(to, current.length - pos);
+			System.arraycopy(b, from, current, pos, n);
+			pos += n;
+			size += n;
+			from += n;
+			to -= n;
+		}
 		return this;
 	}
 
 	public ByteArrayBuilder append(final short s) {
-		return append(Numberz.toBytes(s), 0, 2);
+		return putShort(s);
 	}
 
 	public ByteArrayBuilder append(final int i) {
-		return append(Numberz.toBytes(i), 0, 4);
+		return putInt(i);
 	}
 
 	public ByteArrayBuilder append(final long l) {
-		return append(Numberz.toBytes(l), 0, 8);
+		return putLong(l);
+	}
+
+	/**
+	 * 정수, 실수 값의 바이트 순서
+	 */
+	public ByteOrder order() {
+		return order;
+	}
+
+	/**
+	 * 정수, 실수 값의 바이트 순서를 지정한다.
+	 *
+	 * @param order 바이트 순서
+	 * @return this
+	 */
+	public ByteArrayBuilder order(@NotNull final ByteOrder order) {
+		this.order = order;
+		return this;
+	}
+
+	public ByteArrayBuilder putShort(final short value) {
+		return putFixed(value, Numberz.SHORT_SIZE);
+	}
+
+	public ByteArrayBuilder putInt(final int value) {
+		return putFixed(value, Numberz.INT_SIZE);
+	}
+
+	public ByteArrayBuilder putLong(final long value) {
+		return putFixed(value, Numberz.LONG_SIZE);
+	}
+
+	public ByteArrayBuilder putFloat(final float value) {
+		return putFixed(Float.floatToRawIntBits(value), Numberz.INT_SIZE);
+	}
+
+	public ByteArrayBuilder putDouble(final double value) {
+		return putFixed(Double.doubleToRawLongBits(value), Numberz.LONG_SIZE);
+	}
+
+	/**
+	 * 값의 하위 bytes 바이트를 바이트 순서에 맞춰 기록한다.
+	 */
+	private ByteArrayBuilder putFixed(final long value, final int bytes) {
+		if (null == current || pos == current.length) {
+			nextChunk();
+		}
+		if (current.length - pos >= bytes) {
+			final byte[] chunk = current;
+			if (order == ByteOrder.BIG_ENDIAN) {
+				for (int i = 0; i < bytes; i++) {
+					chunk[pos + i] = (byte) (value >>> ((bytes - 1 - i) << 3));
+				}
+			} else {
+				for (int i = 0; i < bytes; i++) {
+					chunk[pos + i] = (byte) (value >>> (i << 3));
+				}
+			}
+			pos += bytes;
+			size += bytes;
+		} else {
+			// 청크의 경계에 걸치면 한 바이트씩
+			for (int i = 0; i < bytes; i++) {
+				final int shift = order == ByteOrder.BIG_ENDIAN ? (bytes - 1 - i) << 3 : i << 3;
+				append((byte) (value >>> shift));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * 부호 없는 LEB128 가변 길이 정수. 음수는 항상 5 바이트를 차지하므로 {@link #putZigZagVarInt(int)}를 사용하시오.
+	 *
+	 * @param value 값
+	 * @return this
+	 */
+	public ByteArrayBuilder putVarInt(final int value) {
+		return putVarLong(value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * 부호 없는 LEB128 가변 길이 정수. 음수는 항상 10 바이트를 차지하므로 {@link #putZigZagVarLong(long)}를 사용하시오.
+	 *
+	 * @param value 값
+	 * @return this
+	 */
+	public ByteArrayBuilder putVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			append((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		return append((byte) value);
+	}
+
+	/**
+	 * 지그재그 인코딩(0, -1, 1, -2, ...를 0, 1, 2, 3, ...으로)한 뒤 LEB128 가변 길이 정수로 기록한다.
+	 *
+	 * @param value 값
+	 * @return this
+	 */
+	public ByteArrayBuilder putZigZagVarInt(final int value) {
+		return putVarInt((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * 지그재그 인코딩한 뒤 LEB128 가변 길이 정수로 기록한다.
+	 *
+	 * @param value 값
+	 * @return this
+	 */
+	public ByteArrayBuilder putZigZagVarLong(final long value) {
+		return putVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * UTF-8로 인코딩한 바이트 길이를 가변 길이 정수로 먼저 기록하고, 문자열을 기록한다.
+	 *
+	 * @param str 문자열
+	 * @return this
+	 * @see #putVarInt(int)
+	 */
+	public ByteArrayBuilder putString(@NotNull final CharSequence str) {
+		putVarInt(utf8Length(str));
+		return putUtf8(str);
+	}
+
+	/**
+	 * UTF-8로 인코딩한 바이트 길이를 4 바이트 정수로 먼저 기록하고, 문자열을 기록한다.
+	 *
+	 * @param str 문자열
+	 * @return this
+	 * @see #putInt(int)
+	 */
+	public ByteArrayBuilder putStringWithIntLength(@NotNull final CharSequence str) {
+		putInt(utf8Length(str));
+		return putUtf8(str);
+	}
+
+	/**
+	 * 문자열을 중간 배열 없이 UTF-8로 인코딩해서 기록한다.
+	 * 짝이 맞지 않는 서로게이트 문자는 {@link String#getBytes(Charset)}와 마찬가지로 '?'로 바꾼다.
+	 *
+	 * @param str 문자열
+	 * @return this
+	 */
+	public ByteArrayBuilder putUtf8(@NotNull final CharSequence str) {
+		final int len = str.length();
+		int i = 0;
+		while (i < len) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				// ASCII는 청크에 바로 복사
+				if (null == current || pos == current.length) {
+					nextChunk();
+				}
+				final byte[] chunk = current;
+				int p = pos;
+				final int end = Math.min(len, i + chunk.length - p);
+				while (i < end && (c = str.charAt(i)) < 0x80) {
+					chunk[p++] = (byte) c;
+					i++;
+				}
+				size += p - pos;
+				pos = p;
+			} else if (c < 0x800) {
+				append((byte) (0xC0 | (c >> 6)));
+				append((byte) (0x80 | (c & 0x3F)));
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+					final int cp = Character.toCodePoint(c, str.charAt(i + 1));
+					append((byte) (0xF0 | (cp >> 18)));
+					append((byte) (0x80 | ((cp >> 12) & 0x3F)));
+					append((byte) (0x80 | ((cp >> 6) & 0x3F)));
+					append((byte) (0x80 | (cp & 0x3F)));
+					i += 2;
+				} else {
+					append((byte) '?');
+					i++;
+				}
+			} else {
+				append((byte) (0xE0 | (c >> 12)));
+				append((byte) (0x80 | ((c >> 6) & 0x3F)));
+				append((byte) (0x80 | (c & 0x3F)));
+				i++;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * UTF-8로 인코딩했을 때의 바이트 길이
+	 *
+	 * @param str 문자열
+	 * @return 바이트 길이
+	 */
+	public static int utf8Length(@NotNull final CharSequence str) {
+		final int len = str.length();
+		int count = 0;
+		for (int i = 0; i < len; i++) {
+			final char c = str.charAt(i);
+			if (c < 0x80) {
+				count++;
+			} else if (c < 0x800) {
+				count += 2;
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+					count += 4;
+					i++;
+				} else {
+					count++;
+				}
+			} else {
+				count += 3;
+			}
+		}
+		return count;
 	}
 
 	public ByteArrayBuilder appendHex(@NotNull final String hexStr) {
@@ -87,35 +383,113 @@ public final class ByteArrayBuilder implements Appendable {
 		return append(str.getBytes(charset));
 	}
 
+	/**
+	 * UTF-8 문자열
+	 *
+	 * @param str 문자열
+	 * @return this
+	 * @see #putUtf8(CharSequence)
+	 */
 	public ByteArrayBuilder append(@NotNull final String str) {
-		byte[] a = new byte[0];
-		try {
-			a = str.getBytes(StandardCharsets.UTF_8);
-		} catch (NoClassDefFoundError e) {
-			try {
-				a = str.getBytes(Stringz.UTF_8);
-			} catch (UnsupportedEncodingException ex) {
-				//
-			}
-		}
-		return append(a);
+		return putUtf8(str);
 	}
 
 	public int size() {
-		return buffer.size();
+		return size;
 	}
 
+	/**
+	 * 데이터를 비운다. 풀을 사용하고 있으면 청크를 풀에 돌려준다.
+	 * 이전에 {@link #toByteBuffers()}로 얻은 뷰는 더 이상 사용하지 마시오.
+	 */
 	public void reset() {
-		buffer.reset();
+		if (null != pool) {
+			for (byte[] chunk : chunks) {
+				pool.release(chunk);
+			}
+			if (null != current) {
+				pool.release(current);
+			}
+		}
+		chunks.clear();
+		current = null;
+		pos = 0;
+		size = 0;
 	}
 
 
 	public byte @NotNull [] toByteArray() {
-		return buffer.toByteArray();
+		final byte[] out = new byte[size];
+		int off = 0;
+		for (byte[] chunk : chunks) {
+			System.arraycopy(chunk, 0, out, off, chunk.length);
+			off += chunk.length;
+		}
+		if (null != current) {
+			System.arraycopy(current, 0, out, off, pos);
+		}
+		return out;
 	}
 
+	/**
+	 * 청크를 합치지 않고 차례대로 기록한다.
+	 *
+	 * @param outputStream 출력 스트림
+	 * @throws IOException e
+	 */
 	public void writeTo(final OutputStream outputStream) throws IOException {
-		buffer.writeTo(outputStream);
+		for (byte[] chunk : chunks) {
+			outputStream.write(chunk, 0, chunk.length);
+		}
+		if (null != current) {
+			outputStream.write(current, 0, pos);
+		}
+	}
+
+	/**
+	 * 청크를 합치지 않고 차례대로 기록한다.
+	 * 채널이 {@link GatheringByteChannel}이면 여러 청크를 한 번에 넘긴다.
+	 *
+	 * @param channel 채널
+	 * @throws IOException e
+	 */
+	public void writeTo(final WritableByteChannel channel) throws IOException {
+		final ByteBuffer[] buffers = toByteBuffers();
+		if (channel instanceof GatheringByteChannel) {
+			final GatheringByteChannel gathering = (GatheringByteChannel) channel;
+			long remaining = size;
+			int first = 0;
+			while (remaining > 0) {
+				remaining -= gathering.write(buffers, first, buffers.length - first);
+				while (first < buffers.length && !buffers[first].hasRemaining()) {
+					first++;
+				}
+			}
+		} else {
+			for (ByteBuffer buffer : buffers) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 청크를 복사하지 않고 감싼 읽기 전용 바이트 버퍼들.
+	 * 빌더에 데이터를 더 추가하거나 {@link #reset()}하기 전까지만 유효하다.
+	 *
+	 * @return 바이트 버퍼 배열
+	 */
+	public ByteBuffer @NotNull [] toByteBuffers() {
+		final int count = chunks.size() + (null != current && pos > 0 ? 1 : 0);
+		final ByteBuffer[] buffers = new ByteBuffer[count];
+		for (int i = 0; i < chunks.size(); i++) {
+			buffers[i] = ByteBuffer.wrap(chunks.get(i)).asReadOnlyBuffer();
+		}
+		if (count > chunks.size()) {
+			buffers[count - 1] = ByteBuffer.wrap(current, 0, pos).slice().asReadOnlyBuffer();
+		}
+		return buffers;
 	}
 
 	@Override
@@ -135,14 +509,56 @@ public final class ByteArrayBuilder implements Appendable {
 	@Override
 	public ByteArrayBuilder append(final CharSequence charSequence, final int i, final int i1) {
 		for (int x = i; x < i1; x++) {
-			buffer.write(charSequence.charAt(x));
+			append((byte) charSequence.charAt(x));
 		}
 		return this;
 	}
 
 	@Override
 	public ByteArrayBuilder append(final char c) {
-		buffer.write(c);
-		return this;
+		return append((byte) c);
+	}
+
+	/**
+	 * 고정 크기의 청크를 빌려주고 돌려받는 풀. 스레드에 안전함.
+	 * 여러 빌더가 하나의 풀을 함께 사용할 수 있다.
+	 */
+	public static final class ChunkPool {
+		private final int chunkSize;
+		private final ArrayBlockingQueue<byte[]> chunks;
+
+		/**
+		 * @param chunkSize 청크의 크기
+		 * @param maxChunks 풀에 보관할 최대 청크 수. 이보다 많이 돌려받은 청크는 버린다.
+		 */
+		public ChunkPool(final int chunkSize, final int maxChunks) {
+			if (chunkSize <= 0 || maxChunks <= 0) {
+				throw new IllegalArgumentException();
+			}
+			this.chunkSize = chunkSize;
+			this.chunks = new ArrayBlockingQueue<>(maxChunks);
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		/**
+		 * 풀에 보관 중인 청크 수
+		 */
+		public int size() {
+			return chunks.size();
+		}
+
+		byte[] acquire() {
+			final byte[] chunk = chunks.poll();
+			return null != chunk ? chunk : new byte[chunkSize];
+		}
+
+		void release(final byte[] chunk) {
+			if (chunk.length == chunkSize) {
+				chunks.offer(chunk);
+			}
+		}
 	}
 }
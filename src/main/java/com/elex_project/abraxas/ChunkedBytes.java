@@ -3,29 +3,117 @@ package com.elex_project.abraxas;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 /**
  * 바이트 배열 패킷에서 순서대로 부분을 끊어낼 때 사용한다.
+ * <p>
+ * 힙 배열, 다이렉트 버퍼, 메모리 맵 파일을 모두 감쌀 수 있다.
+ * {@link #nextSlice(int)}, {@link #nextChunk(int)}는 복사하지 않고 원본을 공유하는 뷰를 돌려준다.
+ * 정수, 실수 값은 {@link #order()}의 바이트 순서(기본은 빅 엔디언)로 읽는다.
  *
  * @author Elex
+ * @see ByteArrayBuilder
  */
 public final class ChunkedBytes {
-	private final byte[] bytes;
-	private int idx = 0;
+	private final ByteBuffer buffer;
 
 	public ChunkedBytes(final byte[] bytes) {
-		this.bytes = bytes;
+		this(ByteBuffer.wrap(bytes));
 	}
 
 	public ChunkedBytes(final String hex) {
 		this(Bytez.fromHex(hex));
 	}
 
+	/**
+	 * 버퍼의 position 부터 limit 까지를 감싼다. 원본 버퍼의 position, limit 은 바뀌지 않는다.
+	 *
+	 * @param buffer 힙, 다이렉트 또는 메모리 맵 버퍼
+	 */
+	public ChunkedBytes(@NotNull final ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * 파일 전체를 읽기 전용으로 메모리에 매핑한다. 힙에 올리지 않는다.
+	 * 2GB가 넘는 파일은 {@link #map(Path, long, long)}으로 나누어 매핑하시오.
+	 *
+	 * @param path 파일
+	 * @return cursor
+	 * @throws IOException 파일이 2GB를 넘거나, 읽을 수 없으면
+	 */
+	@NotNull
+	public static ChunkedBytes map(@NotNull final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return map(channel, 0, channel.size());
+		}
+	}
+
+	/**
+	 * 파일의 일부 구간을 읽기 전용으로 메모리에 매핑한다.
+	 *
+	 * @param path     파일
+	 * @param position 시작 위치
+	 * @param size     구간의 길이. 2GB 미만
+	 * @return cursor
+	 * @throws IOException 읽을 수 없으면
+	 */
+	@NotNull
+	public static ChunkedBytes map(@NotNull final Path path, final long position, final long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return map(channel, position, size);
+		}
+	}
+
+	@NotNull
+	private static ChunkedBytes map(@NotNull final FileChannel channel, final long position, final long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Region too large to map: " + size);
+		}
+		// 매핑은 채널을 닫은 뒤에도 유효하다.
+		return new ChunkedBytes(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+	}
+
+	/**
+	 * 정수, 실수 값의 바이트 순서
+	 */
+	public ByteOrder order() {
+		return buffer.order();
+	}
+
+	/**
+	 * 정수, 실수 값의 바이트 순서를 지정한다.
+	 *
+	 * @param order 바이트 순서
+	 * @return this
+	 */
+	public ChunkedBytes order(@NotNull final ByteOrder order) {
+		buffer.order(order);
+		return this;
+	}
+
+	/**
+	 * 인덱스 포인터의 현재 위치
+	 * @return 절대적인 위치
+	 */
+	public int position() {
+		return buffer.position();
+	}
+
 	/**
 	 * 인덱스 포인터를 원하는 위치로 이동시킨다.
 	 * @param pos 절대적인 위치
 	 */
 	public void seek(final int pos) {
-		idx = pos;
+		buffer.position(pos);
 	}
 
 	/**
@@ -33,14 +121,14 @@ public final class ChunkedBytes {
 	 * @param pos 현재 위치로부터 상대적인 위치
 	 */
 	public void seekRelative(final int pos) {
-		idx += pos;
+		buffer.position(buffer.position() + pos);
 	}
 	/**
 	 * 인덱스 위치의 바이트를 읽는다. 인덱스 포인터는 이동하지 않는다.
 	 * @return byte value of that index
 	 */
 	public byte peek() {
-		return bytes[idx];
+		return buffer.get(buffer.position());
 	}
 
 	/**
@@ -48,29 +136,198 @@ public final class ChunkedBytes {
 	 * @return remain
 	 */
 	public int available() {
-		return bytes.length - idx;
+		return buffer.remaining();
 	}
 
 	/**
-	 * 다음 바이트 배열을 읽는다.
+	 * 다음 바이트 배열을 읽는다. 남은 길이가 부족하면 남은 만큼만 읽는다.
+	 * 복사가 필요 없으면 {@link #nextSlice(int)}를 사용하시오.
 	 * @param size
 	 * @return byte array
 	 */
 	@NotNull
 	@Contract(pure = true)
 	public byte[] next(final int size) {
-		byte[] out = Bytez.subArray(bytes, idx, size);
-		idx += size;
+		byte[] out = new byte[Math.min(size, buffer.remaining())];
+		buffer.get(out);
 		return out;
 	}
 
+	/**
+	 * 다음 구간을 복사하지 않고 원본을 공유하는 버퍼로 돌려준다.
+	 * 돌려받은 버퍼의 바이트 순서는 이 커서와 같다.
+	 *
+	 * @param size 길이
+	 * @return 읽기 전용 뷰
+	 * @throws BufferUnderflowException 남은 길이가 부족하면
+	 */
+	@NotNull
+	public ByteBuffer nextSlice(final int size) {
+		if (size < 0 || size > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final ByteBuffer slice = buffer.slice().asReadOnlyBuffer();
+		slice.limit(size);
+		buffer.position(buffer.position() + size);
+		return slice.order(buffer.order());
+	}
+
+	/**
+	 * 다음 구간을 복사하지 않고 별도의 커서로 돌려준다. 중첩된 레코드를 읽을 때 사용한다.
+	 *
+	 * @param size 길이
+	 * @return 같은 바이트 순서의 커서
+	 * @throws BufferUnderflowException 남은 길이가 부족하면
+	 */
+	@NotNull
+	public ChunkedBytes nextChunk(final int size) {
+		return new ChunkedBytes(nextSlice(size)).order(buffer.order());
+	}
+
 	/**
 	 * Next byte value
 	 * @return byte
 	 */
 	public byte next() {
-		byte out = bytes[idx];
-		idx++;
+		return buffer.get();
+	}
+
+	public int nextUnsignedByte() {
+		return buffer.get() & 0xFF;
+	}
+
+	public short nextShort() {
+		return buffer.getShort();
+	}
+
+	public int nextUnsignedShort() {
+		return buffer.getShort() & 0xFFFF;
+	}
+
+	public int nextInt() {
+		return buffer.getInt();
+	}
+
+	public long nextUnsignedInt() {
+		return buffer.getInt() & 0xFFFFFFFFL;
+	}
+
+	public long nextLong() {
+		return buffer.getLong();
+	}
+
+	public float nextFloat() {
+		return buffer.getFloat();
+	}
+
+	public double nextDouble() {
+		return buffer.getDouble();
+	}
+
+	/**
+	 * 부호 없는 LEB128 가변 길이 정수
+	 *
+	 * @return 값
+	 * @throws IllegalStateException 5 바이트 안에 끝나지 않으면
+	 * @see ByteArrayBuilder#putVarInt(int)
+	 */
+	public int nextVarInt() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			final byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	/**
+	 * 부호 없는 LEB128 가변 길이 정수
+	 *
+	 * @return 값
+	 * @throws IllegalStateException 10 바이트 안에 끝나지 않으면
+	 * @see ByteArrayBuilder#putVarLong(long)
+	 */
+	public long nextVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			final byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	/**
+	 * @see ByteArrayBuilder#putZigZagVarInt(int)
+	 */
+	public int nextZigZagVarInt() {
+		final int v = nextVarInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * @see ByteArrayBuilder#putZigZagVarLong(long)
+	 */
+	public long nextZigZagVarLong() {
+		final long v = nextVarLong();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * 가변 길이 정수로 길이가 붙은 필드를 복사하지 않고 읽는다.
+	 *
+	 * @return 읽기 전용 뷰
+	 */
+	@NotNull
+	public ByteBuffer nextLengthPrefixed() {
+		return nextSlice(nextVarInt());
+	}
+
+	/**
+	 * UTF-8 문자열
+	 *
+	 * @param size 바이트 길이
+	 * @return 문자열
+	 */
+	@NotNull
+	public String nextUtf8(final int size) {
+		if (size < 0 || size > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final String out;
+		if (buffer.hasArray()) {
+			out = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), size, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + size);
+		} else {
+			out = StandardCharsets.UTF_8.decode(nextSlice(size)).toString();
+		}
 		return out;
 	}
+
+	/**
+	 * 가변 길이 정수로 길이가 붙은 UTF-8 문자열
+	 *
+	 * @return 문자열
+	 * @see ByteArrayBuilder#putString(CharSequence)
+	 */
+	@NotNull
+	public String nextString() {
+		return nextUtf8(nextVarInt());
+	}
+
+	/**
+	 * 4 바이트 정수로 길이가 붙은 UTF-8 문자열
+	 *
+	 * @return 문자열
+	 * @see ByteArrayBuilder#putStringWithIntLength(CharSequence)
+	 */
+	@NotNull
+	public String nextStringWithIntLength() {
+		return nextUtf8(nextInt());
+	}
 }
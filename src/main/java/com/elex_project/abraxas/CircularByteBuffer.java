@@ -32,35 +32,104 @@
 
 package com.elex_project.abraxas;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EventListener;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * FIFO 형식으로 바이트를 저장하고 읽을 수 있는 환형 바이트 버퍼.
- * 버퍼가 가득차면 용량을 알아서 늘인다.
+ * 버퍼가 가득차면 최대 용량까지 두 배씩 용량을 알아서 늘인다.
+ * 최대 용량에 도달하면 {@link OverflowPolicy}에 따라 생산자를 기다리게 하거나, 데이터를 버리거나, 예외를 던진다.
  * <p/>
  * <strike>모든 put&amp;get 메서드는 넌블로킹 방식임.</strike>
  * <p/>
+ * 데이터는 힙 또는 다이렉트 {@link ByteBuffer}에 저장된다.
+ * 다이렉트 버퍼를 사용하면 {@link #readFrom(ReadableByteChannel)}, {@link #writeTo(WritableByteChannel)}로
+ * 채널과 데이터를 주고 받을 때 중간 복사가 생기지 않는다.
+ * <p/>
+ * 정수, 실수 값은 {@link #order()}의 바이트 순서(기본은 빅 엔디언)로 읽고 쓴다.
+ * <p/>
+ * {@link #asInputStream()}, {@link #asOutputStream()} 등의 뷰를 사용하면 스레드 사이의 파이프로 쓸 수 있다.
+ * <pre><code>
+ * CircularByteBuffer pipe = new CircularByteBuffer(64 * 1024, 64 * 1024, OverflowPolicy.BLOCK);
+ * InputStream in = pipe.asInputStream();   // 소비자 스레드
+ * OutputStream out = pipe.asOutputStream(); // 생산자 스레드
+ * </code></pre>
+ * <p/>
  * 스레드에 안전함.
  */
 public class CircularByteBuffer {
 
 	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
 	/**
 	 * 바이트 버퍼
 	 */
-	private byte[] buffer;
-	private final byte[] tmp2 = new byte[2];
-	private final byte[] tmp4 = new byte[4];
-	private final byte[] tmp8 = new byte[8];
+	private ByteBuffer buffer;
+	/**
+	 * 버퍼의 구간을 읽고 쓰기 위한 뷰. 채널 입출력에서는 두 구간을 한 번에 넘긴다.
+	 */
+	private ByteBuffer[] views;
+	/**
+	 * 정수, 실수 값의 바이트 순서
+	 */
+	private ByteOrder order = ByteOrder.BIG_ENDIAN;
 
 	/**
-	 * 초기 버퍼 크기, 버퍼가 부족하면 초기 크기만큼 더 늘린다.
+	 * 최대 버퍼 크기, 버퍼가 부족하면 이 크기까지 두 배씩 늘린다.
+	 */
+	private final int maxCapacity;
+	/**
+	 * 최대 버퍼 크기에 도달했을 때의 동작
+	 */
+	private final OverflowPolicy overflowPolicy;
+	/**
+	 * {@link OverflowPolicy#BLOCK}에서 생산자가 기다리는 최대 시간. 0이면 무한정 기다린다.
+	 */
+	private long blockingTimeoutNanos;
+	/**
+	 * 공간이 생기기를 기다리는 생산자의 수
+	 */
+	private int waitingProducers;
+	/**
+	 * 데이터가 들어오기를 기다리는 소비자의 수
+	 */
+	private int waitingConsumers;
+	/**
+	 * 스트림, 채널 뷰에서 소비자가 데이터를 기다리는 최대 시간. 0이면 무한정 기다린다.
+	 */
+	private long readTimeoutNanos;
+	/**
+	 * 생산자 쪽 뷰가 닫혔다. 남은 데이터를 모두 읽으면 EOF.
+	 */
+	private boolean producerClosed;
+	/**
+	 * 소비자 쪽 뷰가 닫혔다. 더 이상 데이터를 받지 않는다.
 	 */
-	private final int initialCapacity;
+	private boolean consumerClosed;
+	/**
+	 * 저장하지 못하고 버린 바이트 수
+	 */
+	private long droppedBytes;
+	/**
+	 * 가장 많이 쌓였을 때의 데이터 크기
+	 */
+	private int highWaterMark;
 	/**
 	 * 읽기 가능한 크기
 	 */
@@ -74,7 +143,24 @@ public class CircularByteBuffer {
 	 */
 	private int idxPut;
 
-	private ArrayList<InputListener> listeners;
+	/**
+	 * 트리거 바이트(0~255)별로 등록된 리스너. 등록된 리스너가 없으면 null.
+	 * 리스너를 등록하거나 제거할 때마다 새 테이블로 바꾼다.
+	 */
+	private InputListener[] listeners;
+	private int listenerCount;
+	/**
+	 * 리스너를 호출할 때 쓰는 트리거 비트맵. 모니터 안에서만 쓴다.
+	 */
+	private final long[] fired = new long[4];
+	/**
+	 * fired 를 쓰는 중. 리스너 안에서 다시 저장하면 비트맵을 새로 만든다.
+	 */
+	private boolean dispatching;
+	/**
+	 * 리스너를 호출할 실행기. null이면 데이터를 저장한 스레드에서 바로 호출한다.
+	 */
+	private Executor listenerExecutor;
 
 	public CircularByteBuffer() {
 		this(DEFAULT_CAPACITY);
@@ -86,9 +172,59 @@ public class CircularByteBuffer {
 	 * @param capacity 1024
 	 */
 	public CircularByteBuffer(int capacity) {
-		this.initialCapacity = capacity;
-		this.buffer = new byte[capacity];
-		//this.tmp = new byte[capacity];
+		this(capacity, false);
+	}
+
+	/**
+	 * @param capacity 1024
+	 * @param direct   다이렉트 버퍼(힙 바깥의 메모리)를 사용할 지 여부
+	 */
+	public CircularByteBuffer(int capacity, boolean direct) {
+		this(capacity, MAX_CAPACITY, OverflowPolicy.FAIL, direct);
+	}
+
+	/**
+	 * 크기가 제한된 버퍼
+	 *
+	 * @param capacity       초기 버퍼 크기
+	 * @param maxCapacity    최대 버퍼 크기. 초기 크기와 같으면 버퍼가 늘어나지 않는다.
+	 * @param overflowPolicy 최대 버퍼 크기에 도달했을 때의 동작
+	 */
+	public CircularByteBuffer(int capacity, int maxCapacity, OverflowPolicy overflowPolicy) {
+		this(capacity, maxCapacity, overflowPolicy, false);
+	}
+
+	/**
+	 * 크기가 제한된 버퍼
+	 *
+	 * @param capacity       초기 버퍼 크기
+	 * @param maxCapacity    최대 버퍼 크기. 초기 크기와 같으면 버퍼가 늘어나지 않는다.
+	 * @param overflowPolicy 최대 버퍼 크기에 도달했을 때의 동작
+	 * @param direct         다이렉트 버퍼(힙 바깥의 메모리)를 사용할 지 여부
+	 */
+	public CircularByteBuffer(int capacity, int maxCapacity, OverflowPolicy overflowPolicy, boolean direct) {
+		if (capacity <= 0 || maxCapacity < capacity || maxCapacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity: " + capacity + ", maxCapacity: " + maxCapacity);
+		}
+		this.maxCapacity = maxCapacity;
+		this.overflowPolicy = overflowPolicy;
+		setBuffer(direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	private void setBuffer(final ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.buffer.order(order);
+		this.views = new ByteBuffer[]{buffer.duplicate(), buffer.duplicate()};
+	}
+
+	/**
+	 * 버퍼의 구간을 뷰에 지정한다.
+	 */
+	private ByteBuffer view(final int i, final int from, final int to) {
+		final ByteBuffer view = views[i];
+		view.limit(to);
+		view.position(from);
+		return view;
 	}
 
 	/**
@@ -96,10 +232,24 @@ public class CircularByteBuffer {
 	 */
 	public synchronized void clear() {
 		idxGet = idxPut = available = 0;
-		Arrayz.fill(buffer, (byte) 0x00);
+		signalFree();
+		if (buffer.hasArray()) {
+			Arrayz.fill(buffer.array(), (byte) 0x00);
+		} else {
+			for (int i = 0; i < buffer.capacity(); i++) {
+				buffer.put(i, (byte) 0x00);
+			}
+		}
 
 	}
 
+	/**
+	 * 다이렉트 버퍼를 사용하는 지 여부
+	 */
+	public boolean isDirect() {
+		return buffer.isDirect();
+	}
+
 	/**
 	 * 한 바이트 읽기
 	 *
@@ -110,9 +260,10 @@ public class CircularByteBuffer {
 			return -1;
 		}
 
-		byte value = buffer[idxGet];
-		idxGet = (idxGet + 1) % buffer.length;
+		byte value = buffer.get(idxGet);
+		idxGet = (idxGet + 1) % buffer.capacity();
 		available--;
+		signalFree();
 		return value;
 
 	}
@@ -141,16 +292,16 @@ public class CircularByteBuffer {
 		}
 
 		// limit is last index to read + 1
-		int limit = idxGet < idxPut ? idxPut : buffer.length;
+		int limit = idxGet < idxPut ? idxPut : buffer.capacity();
 		int count = Math.min(limit - idxGet, len);
-		Arrayz.copy(buffer, idxGet, dst, off, count);
+		view(0, idxGet, idxGet + count).get(dst, off, count);
 		idxGet += count;
 
-		if (idxGet == buffer.length) {
+		if (idxGet == buffer.capacity()) {
 			// Array end reached, check if we have more
 			int count2 = Math.min(len - count, idxPut);
 			if (count2 > 0) {
-				Arrayz.copy(buffer, 0, dst, off + count, count2);
+				view(0, 0, count2).get(dst, off + count, count2);
 				idxGet = count2;
 				count += count2;
 			} else {
@@ -158,71 +309,154 @@ public class CircularByteBuffer {
 			}
 		}
 		available -= count;
+		signalFree();
 		return count;
 
 	}
 
+	/**
+	 * 버퍼의 남은 공간만큼 읽기
+	 *
+	 * @param dst 버퍼
+	 * @return 읽어들인 실제 데이터의 바이트 크기. 읽을 데이터가 없었다면 0
+	 */
+	public synchronized int get(final ByteBuffer dst) {
+		final int count = Math.min(dst.remaining(), available);
+		if (count == 0) {
+			return 0;
+		}
+		final int first = Math.min(count, buffer.capacity() - idxGet);
+		dst.put(view(0, idxGet, idxGet + first));
+		if (count > first) {
+			dst.put(view(0, 0, count - first));
+		}
+		consumed(count);
+		return count;
+	}
+
+	/**
+	 * 읽기 가능한 데이터를 새 버퍼의 처음으로 옮겨 담는다.
+	 */
 	private synchronized void increaseCapacity(final int newSize) {
-		this.buffer = Arrayz.copyOf(this.buffer, newSize);
+		final ByteBuffer newBuffer = buffer.isDirect()
+				? ByteBuffer.allocateDirect(newSize) : ByteBuffer.allocate(newSize);
+		if (available > 0) {
+			final int end = idxGet + available;
+			if (end <= buffer.capacity()) {
+				newBuffer.put(view(0, idxGet, end));
+			} else {
+				newBuffer.put(view(0, idxGet, buffer.capacity()));
+				newBuffer.put(view(1, 0, end - buffer.capacity()));
+			}
+		}
+		setBuffer(newBuffer);
+		idxGet = 0;
+		idxPut = available;
+
+	}
+
+	/**
+	 * 정수, 실수 값의 바이트 순서
+	 */
+	public synchronized ByteOrder order() {
+		return order;
+	}
 
+	/**
+	 * 정수, 실수 값의 바이트 순서를 지정한다.
+	 *
+	 * @param order 바이트 순서
+	 * @return this
+	 */
+	public synchronized CircularByteBuffer order(final ByteOrder order) {
+		this.order = order;
+		this.buffer.order(order);
+		return this;
 	}
 
 	public synchronized byte getByte() throws IndexOutOfBoundsException {
-		if (available() >= Numberz.BYTE_SIZE) {
+		if (available >= Numberz.BYTE_SIZE) {
 			return (byte) get();
 		} else {
 			throw new IndexOutOfBoundsException();
 		}
 	}
 
+	public synchronized int getUnsignedByte() throws IndexOutOfBoundsException {
+		return getByte() & 0xFF;
+	}
+
 	public synchronized short getShort() throws IndexOutOfBoundsException {
-		if (available() >= Numberz.SHORT_SIZE) {
-			//byte[] a = new byte[NumberUtils.SHORT_SIZE];
-			synchronized (tmp2) {
-				int nRead = get(tmp2, 0, tmp2.length);
-				if (nRead == Numberz.SHORT_SIZE) {
-					return Numberz.toShort(tmp2);
-				} else {
-					throw new IndexOutOfBoundsException();
-				}
-			}
+		checkAvailable(Numberz.SHORT_SIZE);
+		final short value = idxGet + Numberz.SHORT_SIZE <= buffer.capacity()
+				? buffer.getShort(idxGet) : (short) getWrapped(Numberz.SHORT_SIZE);
+		consumed(Numberz.SHORT_SIZE);
+		return value;
+	}
 
-		} else {
-			throw new IndexOutOfBoundsException();
-		}
+	public synchronized int getUnsignedShort() throws IndexOutOfBoundsException {
+		return getShort() & 0xFFFF;
 	}
 
 	public synchronized int getInt() throws IndexOutOfBoundsException {
-		if (available() >= Numberz.INT_SIZE) {
-			//byte[] a = new byte[NumberUtils.INT_SIZE];
-			synchronized (tmp4) {
-				int nRead = get(tmp4, 0, tmp4.length);
-				if (nRead == Numberz.INT_SIZE) {
-					return Numberz.toInt(tmp4);
-				} else {
-					throw new IndexOutOfBoundsException();
-				}
-			}
-		} else {
+		checkAvailable(Numberz.INT_SIZE);
+		final int value = idxGet + Numberz.INT_SIZE <= buffer.capacity()
+				? buffer.getInt(idxGet) : (int) getWrapped(Numberz.INT_SIZE);
+		consumed(Numberz.INT_SIZE);
+		return value;
+	}
+
+	public synchronized long getUnsignedInt() throws IndexOutOfBoundsException {
+		return getInt() & 0xFFFFFFFFL;
+	}
+
+	public synchronized long getLong() throws IndexOutOfBoundsException {
+		checkAvailable(Numberz.LONG_SIZE);
+		final long value = idxGet + Numberz.LONG_SIZE <= buffer.capacity()
+				? buffer.getLong(idxGet) : getWrapped(Numberz.LONG_SIZE);
+		consumed(Numberz.LONG_SIZE);
+		return value;
+	}
+
+	public synchronized float getFloat() throws IndexOutOfBoundsException {
+		return Float.intBitsToFloat(getInt());
+	}
+
+	public synchronized double getDouble() throws IndexOutOfBoundsException {
+		return Double.longBitsToDouble(getLong());
+	}
+
+	private void checkAvailable(final int size) throws IndexOutOfBoundsException {
+		if (available < size) {
 			throw new IndexOutOfBoundsException();
 		}
 	}
 
-	public synchronized long getLong() throws IndexOutOfBoundsException {
-		if (available() >= Numberz.LONG_SIZE) {
-			//byte[] a = new byte[NumberUtils.LONG_SIZE];
-			synchronized (tmp8) {
-				int nRead = get(tmp8, 0, tmp8.length);
-				if (nRead == Numberz.LONG_SIZE) {
-					return Numberz.toLong(tmp8);
-				} else {
-					throw new IndexOutOfBoundsException();
-				}
+	/**
+	 * 버퍼의 끝에 걸쳐 있는 값을 한 바이트씩 읽어서 조립한다.
+	 */
+	private long getWrapped(final int size) {
+		final int capacity = buffer.capacity();
+		long value = 0;
+		if (order == ByteOrder.BIG_ENDIAN) {
+			for (int i = 0; i < size; i++) {
+				value = (value << 8) | (buffer.get((idxGet + i) % capacity) & 0xFF);
 			}
-
 		} else {
-			throw new IndexOutOfBoundsException();
+			for (int i = size - 1; i >= 0; i--) {
+				value = (value << 8) | (buffer.get((idxGet + i) % capacity) & 0xFF);
+			}
 		}
+		return value;
+	}
+
+	/**
+	 * 읽은 만큼 읽기 커서를 옮긴다.
+	 */
+	private void consumed(final int count) {
+		idxGet = (idxGet + count) % buffer.capacity();
+		available -= count;
+		signalFree();
 	}
 
 	/**
@@ -232,21 +466,42 @@ public class CircularByteBuffer {
 	 * @return 찾은 바이트의 위치, 없으면 -1.
 	 */
 	public synchronized int seek(final byte b) {
-		int i = 0;
-		while (i < available()) {
-			int idx = idxGet + i;
-			if (idx < buffer.length) {
-				if (buffer[idx] == b) {
+		final int end = idxGet + available;
+		final int capacity = buffer.capacity();
+		int idx = indexOf(b, idxGet, Math.min(end, capacity));
+		if (idx >= 0) {
+			return idx - idxGet;
+		}
+		if (end > capacity) {
+			idx = indexOf(b, 0, end - capacity);
+			if (idx >= 0) {
+				return capacity - idxGet + idx;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * 버퍼의 한 구간에서 바이트를 찾는다.
+	 *
+	 * @return 버퍼에서의 위치, 없으면 -1
+	 */
+	private int indexOf(final byte b, final int from, final int to) {
+		if (buffer.hasArray()) {
+			final byte[] array = buffer.array();
+			for (int i = from; i < to; i++) {
+				if (array[i] == b) {
 					return i;
 				}
-			} else {
-				if (buffer[idx - buffer.length] == b) {
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				if (buffer.get(i) == b) {
 					return i;
 				}
 			}
-			i++;
 		}
-
 		return -1;
 	}
 
@@ -301,23 +556,24 @@ public class CircularByteBuffer {
 	 * 한 바이트 저장
 	 *
 	 * @param value 바이트
+	 * @throws BufferOverflowException {@link OverflowPolicy#FAIL}, 또는 {@link OverflowPolicy#BLOCK}에서 시간이 초과된 경우
 	 */
 	public synchronized void put(final byte value) {
-		if (free() <= 0) {
-			if (idxPut == 0) idxPut = buffer.length;
-			increaseCapacity(buffer.length + initialCapacity);
+		if (free() <= 0 && reserve(1) <= 0) {
+			return;
 		}
 
-		buffer[idxPut] = value;
-		idxPut = (idxPut + 1) % buffer.length;
+		buffer.put(idxPut, value);
+		idxPut = (idxPut + 1) % buffer.capacity();
 		available++;
+		if (available > highWaterMark) highWaterMark = available;
+		signalAvailable();
 
 
 		if (null != listeners) {
-			for (InputListener listener : listeners) {
-				if (listener.getTrigger() == value) {
-					listener.onDataAvailable(value, CircularByteBuffer.this);
-				}
+			final InputListener listener = listeners[value & 0xFF];
+			if (null != listener) {
+				fire(listener, value);
 			}
 		}
 
@@ -335,29 +591,237 @@ public class CircularByteBuffer {
 	}
 
 	/**
-	 * 바이트 배열을 저장
+	 * 바이트 배열을 저장.
+	 * {@link OverflowPolicy#BLOCK}에서는 전체가 들어갈 공간을 기다린 뒤에 한 번에 저장하므로,
+	 * 예외가 발생하면 아무것도 저장되지 않는다. 단, 최대 크기보다 길면 최대 크기씩 나누어 저장한다.
 	 *
 	 * @param src 바이트 배열
 	 * @param off 옵셋
 	 * @param len 길이
+	 * @throws BufferOverflowException {@link OverflowPolicy#FAIL}, 또는 {@link OverflowPolicy#BLOCK}에서 시간이 초과된 경우
+	 */
+	public synchronized void put(final byte[] src, int off, int len) {
+		if (overflowPolicy == OverflowPolicy.BLOCK) {
+			while (len > 0) {
+				final int count = Math.min(len, maxCapacity);
+				if (free() < count) {
+					reserveBlocking(count, len);
+				}
+				write(src, off, count);
+				off += count;
+				len -= count;
+			}
+			return;
+		}
+
+		if (overflowPolicy == OverflowPolicy.DROP_OLDEST && len > maxCapacity) {
+			// 남길 수 있는 것은 마지막 부분 뿐이다.
+			droppedBytes += len - maxCapacity;
+			off += len - maxCapacity;
+			len = maxCapacity;
+		}
+
+		final int count = free() < len ? reserve(len) : len;
+		if (count > 0) {
+			write(src, off, count);
+		}
+	}
+
+	/**
+	 * 바이트 버퍼의 남은 데이터를 저장.
+	 * 정책에 따라 버린 데이터를 포함해서, 저장을 시도한 만큼 src의 위치가 옮겨진다.
+	 * {@link OverflowPolicy#BLOCK}에서 예외가 발생하면, src의 위치는 저장된 만큼만 옮겨진다.
+	 *
+	 * @param src 바이트 버퍼
+	 * @throws BufferOverflowException {@link OverflowPolicy#FAIL}, 또는 {@link OverflowPolicy#BLOCK}에서 시간이 초과된 경우
+	 */
+	public synchronized void put(final ByteBuffer src) {
+		if (overflowPolicy == OverflowPolicy.BLOCK) {
+			while (src.hasRemaining()) {
+				final int count = Math.min(src.remaining(), maxCapacity);
+				if (free() < count) {
+					reserveBlocking(count, src.remaining());
+				}
+				write(src, count);
+			}
+			return;
+		}
+
+		if (src.hasArray()) {
+			final int len = src.remaining();
+			put(src.array(), src.arrayOffset() + src.position(), len);
+			src.position(src.position() + len);
+			return;
+		}
+
+		int len = src.remaining();
+		if (overflowPolicy == OverflowPolicy.DROP_OLDEST && len > maxCapacity) {
+			droppedBytes += len - maxCapacity;
+			src.position(src.position() + len - maxCapacity);
+			len = maxCapacity;
+		}
+
+		final int count = free() < len ? reserve(len) : len;
+		if (count > 0) {
+			write(src, count);
+		}
+		src.position(src.position() + len - count);
+	}
+
+	/**
+	 * 빈 공간에 바이트 버퍼의 데이터를 저장한다.
+	 */
+	private void write(final ByteBuffer src, final int count) {
+		final int start = idxPut;
+		final int limit = src.limit();
+		final int first = Math.min(count, buffer.capacity() - start);
+		src.limit(src.position() + first);
+		view(0, start, start + first).put(src);
+		if (count > first) {
+			src.limit(src.position() + count - first);
+			view(0, 0, count - first).put(src);
+		}
+		src.limit(limit);
+		stored(start, count);
+	}
+
+	public synchronized void putUnsignedByte(final int value) {
+		put((byte) value);
+	}
+
+	public synchronized void putShort(final short value) {
+		if (free() < Numberz.SHORT_SIZE && !reserveValue(Numberz.SHORT_SIZE)) {
+			return;
+		}
+		final int start = idxPut;
+		if (start + Numberz.SHORT_SIZE <= buffer.capacity()) {
+			buffer.putShort(start, value);
+		} else {
+			putWrapped(value, Numberz.SHORT_SIZE);
+		}
+		stored(start, Numberz.SHORT_SIZE);
+	}
+
+	public synchronized void putUnsignedShort(final int value) {
+		putShort((short) value);
+	}
+
+	public synchronized void putInt(final int value) {
+		if (free() < Numberz.INT_SIZE && !reserveValue(Numberz.INT_SIZE)) {
+			return;
+		}
+		final int start = idxPut;
+		if (start + Numberz.INT_SIZE <= buffer.capacity()) {
+			buffer.putInt(start, value);
+		} else {
+			putWrapped(value, Numberz.INT_SIZE);
+		}
+		stored(start, Numberz.INT_SIZE);
+	}
+
+	public synchronized void putUnsignedInt(final long value) {
+		putInt((int) value);
+	}
+
+	public synchronized void putLong(final long value) {
+		if (free() < Numberz.LONG_SIZE && !reserveValue(Numberz.LONG_SIZE)) {
+			return;
+		}
+		final int start = idxPut;
+		if (start + Numberz.LONG_SIZE <= buffer.capacity()) {
+			buffer.putLong(start, value);
+		} else {
+			putWrapped(value, Numberz.LONG_SIZE);
+		}
+		stored(start, Numberz.LONG_SIZE);
+	}
+
+	public synchronized void putFloat(final float value) {
+		putInt(Float.floatToRawIntBits(value));
+	}
+
+	public synchronized void putDouble(final double value) {
+		putLong(Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * 값을 나누어 저장하지 않도록, 값 전체를 저장할 공간을 확보한다.
+	 *
+	 * @param size 값의 크기
+	 * @return 저장할 수 있으면 true, 정책에 따라 값을 버렸으면 false
+	 */
+	private boolean reserveValue(final int size) {
+		if (size > maxCapacity) {
+			droppedBytes += size;
+			throw new BufferOverflowException();
+		}
+		if (overflowPolicy == OverflowPolicy.BLOCK) {
+			reserveBlocking(size, size);
+			return true;
+		}
+		final int count = reserve(size);
+		if (count < size) {
+			// reserve()는 저장할 수 있는 부분을 빼고 버린 것으로 세었다.
+			droppedBytes += count;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 버퍼의 끝에 걸치는 값을 한 바이트씩 저장한다.
+	 */
+	private void putWrapped(final long value, final int size) {
+		final int capacity = buffer.capacity();
+		for (int i = 0; i < size; i++) {
+			final int shift = order == ByteOrder.BIG_ENDIAN ? (size - 1 - i) * 8 : i * 8;
+			buffer.put((idxPut + i) % capacity, (byte) (value >>> shift));
+		}
+	}
+
+	/**
+	 * 버퍼에 직접 저장한 만큼 쓰기 커서를 옮기고, 리스너에 알린다.
+	 *
+	 * @param start 저장을 시작한 위치
+	 * @param count 저장한 크기
 	 */
-	public synchronized void put(final byte[] src, final int off, final int len) {
-		if (free() < len) {
-			if (idxPut == 0) idxPut = buffer.length;
-			increaseCapacity(Math.max(buffer.length + initialCapacity, buffer.length + len));
+	private void stored(final int start, final int count) {
+		idxPut = (start + count) % buffer.capacity();
+		available += count;
+		if (available > highWaterMark) highWaterMark = available;
+		signalAvailable();
+
+		if (listeners != null) {
+			final ByteBuffer storage = buffer;
+			final byte[] array = storage.hasArray() ? storage.array() : null;
+			final long[] bitmap = beginDispatch();
+			try {
+				final int last = start + count;
+				int remaining = dispatch(listeners, array, storage, start, Math.min(last, storage.capacity()), bitmap, listenerCount);
+				if (last > storage.capacity() && remaining > 0) {
+					dispatch(listeners, array, storage, 0, last - storage.capacity(), bitmap, remaining);
+				}
+			} finally {
+				endDispatch(bitmap);
+			}
 		}
+	}
 
+	/**
+	 * 빈 공간에 데이터를 저장한다.
+	 */
+	private void write(final byte[] src, final int off, final int len) {
 		// limit is last index to put + 1
-		int limit = idxPut < idxGet ? idxGet : buffer.length;
+		int limit = idxPut < idxGet ? idxGet : buffer.capacity();
 		int count = Math.min(limit - idxPut, len);
-		System.arraycopy(src, off, buffer, idxPut, count);
+		view(0, idxPut, idxPut + count).put(src, off, count);
 		idxPut += count;
 
-		if (idxPut == buffer.length) {
+		if (idxPut == buffer.capacity()) {
 			// Array end reached, check if we have more
 			int count2 = Math.min(len - count, idxGet);
 			if (count2 > 0) {
-				System.arraycopy(src, off + count, buffer, 0, count2);
+				view(0, 0, count2).put(src, off + count, count2);
 				idxPut = count2;
 				count += count2;
 			} else {
@@ -365,21 +829,392 @@ public class CircularByteBuffer {
 			}
 		}
 		available += count;
+		if (available > highWaterMark) highWaterMark = available;
+		signalAvailable();
 
 
 		if (listeners != null) {
-			for (InputListener listener : listeners) {
-				byte trigger = listener.getTrigger();
-				for (int i = 0; i < len; i++) {
-					if (trigger == src[off + i]) {
-						listener.onDataAvailable(trigger, CircularByteBuffer.this);
-						break;
+			final long[] bitmap = beginDispatch();
+			try {
+				dispatch(listeners, src, null, off, off + len, bitmap, listenerCount);
+			} finally {
+				endDispatch(bitmap);
+			}
+		}
+	}
+
+	/**
+	 * 저장할 공간을 확보한다.
+	 * 먼저 버퍼를 늘리고, 최대 크기에 도달했으면 정책에 따라 처리한다.
+	 *
+	 * @param len 저장하려는 크기
+	 * @return 지금 저장할 수 있는 크기
+	 */
+	private int reserve(final int len) {
+		if (buffer.capacity() < maxCapacity) {
+			grow(len);
+			if (free() >= len) {
+				return len;
+			}
+		}
+
+		switch (overflowPolicy) {
+			case DROP_NEWEST:
+				droppedBytes += len - free();
+				return free();
+			case DROP_OLDEST:
+				final int drop = len - free();
+				droppedBytes += drop;
+				idxGet = (idxGet + drop) % buffer.capacity();
+				available -= drop;
+				return len;
+			case BLOCK:
+				awaitFree(1, len);
+				return Math.min(free(), len);
+			case FAIL:
+			default:
+				droppedBytes += len;
+				throw new BufferOverflowException();
+		}
+	}
+
+	/**
+	 * {@link OverflowPolicy#BLOCK}에서, 최대 크기까지 늘린 뒤에 needed 만큼 빈 공간이 생길 때까지 기다린다.
+	 *
+	 * @param needed 필요한 빈 공간의 크기. 최대 크기를 넘지 않는다.
+	 * @param len    저장하려는 크기. 실패하면 버린 것으로 센다.
+	 */
+	private void reserveBlocking(final int needed, final int len) {
+		if (buffer.capacity() < maxCapacity) {
+			grow(needed);
+		}
+		if (free() < needed) {
+			awaitFree(needed, len);
+		}
+	}
+
+	/**
+	 * 버퍼를 두 배로, 모자라면 len 을 저장할 수 있을 만큼, 최대 크기까지 늘린다.
+	 */
+	private void grow(final int len) {
+		increaseCapacity((int) Math.min(maxCapacity,
+				Math.max(2L * buffer.capacity(), (long) available + len)));
+	}
+
+	/**
+	 * 소비자가 공간을 비울 때까지 기다린다.
+	 *
+	 * @param needed 필요한 빈 공간의 크기
+	 * @param len    저장하려는 크기. 시간이 초과되면 버린 것으로 센다.
+	 */
+	private void awaitFree(final int needed, final int len) {
+		final long deadline = System.nanoTime() + blockingTimeoutNanos;
+		waitingProducers++;
+		try {
+			while (free() < needed) {
+				if (consumerClosed) {
+					droppedBytes += len;
+					throw new BufferOverflowException();
+				}
+				if (blockingTimeoutNanos <= 0) {
+					wait();
+				} else {
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						droppedBytes += len;
+						throw new BufferOverflowException();
+					}
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			droppedBytes += len;
+			throw new BufferOverflowException();
+		} finally {
+			waitingProducers--;
+		}
+	}
+
+	/**
+	 * 기다리는 생산자가 있으면 깨운다.
+	 */
+	private void signalFree() {
+		if (waitingProducers > 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * 생산자가 데이터를 저장할 때까지 기다린다.
+	 *
+	 * @return 읽을 데이터가 있으면 true, 생산자 쪽이 닫혀서 더 이상 데이터가 없으면 false
+	 * @throws InterruptedIOException 시간이 초과되었거나 인터럽트된 경우
+	 * @throws IOException            소비자 쪽이 닫힌 경우
+	 */
+	private boolean awaitAvailable() throws IOException {
+		final long deadline = System.nanoTime() + readTimeoutNanos;
+		waitingConsumers++;
+		try {
+			while (available == 0) {
+				if (consumerClosed) {
+					throw new IOException("Pipe closed");
+				}
+				if (producerClosed) {
+					return false;
+				}
+				if (readTimeoutNanos <= 0) {
+					wait();
+				} else {
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						throw new InterruptedIOException("Read timed out");
 					}
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
 				}
 			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			waitingConsumers--;
+		}
+	}
+
+	/**
+	 * 기다리는 소비자가 있으면 깨운다.
+	 */
+	private void signalAvailable() {
+		if (waitingConsumers > 0) {
+			notifyAll();
 		}
+	}
+
+	/**
+	 * 스트림, 채널 뷰에서 소비자가 데이터를 기다리는 최대 시간
+	 *
+	 * @param timeout 0이면 무한정 기다린다.
+	 * @param unit    시간 단위
+	 */
+	public synchronized void setReadTimeout(final long timeout, final TimeUnit unit) {
+		this.readTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	private synchronized void closeProducer() {
+		producerClosed = true;
+		notifyAll();
+	}
+
+	private synchronized void closeConsumer() {
+		consumerClosed = true;
+		notifyAll();
+	}
+
+	private void ensureProducerOpen() throws IOException {
+		if (producerClosed || consumerClosed) {
+			throw new IOException("Pipe closed");
+		}
+	}
+
+	/**
+	 * 버퍼를 읽는 입력 스트림.
+	 * 데이터가 없으면 {@link #setReadTimeout(long, TimeUnit)}만큼 기다리고,
+	 * 출력 스트림(또는 쓰기 채널)이 닫힌 뒤에 남은 데이터를 모두 읽으면 EOF(-1)를 반환한다.
+	 *
+	 * @return 입력 스트림
+	 */
+	public InputStream asInputStream() {
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				synchronized (CircularByteBuffer.this) {
+					return awaitAvailable() ? get() & 0xFF : -1;
+				}
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				if (off < 0 || len < 0 || len > b.length - off) {
+					throw new IndexOutOfBoundsException();
+				}
+				if (len == 0) {
+					return 0;
+				}
+				synchronized (CircularByteBuffer.this) {
+					return awaitAvailable() ? get(b, off, len) : -1;
+				}
+			}
+
+			@Override
+			public long skip(final long n) {
+				return n <= 0 ? 0 : CircularByteBuffer.this.skip((int) Math.min(n, Integer.MAX_VALUE));
+			}
+
+			@Override
+			public int available() {
+				return CircularByteBuffer.this.available();
+			}
+
+			@Override
+			public void close() {
+				closeConsumer();
+			}
+		};
+	}
+
+	/**
+	 * 버퍼에 데이터를 저장하는 출력 스트림.
+	 * 버퍼가 가득 찼을 때의 동작은 {@link OverflowPolicy}를 따르며,
+	 * {@link BufferOverflowException}은 {@link IOException}으로 바뀌어 던져진다.
+	 * 스트림을 닫으면 입력 스트림은 남은 데이터를 모두 읽은 뒤에 EOF를 반환한다.
+	 *
+	 * @return 출력 스트림
+	 */
+	public OutputStream asOutputStream() {
+		return new OutputStream() {
+			@Override
+			public void write(final int b) throws IOException {
+				synchronized (CircularByteBuffer.this) {
+					ensureProducerOpen();
+					try {
+						put((byte) b);
+					} catch (BufferOverflowException e) {
+						throw new IOException(consumerClosed ? "Pipe closed" : "Buffer overflow", e);
+					}
+				}
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) throws IOException {
+				if (off < 0 || len < 0 || len > b.length - off) {
+					throw new IndexOutOfBoundsException();
+				}
+				synchronized (CircularByteBuffer.this) {
+					ensureProducerOpen();
+					try {
+						put(b, off, len);
+					} catch (BufferOverflowException e) {
+						throw new IOException(consumerClosed ? "Pipe closed" : "Buffer overflow", e);
+					}
+				}
+			}
+
+			@Override
+			public void close() {
+				closeProducer();
+			}
+		};
+	}
+
+	/**
+	 * 버퍼를 읽는 채널. 동작은 {@link #asInputStream()}과 같다.
+	 *
+	 * @return 읽기 채널
+	 */
+	public ReadableByteChannel asReadableChannel() {
+		return new ReadableByteChannel() {
+			@Override
+			public int read(final ByteBuffer dst) throws IOException {
+				if (!dst.hasRemaining()) {
+					return 0;
+				}
+				synchronized (CircularByteBuffer.this) {
+					return awaitAvailable() ? get(dst) : -1;
+				}
+			}
+
+			@Override
+			public boolean isOpen() {
+				synchronized (CircularByteBuffer.this) {
+					return !consumerClosed;
+				}
+			}
+
+			@Override
+			public void close() {
+				closeConsumer();
+			}
+		};
+	}
+
+	/**
+	 * 버퍼에 데이터를 저장하는 채널. 동작은 {@link #asOutputStream()}과 같다.
+	 *
+	 * @return 쓰기 채널
+	 */
+	public WritableByteChannel asWritableChannel() {
+		return new WritableByteChannel() {
+			@Override
+			public int write(final ByteBuffer src) throws IOException {
+				synchronized (CircularByteBuffer.this) {
+					ensureProducerOpen();
+					final int len = src.remaining();
+					try {
+						put(src);
+					} catch (BufferOverflowException e) {
+						throw new IOException(consumerClosed ? "Pipe closed" : "Buffer overflow", e);
+					}
+					return len;
+				}
+			}
+
+			@Override
+			public boolean isOpen() {
+				synchronized (CircularByteBuffer.this) {
+					return !producerClosed;
+				}
+			}
+
+			@Override
+			public void close() {
+				closeProducer();
+			}
+		};
+	}
+
+	/**
+	 * {@link OverflowPolicy#BLOCK}에서 생산자가 기다리는 최대 시간
+	 *
+	 * @param timeout 0이면 무한정 기다린다.
+	 * @param unit    시간 단위
+	 */
+	public synchronized void setBlockingTimeout(final long timeout, final TimeUnit unit) {
+		this.blockingTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	/**
+	 * 최대 버퍼 크기
+	 */
+	public int maxCapacity() {
+		return maxCapacity;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * 저장하지 못하고 버린 바이트 수.
+	 * 정책에 따라 버렸거나, 예외를 던지면서 저장하지 않은 바이트를 포함한다.
+	 */
+	public synchronized long droppedBytes() {
+		return droppedBytes;
+	}
+
+	/**
+	 * 가장 많이 쌓였을 때의 데이터 크기
+	 */
+	public synchronized int highWaterMark() {
+		return highWaterMark;
+	}
 
-		//return count;
+	/**
+	 * 버린 바이트 수와 최고 수위를 초기화한다.
+	 */
+	public synchronized void resetStatistics() {
+		droppedBytes = 0;
+		highWaterMark = available;
 	}
 
 	/**
@@ -388,7 +1223,7 @@ public class CircularByteBuffer {
 	 * @return 읽을 데이터가 없으면 -1
 	 */
 	public synchronized int peek() {
-		return available > 0 ? buffer[idxGet] : -1;
+		return available > 0 ? buffer.get(idxGet) : -1;
 
 	}
 
@@ -401,15 +1236,22 @@ public class CircularByteBuffer {
 		if (count > available) {
 			count = available;
 		}
-		idxGet = (idxGet + count) % buffer.length;
+		idxGet = (idxGet + count) % buffer.capacity();
 		available -= count;
+		signalFree();
 		return count;
 
 	}
 
+	/**
+	 * 특정 바이트의 바로 앞까지 건너뛴다.
+	 *
+	 * @param b 찾고자 하는 바이트
+	 * @return 건너뛴 바이트 수. 바이트를 찾지 못했으면 아무 것도 건너뛰지 않고 0
+	 */
 	public synchronized int skipUntil(byte b) {
 		int pos = seek(b);
-		return skip(pos);
+		return pos > 0 ? skip(pos) : 0;
 
 	}
 
@@ -417,7 +1259,7 @@ public class CircularByteBuffer {
 	 * 버퍼의 최대 저장 공간 크기
 	 */
 	public synchronized int capacity() {
-		return buffer.length;
+		return buffer.capacity();
 
 	}
 
@@ -433,16 +1275,145 @@ public class CircularByteBuffer {
 	 * 쓰기 가능한 데이터의 크기
 	 */
 	public synchronized int free() {
-		return buffer.length - available;
+		return buffer.capacity() - available;
+
+	}
+
+	/**
+	 * 채널에서 읽어 들인 데이터를 버퍼의 빈 공간에 바로 저장한다.
+	 * 빈 공간이 두 구간으로 나뉘어 있고 채널이 {@link ScatteringByteChannel}이면 한 번에 두 구간을 채운다.
+	 * 버퍼가 가득차 있으면 용량을 늘린 뒤에 읽는다.
+	 * 최대 크기에 도달했으면 {@link OverflowPolicy#BLOCK}일 때에는 공간이 생길 때까지 기다리고,
+	 * 그 밖의 정책에서는 데이터를 채널에 남겨둔 채 0을 반환한다.
+	 *
+	 * @param channel 채널
+	 * @return 읽어들인 바이트 크기. 채널의 끝에 도달했으면 -1
+	 * @throws IOException e
+	 * @throws BufferOverflowException {@link OverflowPolicy#BLOCK}에서 시간이 초과된 경우
+	 */
+	public synchronized int readFrom(final ReadableByteChannel channel) throws IOException {
+		if (free() <= 0) {
+			if (buffer.capacity() < maxCapacity) {
+				increaseCapacity((int) Math.min(maxCapacity, 2L * buffer.capacity()));
+			} else if (overflowPolicy == OverflowPolicy.BLOCK) {
+				awaitFree(1, 0);
+			} else {
+				return 0;
+			}
+		}
+
+		final int start = idxPut;
+		final int end = idxPut < idxGet ? idxGet : buffer.capacity();
+		final long count;
+		if (end == buffer.capacity() && idxGet > 0 && channel instanceof ScatteringByteChannel) {
+			view(0, idxPut, end);
+			view(1, 0, idxGet);
+			count = ((ScatteringByteChannel) channel).read(views);
+		} else {
+			count = channel.read(view(0, idxPut, end));
+		}
+		if (count <= 0) {
+			return (int) count;
+		}
+		stored(start, (int) count);
+		return (int) count;
+	}
+
+	/**
+	 * 버퍼의 데이터를 채널에 바로 기록한다.
+	 * 데이터가 두 구간으로 나뉘어 있고 채널이 {@link GatheringByteChannel}이면 한 번에 두 구간을 기록한다.
+	 *
+	 * @param channel 채널
+	 * @return 기록한 바이트 크기
+	 * @throws IOException e
+	 */
+	public synchronized int writeTo(final WritableByteChannel channel) throws IOException {
+		if (available == 0) {
+			return 0;
+		}
 
+		final int end = idxGet + available;
+		final long count;
+		if (end > buffer.capacity() && channel instanceof GatheringByteChannel) {
+			view(0, idxGet, buffer.capacity());
+			view(1, 0, end - buffer.capacity());
+			count = ((GatheringByteChannel) channel).write(views);
+		} else {
+			count = channel.write(view(0, idxGet, Math.min(end, buffer.capacity())));
+		}
+		idxGet = (int) ((idxGet + count) % buffer.capacity());
+		available -= count;
+		signalFree();
+		return (int) count;
 	}
 
 	@Override
-	public String toString() {
-		return "[" + idxGet + ", " + idxPut + "]\t" + Bytez.toHex(":", buffer);
+	public synchronized String toString() {
+		final byte[] bytes = new byte[buffer.capacity()];
+		view(0, 0, bytes.length).get(bytes);
+		return "[" + idxGet + ", " + idxPut + "]\t" + Bytez.toHex(":", bytes);
+
+	}
+
+
+	private long[] beginDispatch() {
+		if (dispatching) {
+			return new long[4];
+		}
+		dispatching = true;
+		Arrays.fill(fired, 0L);
+		return fired;
+	}
+
+	private void endDispatch(final long[] bitmap) {
+		if (bitmap == fired) {
+			dispatching = false;
+		}
+	}
+
+	/**
+	 * 입력된 데이터를 한 번만 훑으면서, 트리거 바이트가 처음 나타날 때 해당 리스너를 호출한다.
+	 * 한 번의 입력에서 리스너는 한 번만 호출된다.
+	 *
+	 * @param table     트리거 테이블
+	 * @param array     입력 데이터. null이면 storage에서 읽는다.
+	 * @param storage   입력 데이터
+	 * @param fired     이번 입력에서 이미 호출한 트리거의 비트맵
+	 * @param remaining 아직 호출하지 않은 리스너의 수
+	 * @return 아직 호출하지 않은 리스너의 수
+	 */
+	private int dispatch(final InputListener[] table, final byte[] array, final ByteBuffer storage,
+	                     final int from, final int to, final long[] fired, int remaining) {
+		for (int i = from; i < to && remaining > 0; i++) {
+			final int b = (null != array ? array[i] : storage.get(i)) & 0xFF;
+			final InputListener listener = table[b];
+			if (null != listener && (fired[b >>> 6] & (1L << b)) == 0) {
+				fired[b >>> 6] |= 1L << b;
+				remaining--;
+				fire(listener, (byte) b);
+			}
+		}
+		return remaining;
+	}
 
+	private void fire(final InputListener listener, final byte trigger) {
+		final Executor executor = listenerExecutor;
+		if (null == executor) {
+			listener.onDataAvailable(trigger, CircularByteBuffer.this);
+		} else {
+			executor.execute(() -> listener.onDataAvailable(trigger, CircularByteBuffer.this));
+		}
 	}
 
+	/**
+	 * 리스너를 호출할 실행기를 지정한다.
+	 * 실행기를 지정하면 리스너는 버퍼의 모니터를 잡지 않은 채로 실행기의 스레드에서 호출된다.
+	 *
+	 * @param executor null이면 데이터를 저장한 스레드에서 바로 호출한다.
+	 */
+	public synchronized void setListenerExecutor(final Executor executor) {
+		this.listenerExecutor = executor;
+	}
 
 	/**
 	 * 입력 데이터 모니터를 등록.
@@ -450,44 +1421,71 @@ public class CircularByteBuffer {
 	 *
 	 * @param listener listener
 	 */
-	public void addListener(InputListener listener) {
-		if (null == listeners) {
-			listeners = new ArrayList<>();
-		}
-		for (InputListener l : listeners) {
-			if (l.getTrigger() == listener.getTrigger()) {
-				listeners.remove(l);
-			}
-		}
-		listeners.add(listener);
+	public synchronized void addListener(InputListener listener) {
+		final InputListener[] table = null == listeners ? new InputListener[256] : listeners.clone();
+		table[listener.getTrigger() & 0xFF] = listener;
+		setListeners(table);
 	}
 
-	public void removeListener(InputListener listener) {
+	public synchronized void removeListener(InputListener listener) {
 		if (null != listeners) {
-			listeners.remove(listener);
-			if (listeners.size() == 0) {
-				listeners = null;
+			final InputListener[] table = listeners.clone();
+			for (int i = 0; i < table.length; i++) {
+				if (table[i] == listener) {
+					table[i] = null;
+				}
 			}
+			setListeners(table);
 		}
 
 	}
 
-	public void removeListener(byte trigger) {
+	public synchronized void removeListener(byte trigger) {
 		if (null != listeners) {
-			for (InputListener l : listeners) {
-				if (l.getTrigger() == trigger) {
-					listeners.remove(l);
-				}
-			}
-			if (listeners.size() == 0) {
-				listeners = null;
+			final InputListener[] table = listeners.clone();
+			table[trigger & 0xFF] = null;
+			setListeners(table);
+		}
+	}
+
+	public synchronized void removeAllListeners() {
+		setListeners(null);
+	}
+
+	private void setListeners(final InputListener[] table) {
+		int count = 0;
+		if (null != table) {
+			for (InputListener listener : table) {
+				if (null != listener) count++;
 			}
 		}
+		this.listenerCount = count;
+		this.listeners = count == 0 ? null : table;
 	}
 
-	public void removeAllListeners() {
-		if (null != listeners) listeners.clear();
-		listeners = null;
+	/**
+	 * 최대 버퍼 크기에 도달한 버퍼에 데이터를 저장하려 할 때의 동작
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * 공간이 생길 때까지 생산자를 기다리게 한다.
+		 * 시간이 초과되면 {@link BufferOverflowException}을 던진다.
+		 *
+		 * @see #setBlockingTimeout(long, TimeUnit)
+		 */
+		BLOCK,
+		/**
+		 * 저장할 수 있는 만큼만 저장하고, 나머지 새 데이터를 버린다.
+		 */
+		DROP_NEWEST,
+		/**
+		 * 가장 오래된 데이터를 버리고(덮어쓰고) 새 데이터를 저장한다.
+		 */
+		DROP_OLDEST,
+		/**
+		 * 아무 것도 저장하지 않고 {@link BufferOverflowException}을 던진다.
+		 */
+		FAIL
 	}
 
 	/**
@@ -502,10 +1500,12 @@ public class CircularByteBuffer {
 		public byte getTrigger();
 
 		/**
-		 * 버퍼에 트리거 바이트가 입력되면 (별도의 스레드에서) 호출된다.
+		 * 버퍼에 트리거 바이트가 입력되면 호출된다.
+		 * 실행기를 지정했으면 실행기의 스레드에서, 그렇지 않으면 데이터를 저장한 스레드에서 호출된다.
 		 *
 		 * @param trigger
 		 * @param buffer
+		 * @see CircularByteBuffer#setListenerExecutor(Executor)
 		 */
 		public void onDataAvailable(byte trigger, CircularByteBuffer buffer);
 	}
@@ -7,9 +7,33 @@
 package com.elex_project.abraxas;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.util.Enumeration;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.*;
@@ -22,6 +46,28 @@ import java.util.zip.*;
 public final class Compressez {
 
 	private static final int BUFFER_SIZE = 1024;
+	/**
+	 * 작업 스레드마다 재사용하는 버퍼의 크기
+	 */
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * 사전으로 압축한 데이터 앞의 사전 ID
+	 */
+	private static final int DICTIONARY_HEADER_SIZE = 4;
+	/**
+	 * {@link #gzipParallel(InputStream, Path, int, int, OnProgressListener)}의 블록 크기
+	 */
+	private static final int GZIP_BLOCK_SIZE = 1024 * 1024;
+	private static final int GZIP_HEADER_SIZE = 10;
+	private static final int GZIP_TRAILER_SIZE = 8;
+	/**
+	 * 이미 압축된 형식의 확장자
+	 */
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+			"zip", "jar", "war", "ear", "apk", "gz", "tgz", "bz2", "xz", "txz", "7z", "rar", "zst", "lz4", "br",
+			"png", "jpg", "jpeg", "gif", "webp", "heic", "avif",
+			"mp3", "m4a", "aac", "ogg", "opus", "flac", "mp4", "m4v", "mkv", "mov", "avi", "webm",
+			"woff", "woff2", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub"));
 
 	private Compressez() {
 	}
@@ -78,6 +124,118 @@ public final class Compressez {
 
 	}
 
+	/**
+	 * 파일 또는 디렉토리를 여러 스레드에서 압축한다.
+	 * 이미 압축된 형식의 파일은 압축하지 않고 저장한다.
+	 *
+	 * @param zipFile    압축 파일
+	 * @param filesToZip 압축할 파일 또는 디렉토리
+	 * @throws IOException ...
+	 * @see #zipParallel(Path, int, Predicate, int, OnProgressListener, Path...)
+	 */
+	public static void zipParallel(@NotNull final Path zipFile, @NotNull final Path... filesToZip)
+			throws IOException {
+		zipParallel(zipFile, Deflater.DEFAULT_COMPRESSION, Compressez::isCompressed,
+				Runtime.getRuntime().availableProcessors(), null, filesToZip);
+	}
+
+	public static void zipParallel(@NotNull final File zipFile, @NotNull final File... filesToZip)
+			throws IOException {
+		final Path[] paths = new Path[filesToZip.length];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = filesToZip[i].toPath();
+		}
+		zipParallel(zipFile.toPath(), paths);
+	}
+
+	/**
+	 * 파일 또는 디렉토리를 여러 스레드에서 압축한다.
+	 * <p>
+	 * 파일들, 그리고 큰 파일은 1MB 블록들로 나누어 작업 스레드들에서 압축하고, 호출한 스레드가 순서대로 쓴다.
+	 * 디렉토리도 항목으로 기록한다. 항목의 이름은 {@link #zip(File, File...)}과 같이 filesToZip 의 이름으로 시작한다.
+	 * {@link #zip(File, File...)}처럼 심볼릭 링크를 따라간다. 순환하는 링크와 일반 파일이 아닌 것(FIFO 등)은 건너뛴다.
+	 * 4GB가 넘는 아카이브와 항목은 ZIP64 형식으로 쓴다. 실패하면 만들던 파일을 지운다.
+	 *
+	 * @param zipFile     압축 파일. 있으면 덮어쓴다.
+	 * @param level       압축 수준. {@link Deflater#NO_COMPRESSION}이면 모두 저장한다.
+	 * @param stored      압축하지 않고 저장할 파일. null 이면 모두 압축한다.
+	 * @param parallelism 압축할 스레드 수
+	 * @param listener    진행 상황. 항목을 쓸 때마다 호출한 스레드에서 호출된다.
+	 * @param filesToZip  압축할 파일 또는 디렉토리
+	 * @throws IOException ...
+	 * @see #isCompressed(Path)
+	 */
+	public static void zipParallel(@NotNull final Path zipFile, final int level, @Nullable final Predicate<Path> stored,
+	                               final int parallelism, @Nullable final OnProgressListener listener,
+	                               @NotNull final Path... filesToZip) throws IOException {
+		try (ParallelZipWriter writer = new ParallelZipWriter(zipFile, level, parallelism, listener)) {
+			for (Path fileToZip : filesToZip) {
+				final Path base = fileToZip.toAbsolutePath().getParent();
+				Files.walkFileTree(fileToZip.toAbsolutePath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+						new SimpleFileVisitor<Path>() {
+							@Override
+							public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+								final String name = entryName(base, dir);
+								if (!name.isEmpty()) {
+									writer.addDirectory(name + "/", attributes.lastModifiedTime().toMillis());
+								}
+								return FileVisitResult.CONTINUE;
+							}
+
+							@Override
+							public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+								if (attributes.isRegularFile()) {
+									writer.addFile(file, entryName(base, file), attributes.size(),
+											attributes.lastModifiedTime().toMillis(),
+											level == Deflater.NO_COMPRESSION || (null != stored && stored.test(file)));
+								}
+								return FileVisitResult.CONTINUE;
+							}
+
+							@Override
+							public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+								if (e instanceof FileSystemLoopException) {
+									return FileVisitResult.CONTINUE;
+								}
+								throw e;
+							}
+						});
+			}
+			writer.finish();
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(zipFile);
+			throw e;
+		}
+	}
+
+	/**
+	 * '/'로 구분한 상대 경로
+	 */
+	@NotNull
+	private static String entryName(@Nullable final Path base, @NotNull final Path path) {
+		final Path relative = null == base ? path.getRoot().relativize(path) : base.relativize(path);
+		final StringBuilder sb = new StringBuilder();
+		for (Path name : relative) {
+			if (sb.length() > 0) sb.append('/');
+			sb.append(name);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 확장자로 보아 이미 압축된 형식인 지. 다시 압축해도 줄지 않으므로 저장하는 편이 빠르다.
+	 *
+	 * @param path 파일
+	 * @return zip, gz, png, jpg, mp4 등이면 true
+	 */
+	public static boolean isCompressed(@NotNull final Path path) {
+		final Path name = path.getFileName();
+		if (null == name) return false;
+		final String s = name.toString();
+		final int dot = s.lastIndexOf('.');
+		return dot >= 0 && COMPRESSED_EXTENSIONS.contains(s.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
 	/**
 	 * 압축 해제
 	 *
@@ -110,6 +268,147 @@ public final class Compressez {
 	}
 
 
+	/**
+	 * 여러 스레드에서 압축을 해제한다.
+	 *
+	 * @param zipFile 압축 파일
+	 * @param toDir   압축을 해제할 폴더
+	 * @throws IOException ..
+	 * @see #unzipParallel(Path, Path, String, int, OnProgressListener)
+	 */
+	public static void unzipParallel(@NotNull final Path zipFile, @NotNull final Path toDir) throws IOException {
+		unzipParallel(zipFile, toDir, null, Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	public static void unzipParallel(@NotNull final File zipFile, @NotNull final File toDir) throws IOException {
+		unzipParallel(zipFile.toPath(), toDir.toPath());
+	}
+
+	/**
+	 * 중앙 디렉토리를 읽어서, 항목들을 여러 스레드에서 동시에 압축 해제한다.
+	 * <p>
+	 * 디렉토리는 먼저 한 번에 만들고, 파일은 작업 스레드마다 재사용하는 버퍼로 쓴다.
+	 * 한 항목이 실패해도 나머지는 계속 푼다. 압축을 해제할 폴더 밖을 가리키는 항목은 풀지 않는다.
+	 *
+	 * @param zipFile     압축 파일
+	 * @param toDir       압축을 해제할 폴더
+	 * @param glob        풀 항목 이름의 패턴. '*'와 '?'만 와일드카드이고 나머지는 글자 그대로 맞춘다. '*'는 '/'도 포함한다. null 이면 모두
+	 * @param parallelism 압축을 해제할 스레드 수
+	 * @param listener    진행 상황. 작업 스레드들에서 동시에 호출된다.
+	 * @throws IOException 풀지 못한 항목이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 */
+	public static void unzipParallel(@NotNull final Path zipFile, @NotNull final Path toDir, @Nullable final String glob,
+	                                 final int parallelism, @Nullable final OnProgressListener listener) throws IOException {
+		final long started = System.nanoTime();
+		final Pattern pattern = null == glob ? null : RegExz.compileLiteralGlob(glob);
+		final Path root = toDir.toAbsolutePath().normalize();
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			final List<ZipEntry> entries = new ArrayList<>();
+			final Set<Path> dirs = new TreeSet<>();
+			final Map<Path, Long> dirTimes = new HashMap<>();
+			final Enumeration<? extends ZipEntry> enumeration = zip.entries();
+			while (enumeration.hasMoreElements()) {
+				final ZipEntry entry = enumeration.nextElement();
+				if (null != pattern && !pattern.matcher(entry.getName()).matches()) continue;
+				final Path target = root.resolve(entry.getName()).normalize();
+				if (!target.startsWith(root) || target.equals(root)) {
+					failures.add(new ZipException("Entry is outside of the target directory: " + entry.getName()));
+				} else if (entry.isDirectory()) {
+					dirs.add(target);
+					if (entry.getTime() != -1) dirTimes.put(target, entry.getTime());
+				} else {
+					dirs.add(target.getParent());
+					entries.add(entry);
+				}
+			}
+			for (Path dir : dirs) {
+				try {
+					Files.createDirectories(dir);
+				} catch (IOException x) {
+					failures.add(x);
+				}
+			}
+
+			final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[STREAM_BUFFER_SIZE]);
+			final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+				final Thread thread = new Thread(runnable, "Compressez-unzip");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				for (ZipEntry entry : entries) {
+					executor.execute(() -> {
+						try {
+							final long n = extract(zip, entry, root.resolve(entry.getName()).normalize(), buffers.get());
+							final long count = files.incrementAndGet();
+							final long total = bytes.addAndGet(n);
+							if (null != listener) listener.onProgress(count, total, System.nanoTime() - started);
+						} catch (IOException | RuntimeException x) {
+							// 작업 스레드에서 던지면 아무도 받지 못한다.
+							failures.add(new IOException("Failed to extract: " + entry.getName(), x));
+						}
+					});
+				}
+				executor.shutdown();
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// 남은 항목을 푸는 중
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} finally {
+				executor.shutdownNow();
+			}
+
+			for (Map.Entry<Path, Long> dir : dirTimes.entrySet()) {
+				try {
+					Files.setLastModifiedTime(dir.getKey(), FileTime.fromMillis(dir.getValue()));
+				} catch (IOException x) {
+					failures.add(x);
+				}
+			}
+		}
+		throwFailures(failures);
+	}
+
+	/**
+	 * @return 쓴 바이트 수
+	 */
+	private static long extract(@NotNull final ZipFile zip, @NotNull final ZipEntry entry,
+	                            @NotNull final Path target, @NotNull final byte[] buffer) throws IOException {
+		long total = 0;
+		try (InputStream in = zip.getInputStream(entry);
+		     OutputStream out = Files.newOutputStream(target)) {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+				total += n;
+			}
+		}
+		if (entry.getTime() != -1) {
+			Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+		}
+		return total;
+	}
+
+	/**
+	 * 첫 실패를 던진다. 나머지는 suppressed 에 담긴다.
+	 */
+	private static void throwFailures(@NotNull final Queue<IOException> failures) throws IOException {
+		final IOException failure = failures.poll();
+		if (null != failure) {
+			IOException e;
+			while (null != (e = failures.poll())) {
+				failure.addSuppressed(e);
+			}
+			throw failure;
+		}
+	}
+
 	/**
 	 * gzip
 	 *
@@ -159,6 +458,348 @@ public final class Compressez {
 	}
 
 
+	/**
+	 * 파일을 여러 스레드에서 gzip 으로 압축한다.
+	 *
+	 * @param inputFile 데이터
+	 * @param gzipFile  생성할 압축 파일
+	 * @return 블록 목록
+	 * @throws IOException ..
+	 * @see #gzipParallel(InputStream, Path, int, int, OnProgressListener)
+	 */
+	@NotNull
+	public static GzipIndex gzipParallel(@NotNull final Path inputFile, @NotNull final Path gzipFile) throws IOException {
+		return gzipParallel(Files.newInputStream(inputFile), gzipFile, Deflater.DEFAULT_COMPRESSION,
+				Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	@NotNull
+	public static GzipIndex gzipParallel(@NotNull final File inputFile, @NotNull final File gzipFile) throws IOException {
+		return gzipParallel(inputFile.toPath(), gzipFile.toPath());
+	}
+
+	/**
+	 * 데이터를 1MB 블록으로 나누어 여러 스레드에서 압축하고, 블록마다 하나의 gzip 멤버로 순서대로 쓴다(pigz 와 같은 방식).
+	 * <p>
+	 * 여러 멤버 gzip 은 표준 형식이므로 gunzip 이나 {@link GZIPInputStream}으로 풀 수 있다.
+	 * 블록 목록은 {@link GzipIndex#pathOf(Path)}에 함께 저장해서, {@link #ungzipParallel(Path, Path, int, OnProgressListener)}가
+	 * 블록들을 동시에 풀거나 {@link #readGzipBlock(Path, GzipIndex, int)}로 원하는 블록만 풀 수 있게 한다.
+	 * 블록끼리 사전을 공유하지 않으므로, 한 스트림으로 압축할 때보다 조금 커진다.
+	 *
+	 * @param inputStream 데이터. 다 읽고 닫는다.
+	 * @param gzipFile    생성할 압축 파일. 있으면 덮어쓴다.
+	 * @param level       압축 수준
+	 * @param parallelism 압축할 스레드 수
+	 * @param listener    진행 상황. 블록을 쓸 때마다 호출한 스레드에서 호출된다.
+	 * @return 블록 목록
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static GzipIndex gzipParallel(@NotNull final InputStream inputStream, @NotNull final Path gzipFile,
+	                                     final int level, final int parallelism,
+	                                     @Nullable final OnProgressListener listener) throws IOException {
+		final long started = System.nanoTime();
+		final GzipIndex index = new GzipIndex(GZIP_BLOCK_SIZE);
+		final ArrayDeque<Future<ByteBuffer>> members = new ArrayDeque<>();
+		final ArrayDeque<Integer> lengths = new ArrayDeque<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			final Thread thread = new Thread(runnable, "Compressez-gzip");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (InputStream in = inputStream;
+		     FileChannel out = FileChannel.open(gzipFile, StandardOpenOption.WRITE,
+				     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long bytes = 0;
+			int length;
+			do {
+				final byte[] block = new byte[GZIP_BLOCK_SIZE];
+				length = readFully(in, block);
+				// 빈 데이터도 멤버 하나로 쓴다.
+				if (length == 0 && index.getBlockCount() + members.size() > 0) break;
+				while (members.size() >= parallelism * 2) {
+					bytes += writeMember(out, index, members.poll(), lengths.poll());
+					if (null != listener) listener.onProgress(index.getBlockCount(), bytes, System.nanoTime() - started);
+				}
+				final int n = length;
+				members.add(executor.submit(() -> gzipMember(block, n, level)));
+				lengths.add(length);
+			} while (length == GZIP_BLOCK_SIZE);
+			while (!members.isEmpty()) {
+				bytes += writeMember(out, index, members.poll(), lengths.poll());
+				if (null != listener) listener.onProgress(index.getBlockCount(), bytes, System.nanoTime() - started);
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(gzipFile);
+			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+		index.save(GzipIndex.pathOf(gzipFile));
+		return index;
+	}
+
+	/**
+	 * @return 압축 전 길이
+	 */
+	private static int writeMember(@NotNull final FileChannel out, @NotNull final GzipIndex index,
+	                               @NotNull final Future<ByteBuffer> future, final int length) throws IOException {
+		final ByteBuffer member = await(future);
+		final int compressedLength = member.remaining();
+		while (member.hasRemaining()) {
+			out.write(member);
+		}
+		index.add(compressedLength, length);
+		return length;
+	}
+
+	/**
+	 * 블록 하나를 완전한 gzip 멤버로 압축한다.
+	 */
+	@NotNull
+	private static ByteBuffer gzipMember(@NotNull final byte[] data, final int length, final int level) {
+		final CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		final Deflater deflater = ZlibPool.deflater(level, Deflater.DEFAULT_STRATEGY, true);
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			byte[] out = new byte[GZIP_HEADER_SIZE + deflateBound(length) + GZIP_TRAILER_SIZE];
+			out[0] = (byte) 0x1f;
+			out[1] = (byte) 0x8b;
+			out[2] = Deflater.DEFLATED;
+			// FLG, MTIME 은 0
+			out[8] = (byte) (level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0);
+			out[9] = (byte) 0xff; // OS: unknown
+			int count = GZIP_HEADER_SIZE;
+			while (!deflater.finished()) {
+				if (count == out.length) out = Arrays.copyOf(out, out.length * 2);
+				count += deflater.deflate(out, count, out.length - count);
+			}
+			if (count + GZIP_TRAILER_SIZE > out.length) out = Arrays.copyOf(out, count + GZIP_TRAILER_SIZE);
+			final ByteBuffer buffer = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.position(count);
+			buffer.putInt((int) crc.getValue()).putInt(length);
+			buffer.flip();
+			return buffer;
+		} finally {
+			ZlibPool.release(deflater, level, Deflater.DEFAULT_STRATEGY, true);
+		}
+	}
+
+	/**
+	 * @see #ungzipParallel(Path, Path, int, OnProgressListener)
+	 */
+	public static void ungzipParallel(@NotNull final Path gzipFile, @NotNull final Path toFile) throws IOException {
+		ungzipParallel(gzipFile, toFile, Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	/**
+	 * gzip 파일의 압축을 해제한다.
+	 * <p>
+	 * 옆에 {@link GzipIndex} 파일이 있고 gzip 파일과 크기가 맞으면, 블록들을 여러 스레드에서 동시에 풀어서 제자리에 쓴다.
+	 * 없으면 한 스레드에서 차례로 푼다. 어느 쪽이든 여러 멤버로 된 파일을 모두 푼다.
+	 *
+	 * @param gzipFile    압축 파일
+	 * @param toFile      생성할 파일. 있으면 덮어쓴다.
+	 * @param parallelism 압축을 해제할 스레드 수
+	 * @param listener    진행 상황. 블록 목록이 있으면 작업 스레드들에서 동시에 호출된다.
+	 * @throws IOException 형식이 잘못되었거나, CRC 가 맞지 않으면
+	 */
+	public static void ungzipParallel(@NotNull final Path gzipFile, @NotNull final Path toFile, final int parallelism,
+	                                  @Nullable final OnProgressListener listener) throws IOException {
+		final long started = System.nanoTime();
+		GzipIndex index = null;
+		final Path indexFile = GzipIndex.pathOf(gzipFile);
+		if (Files.exists(indexFile)) {
+			try {
+				index = GzipIndex.load(indexFile);
+				if (index.getCompressedSize() != Files.size(gzipFile)) {
+					// 다른 gzip 파일의 목록
+					index = null;
+				}
+			} catch (IOException e) {
+				index = null;
+			}
+		}
+
+		try {
+			if (null == index) {
+				long bytes = 0;
+				try (InputStream in = new GZIPInputStream(Files.newInputStream(gzipFile), STREAM_BUFFER_SIZE);
+				     OutputStream out = Files.newOutputStream(toFile)) {
+					final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+					int n;
+					while ((n = in.read(buffer)) > 0) {
+						out.write(buffer, 0, n);
+						bytes += n;
+					}
+				}
+				if (null != listener) listener.onProgress(1, bytes, System.nanoTime() - started);
+				return;
+			}
+
+			final GzipIndex blocks = index;
+			final AtomicLong done = new AtomicLong();
+			final AtomicLong bytes = new AtomicLong();
+			final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+				final Thread thread = new Thread(runnable, "Compressez-gunzip");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try (FileChannel in = FileChannel.open(gzipFile, StandardOpenOption.READ);
+			     FileChannel out = FileChannel.open(toFile, StandardOpenOption.WRITE,
+					     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < blocks.getBlockCount(); i++) {
+					final int block = i;
+					futures.add(executor.submit(() -> {
+						final ByteBuffer data = ByteBuffer.wrap(readGzipBlock(in, blocks, block));
+						long position = blocks.getUncompressedOffset(block);
+						while (data.hasRemaining()) {
+							position += out.write(data, position);
+						}
+						final long count = done.incrementAndGet();
+						final long total = bytes.addAndGet(data.capacity());
+						if (null != listener) listener.onProgress(count, total, System.nanoTime() - started);
+						return null;
+					}));
+				}
+				for (Future<?> future : futures) {
+					await(future);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(toFile);
+			throw e;
+		}
+	}
+
+	/**
+	 * 블록 하나만 푼다. {@link GzipIndex#blockAt(long)}로 원하는 위치의 블록을 찾을 수 있다.
+	 *
+	 * @param gzipFile 압축 파일
+	 * @param index    블록 목록
+	 * @param block    블록의 번호
+	 * @return 블록의 압축 해제된 데이터
+	 * @throws IOException 형식이 잘못되었거나, CRC 가 맞지 않으면
+	 */
+	@NotNull
+	public static byte[] readGzipBlock(@NotNull final Path gzipFile, @NotNull final GzipIndex index,
+	                                   final int block) throws IOException {
+		try (FileChannel in = FileChannel.open(gzipFile, StandardOpenOption.READ)) {
+			return readGzipBlock(in, index, block);
+		}
+	}
+
+	@NotNull
+	private static byte[] readGzipBlock(@NotNull final FileChannel in, @NotNull final GzipIndex index,
+	                                    final int block) throws IOException {
+		final int length = index.getCompressedLength(block);
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		final long position = index.getCompressedOffset(block);
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Truncated gzip block: " + block);
+			}
+		}
+		return gunzipMember(buffer.array(), index.getUncompressedLength(block));
+	}
+
+	/**
+	 * gzip 멤버 하나를 푼다.
+	 *
+	 * @param member   멤버 전체
+	 * @param expected 압축 전 길이
+	 */
+	@NotNull
+	private static byte[] gunzipMember(@NotNull final byte[] member, final int expected) throws IOException {
+		if (member.length < GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE
+				|| member[0] != (byte) 0x1f || member[1] != (byte) 0x8b || member[2] != Deflater.DEFLATED) {
+			throw new ZipException("Not in GZIP format");
+		}
+		final int flags = member[3];
+		int position = GZIP_HEADER_SIZE;
+		if ((flags & 4) != 0) {
+			// FEXTRA
+			position += 2 + ((member[position] & 0xff) | (member[position + 1] & 0xff) << 8);
+		}
+		if ((flags & 8) != 0) {
+			// FNAME
+			while (member[position++] != 0) ;
+		}
+		if ((flags & 16) != 0) {
+			// FCOMMENT
+			while (member[position++] != 0) ;
+		}
+		if ((flags & 2) != 0) {
+			// FHCRC
+			position += 2;
+		}
+
+		// 끝까지 풀었는 지 알 수 있도록 한 바이트를 더 둔다.
+		final byte[] out = new byte[expected + 1];
+		int count = 0;
+		final Inflater inflater = ZlibPool.inflater(true);
+		try {
+			inflater.setInput(member, position, member.length - GZIP_TRAILER_SIZE - position);
+			while (!inflater.finished() && count < out.length) {
+				final int n = inflater.inflate(out, count, out.length - count);
+				if (n == 0 && inflater.needsInput()) break;
+				count += n;
+			}
+			if (!inflater.finished()) {
+				throw new ZipException("Corrupt GZIP block");
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			ZlibPool.release(inflater, true);
+		}
+
+		final ByteBuffer trailer = ByteBuffer.wrap(member, member.length - GZIP_TRAILER_SIZE, GZIP_TRAILER_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		final CRC32 crc = new CRC32();
+		crc.update(out, 0, count);
+		if (count != expected || trailer.getInt() != (int) crc.getValue() || trailer.getInt() != count) {
+			throw new ZipException("Corrupt GZIP trailer");
+		}
+		return Arrays.copyOf(out, count);
+	}
+
+	/**
+	 * 배열이 찰 때까지 읽는다.
+	 *
+	 * @return 읽은 길이. 끝에 다다르면 배열보다 짧다.
+	 */
+	private static int readFully(@NotNull final InputStream in, @NotNull final byte[] buffer) throws IOException {
+		int count = 0;
+		int n;
+		while (count < buffer.length && (n = in.read(buffer, count, buffer.length - count)) >= 0) {
+			count += n;
+		}
+		return count;
+	}
+
+	/**
+	 * 작업 스레드의 결과를 기다린다. 작업에서 난 예외를 그대로 던진다.
+	 */
+	static <T> T await(@NotNull final Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
 	/**
 	 * PHP에서 압축을 해제할 때에는
 	 * gzcompress()를 사용하시오.
@@ -170,27 +811,123 @@ public final class Compressez {
 	 */
 	@NotNull
 	public static byte[] deflate(@NotNull final byte[] data) throws IOException {
-		Deflater compressor = new Deflater();
-		compressor.setInput(data);
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+		return deflate(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+	}
 
-		compressor.finish();
+	/**
+	 * 재사용하는 deflater 로 압축한다. 결과가 64KB 이하이면 결과 배열 하나만 할당한다.
+	 *
+	 * @param data     바이트 배열
+	 * @param level    압축 수준. {@link Deflater#BEST_SPEED} ~ {@link Deflater#BEST_COMPRESSION}
+	 * @param strategy {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} 또는 {@link Deflater#HUFFMAN_ONLY}
+	 * @return 압축된 바이트 배열
+	 */
+	@NotNull
+	public static byte[] deflate(@NotNull final byte[] data, final int level, final int strategy) {
+		final Deflater deflater = ZlibPool.deflater(level, strategy, false);
 		try {
-			byte[] buffer = new byte[1024];
-			while (!compressor.finished()) {
-				int count = compressor.deflate(buffer); // returns the generated code... index
-				outputStream.write(buffer, 0, count);
-			}
+			return deflate(deflater, data, 0);
+		} finally {
+			ZlibPool.release(deflater, level, strategy, false);
+		}
+	}
 
-			outputStream.close();
-		} catch (IOException e) {
-			throw e;
+	/**
+	 * @see #deflate(byte[], DeflateDictionary, int)
+	 */
+	@NotNull
+	public static byte[] deflate(@NotNull final byte[] data, @NotNull final DeflateDictionary dictionary) {
+		return deflate(data, dictionary, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * 사전을 미리 넣고 압축한다. 작고 비슷한 데이터가 빈 창으로 시작할 때보다 훨씬 작아진다.
+	 * <p>
+	 * 결과는 사전의 ID(4 바이트, 빅 엔디언) 뒤에 raw deflate 가 이어진다.
+	 * zlib 헤더와 체크섬을 쓰지 않으므로 {@link #inflate(byte[])}로는 풀 수 없다.
+	 *
+	 * @param data       바이트 배열
+	 * @param dictionary 사전
+	 * @param level      압축 수준
+	 * @return 압축된 바이트 배열
+	 * @see #inflate(byte[], DeflateDictionary)
+	 */
+	@NotNull
+	public static byte[] deflate(@NotNull final byte[] data, @NotNull final DeflateDictionary dictionary, final int level) {
+		final Deflater deflater = ZlibPool.deflater(level, Deflater.DEFAULT_STRATEGY, true);
+		try {
+			deflater.setDictionary(dictionary.bytes());
+			final byte[] out = deflate(deflater, data, DICTIONARY_HEADER_SIZE);
+			final int id = dictionary.getId();
+			out[0] = (byte) (id >>> 24);
+			out[1] = (byte) (id >>> 16);
+			out[2] = (byte) (id >>> 8);
+			out[3] = (byte) id;
+			return out;
+		} finally {
+			ZlibPool.release(deflater, level, Deflater.DEFAULT_STRATEGY, true);
 		}
-		byte[] output = outputStream.toByteArray();
+	}
 
-		compressor.end();
+	/**
+	 * 사전으로 압축한 데이터를 푼다.
+	 *
+	 * @param data       {@link #deflate(byte[], DeflateDictionary, int)}로 압축한 데이터
+	 * @param dictionary 압축할 때 쓴 사전
+	 * @return 압축 해제된 데이터
+	 * @throws DataFormatException 사전의 ID 가 다르거나, 데이터가 잘못되었으면
+	 */
+	@NotNull
+	public static byte[] inflate(@NotNull final byte[] data, @NotNull final DeflateDictionary dictionary)
+			throws DataFormatException {
+		if (dictionaryId(data) != dictionary.getId()) {
+			throw new DataFormatException("Dictionary mismatch");
+		}
+		final Inflater inflater = ZlibPool.inflater(true);
+		try {
+			inflater.setDictionary(dictionary.bytes());
+			return inflate(inflater, data, DICTIONARY_HEADER_SIZE);
+		} finally {
+			ZlibPool.release(inflater, true);
+		}
+	}
+
+	/**
+	 * 여러 사전을 쓸 때, 압축된 데이터에 맞는 사전을 고르는 데 사용한다.
+	 *
+	 * @param data {@link #deflate(byte[], DeflateDictionary, int)}로 압축한 데이터
+	 * @return 압축할 때 쓴 사전의 ID
+	 * @throws DataFormatException 헤더가 없으면
+	 * @see DeflateDictionary#getId()
+	 */
+	public static int dictionaryId(@NotNull final byte[] data) throws DataFormatException {
+		if (data.length < DICTIONARY_HEADER_SIZE) {
+			throw new DataFormatException("Missing dictionary header");
+		}
+		return (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF);
+	}
 
-		return output;
+	/**
+	 * 입력을 모두 압축한다. 결과가 64KB 이하이면 결과 배열 하나만 할당한다.
+	 *
+	 * @param offset 결과의 앞에 비워 둘 길이
+	 */
+	@NotNull
+	private static byte[] deflate(@NotNull final Deflater deflater, @NotNull final byte[] data, final int offset) {
+		deflater.setInput(data);
+		deflater.finish();
+		final byte[] scratch = ZlibPool.scratch();
+		int count = offset + deflater.deflate(scratch, offset, scratch.length - offset);
+		if (deflater.finished()) {
+			return Arrays.copyOf(scratch, count);
+		}
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(count * 2);
+		outputStream.write(scratch, 0, count);
+		while (!deflater.finished()) {
+			count = deflater.deflate(scratch);
+			outputStream.write(scratch, 0, count);
+		}
+		return outputStream.toByteArray();
 	}
 
 	@NotNull
@@ -204,29 +941,229 @@ public final class Compressez {
 	 *
 	 * @param data 압축된 데이터
 	 * @return 압축 해제된 데이터
+	 * @throws DataFormatException 데이터가 잘못되었거나 잘렸으면
 	 */
 	@NotNull
 	public static byte[] inflate(@NotNull final byte[] data) throws DataFormatException, IOException {
-		Inflater inflater = new Inflater();
-		inflater.setInput(data);
+		final Inflater inflater = ZlibPool.inflater(false);
+		try {
+			return inflate(inflater, data, 0);
+		} finally {
+			ZlibPool.release(inflater, false);
+		}
+	}
+
+	/**
+	 * 스트림 하나를 푼다.
+	 *
+	 * @param offset 데이터에서 압축된 스트림의 시작 위치
+	 */
+	@NotNull
+	private static byte[] inflate(@NotNull final Inflater inflater, @NotNull final byte[] data, final int offset)
+			throws DataFormatException {
+		inflater.setInput(data, offset, data.length - offset);
+		final byte[] scratch = ZlibPool.scratch();
+		ByteArrayOutputStream outputStream = null;
+		int count = 0;
+		while (!inflater.finished()) {
+			if (count == scratch.length) {
+				if (null == outputStream) outputStream = new ByteArrayOutputStream(scratch.length * 2);
+				outputStream.write(scratch, 0, count);
+				count = 0;
+			}
+			final int n = inflater.inflate(scratch, count, scratch.length - count);
+			if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+				throw new DataFormatException(inflater.needsInput() ? "Truncated input" : "Dictionary required");
+			}
+			count += n;
+		}
+		if (null == outputStream) {
+			return Arrays.copyOf(scratch, count);
+		}
+		outputStream.write(scratch, 0, count);
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * 압축한 결과의 최대 크기. zlib 의 compressBound()와 같다.
+	 *
+	 * @param length 압축할 데이터의 길이
+	 * @return {@link #deflate(ByteBuffer, ByteBuffer)}의 dst 에 필요한 공간
+	 */
+	public static int deflateBound(final int length) {
+		return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+	}
+
+	/**
+	 * @see #deflate(ByteBuffer, ByteBuffer, int, int)
+	 */
+	public static int deflate(@NotNull final ByteBuffer src, @NotNull final ByteBuffer dst) {
+		return deflate(src, dst, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+	}
 
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+	/**
+	 * src 의 남은 데이터를 모두 압축해서 dst 에 쓴다. 힙 버퍼는 복사하지 않고, 다이렉트 버퍼는 스레드마다 재사용하는 버퍼를 거친다.
+	 * 어느 쪽이든 새로 할당하지 않는다.
+	 *
+	 * @param src      압축할 데이터. 모두 읽는다.
+	 * @param dst      압축된 데이터를 쓸 곳
+	 * @param level    압축 수준
+	 * @param strategy 압축 전략
+	 * @return dst 에 쓴 바이트 수
+	 * @throws BufferOverflowException dst 의 공간이 부족하면. 두 버퍼의 위치는 바뀌지 않는다.
+	 * @see #deflateBound(int)
+	 */
+	public static int deflate(@NotNull final ByteBuffer src, @NotNull final ByteBuffer dst,
+	                          final int level, final int strategy) {
+		final int srcPosition = src.position();
+		final int dstPosition = dst.position();
+		final byte[] scratch = ZlibPool.scratch();
+		final int half = scratch.length / 2;
+		final Deflater deflater = ZlibPool.deflater(level, strategy, false);
 		try {
-			byte[] buffer = new byte[1024];
+			if (src.hasArray()) {
+				deflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+				src.position(src.limit());
+				deflater.finish();
+			}
+			while (!deflater.finished()) {
+				if (deflater.needsInput() && src.hasRemaining()) {
+					final int n = Math.min(half, src.remaining());
+					src.get(scratch, 0, n);
+					deflater.setInput(scratch, 0, n);
+				}
+				if (!src.hasRemaining()) deflater.finish();
+				if (!dst.hasRemaining()) {
+					src.position(srcPosition);
+					dst.position(dstPosition);
+					throw new BufferOverflowException();
+				}
+				if (dst.hasArray()) {
+					final int n = deflater.deflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+					dst.position(dst.position() + n);
+				} else {
+					final int n = deflater.deflate(scratch, half, Math.min(half, dst.remaining()));
+					dst.put(scratch, half, n);
+				}
+			}
+			return dst.position() - dstPosition;
+		} finally {
+			ZlibPool.release(deflater, level, strategy, false);
+		}
+	}
+
+	/**
+	 * src 에서 압축된 스트림 하나를 풀어서 dst 에 쓴다. src 는 스트림의 끝까지만 읽는다.
+	 *
+	 * @param src 압축된 데이터
+	 * @param dst 압축 해제된 데이터를 쓸 곳
+	 * @return dst 에 쓴 바이트 수
+	 * @throws DataFormatException     데이터가 잘못되었거나 잘렸으면
+	 * @throws BufferOverflowException dst 의 공간이 부족하면. 두 버퍼의 위치는 바뀌지 않는다.
+	 */
+	public static int inflate(@NotNull final ByteBuffer src, @NotNull final ByteBuffer dst) throws DataFormatException {
+		final int srcPosition = src.position();
+		final int dstPosition = dst.position();
+		final byte[] scratch = ZlibPool.scratch();
+		final int half = scratch.length / 2;
+		final Inflater inflater = ZlibPool.inflater(false);
+		try {
+			if (src.hasArray()) {
+				inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+				src.position(src.limit());
+			}
 			while (!inflater.finished()) {
-				int count = inflater.inflate(buffer);
-				outputStream.write(buffer, 0, count);
+				if (inflater.needsInput()) {
+					if (!src.hasRemaining()) {
+						src.position(srcPosition);
+						dst.position(dstPosition);
+						throw new DataFormatException("Truncated input");
+					}
+					final int n = Math.min(half, src.remaining());
+					src.get(scratch, 0, n);
+					inflater.setInput(scratch, 0, n);
+				}
+				if (inflater.needsDictionary()) {
+					src.position(srcPosition);
+					dst.position(dstPosition);
+					throw new DataFormatException("Dictionary required");
+				}
+				if (!dst.hasRemaining()) {
+					src.position(srcPosition);
+					dst.position(dstPosition);
+					throw new BufferOverflowException();
+				}
+				if (dst.hasArray()) {
+					final int n = inflater.inflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+					dst.position(dst.position() + n);
+				} else {
+					final int n = inflater.inflate(scratch, half, Math.min(half, dst.remaining()));
+					dst.put(scratch, half, n);
+				}
 			}
-			outputStream.close();
-		} catch (IOException | DataFormatException e) {
-			//L.e(TAG, e);
-			throw e;
+			// 스트림 뒤의 데이터는 읽지 않은 것으로 돌려놓는다.
+			src.position(src.position() - inflater.getRemaining());
+			return dst.position() - dstPosition;
+		} finally {
+			ZlibPool.release(inflater, false);
 		}
-		byte[] output = outputStream.toByteArray();
+	}
 
-		inflater.end();
+	/**
+	 * @see #deflatingStream(OutputStream, int, int)
+	 */
+	@NotNull
+	public static OutputStream deflatingStream(@NotNull final OutputStream outputStream) {
+		return deflatingStream(outputStream, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+	}
 
-		return output;
+	/**
+	 * 쓰는 데이터를 압축하는 스트림. {@link #inflate(byte[])}로 풀 수 있다.
+	 * flush()는 그때까지의 데이터를 모두 내보낸다(SYNC_FLUSH).
+	 * 재사용하는 deflater 를 쓰므로 반드시 닫으시오. 닫으면 outputStream 도 닫힌다.
+	 *
+	 * @param outputStream 압축된 데이터를 쓸 곳
+	 * @param level        압축 수준
+	 * @param strategy     압축 전략
+	 * @return 스트림
+	 */
+	@NotNull
+	public static OutputStream deflatingStream(@NotNull final OutputStream outputStream, final int level, final int strategy) {
+		return new ZlibPool.PooledDeflaterOutputStream(outputStream, level, strategy, STREAM_BUFFER_SIZE);
+	}
+
+	/**
+	 * 압축된 데이터를 풀어서 읽는 스트림. 재사용하는 inflater 를 쓰므로 반드시 닫으시오.
+	 *
+	 * @param inputStream 압축된 데이터
+	 * @return 스트림
+	 */
+	@NotNull
+	public static InputStream inflatingStream(@NotNull final InputStream inputStream) {
+		return new ZlibPool.PooledInflaterInputStream(inputStream, STREAM_BUFFER_SIZE);
+	}
+
+	/**
+	 * @see #deflatingChannel(WritableByteChannel, int, int)
+	 */
+	@NotNull
+	public static WritableByteChannel deflatingChannel(@NotNull final WritableByteChannel channel) {
+		return deflatingChannel(channel, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+	}
+
+	/**
+	 * 쓰는 데이터를 압축하는 채널. 힙 버퍼는 복사하지 않는다.
+	 * 재사용하는 deflater 를 쓰므로 반드시 닫으시오. 닫으면 channel 도 닫힌다.
+	 *
+	 * @param channel  압축된 데이터를 쓸 곳
+	 * @param level    압축 수준
+	 * @param strategy 압축 전략
+	 * @return 채널
+	 */
+	@NotNull
+	public static WritableByteChannel deflatingChannel(@NotNull final WritableByteChannel channel,
+	                                                   final int level, final int strategy) {
+		return new ZlibPool.DeflatingChannel(channel, level, strategy, STREAM_BUFFER_SIZE);
 	}
 
 	/**
@@ -243,6 +1180,7 @@ public final class Compressez {
 	 * @param entryName '/'로 시작하지 않는다.
 	 * @return 스트림
 	 * @throws IOException
+	 * @see ZipArchiveCache
 	 */
 	public static InputStream readJarEntry(@NotNull final JarFile jarFile, final String entryName) throws IOException {
 		JarEntry entry = jarFile.getJarEntry(entryName);
@@ -255,11 +1193,13 @@ public final class Compressez {
 
 	/**
 	 * 사용 후, 파일과 스트림을 꼭 닫아 주시오.
+	 * 같은 아카이브에서 자주 읽는다면 {@link ZipArchiveCache}를 사용하시오.
 	 *
 	 * @param zipFile
 	 * @param entryName '/'로 시작하지 않는다.
 	 * @return
 	 * @throws IOException
+	 * @see ZipArchiveCache
 	 */
 	public static InputStream readZipEntry(@NotNull final ZipFile zipFile, final String entryName) throws IOException {
 		ZipEntry entry = zipFile.getEntry(entryName);
@@ -269,4 +1209,17 @@ public final class Compressez {
 	public static Enumeration<? extends ZipEntry> zipEntries(@NotNull final ZipFile zipFile) {
 		return zipFile.entries();
 	}
+
+	/**
+	 * 압축의 진행 상황
+	 */
+	@FunctionalInterface
+	public interface OnProgressListener {
+		/**
+		 * @param entries      지금까지 처리한 항목 수
+		 * @param bytes        지금까지 처리한 압축 전 바이트 수
+		 * @param elapsedNanos 시작한 뒤로 지난 시간. bytes 와 함께 처리량을 구할 수 있다.
+		 */
+		public void onProgress(final long entries, final long bytes, final long elapsedNanos);
+	}
 }
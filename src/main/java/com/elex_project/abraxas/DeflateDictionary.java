@@ -0,0 +1,213 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * deflate 의 사전. 작고 비슷한 데이터를 압축할 때, 빈 창으로 시작하지 않도록 미리 넣어 둔다.
+ * <p>
+ * {@link #train(Collection, int)}는 샘플들에 자주 나오는 구간을 모아서 사전을 만든다.
+ * deflate 는 가까운 것을 더 짧게 가리키므로, 가장 쓸모 있는 구간을 사전의 끝에 둔다.
+ * 사전의 ID 는 내용의 Adler-32 이고, zlib 헤더의 DICTID 와 같다.
+ *
+ * <pre><code>
+ * DeflateDictionary dictionary = DeflateDictionary.train(samples, 16 * 1024);
+ * byte[] compressed = Compressez.deflate(record, dictionary);
+ * byte[] record = Compressez.inflate(compressed, dictionary);
+ * </code></pre>
+ *
+ * @author Elex
+ * @see Compressez#deflate(byte[], DeflateDictionary, int)
+ */
+public final class DeflateDictionary {
+	/**
+	 * deflate 의 창 크기. 이보다 큰 사전은 앞부분이 쓰이지 않는다.
+	 */
+	public static final int MAX_SIZE = 32 * 1024;
+	/**
+	 * 자주 나오는 지 세는 조각의 길이
+	 */
+	private static final int GRAM = 8;
+
+	private final byte[] bytes;
+	private final int id;
+
+	/**
+	 * 저장해 둔 사전을 불러온다.
+	 *
+	 * @param dictionary 사전의 내용. 복사한다.
+	 * @throws IllegalArgumentException {@link #MAX_SIZE}보다 크면
+	 */
+	public DeflateDictionary(@NotNull final byte[] dictionary) {
+		if (dictionary.length > MAX_SIZE) {
+			throw new IllegalArgumentException("Dictionary too large: " + dictionary.length);
+		}
+		this.bytes = dictionary.clone();
+		this.id = (int) Bytez.adler32(bytes);
+	}
+
+	/**
+	 * @see #train(Collection, int)
+	 */
+	@NotNull
+	public static DeflateDictionary train(@NotNull final Collection<byte[]> samples) {
+		return train(samples, MAX_SIZE);
+	}
+
+	/**
+	 * 샘플들로 사전을 만든다.
+	 * <p>
+	 * 샘플의 1/16 이상(최소 2개)에 나오는 8 바이트 조각들이 이어진 구간을 찾고,
+	 * 나오는 샘플 수와 길이를 곱한 점수가 높은 것부터 maxSize 까지 담는다. 이미 담은 구간에 포함된 것은 건너뛴다.
+	 *
+	 * @param samples 실제 데이터와 비슷한 샘플들. 수백 개 이상이 좋다.
+	 * @param maxSize 사전의 최대 크기
+	 * @return 사전. 공통된 구간이 없으면 비어 있다.
+	 */
+	@NotNull
+	public static DeflateDictionary train(@NotNull final Collection<byte[]> samples, final int maxSize) {
+		if (maxSize <= 0 || maxSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Invalid size: " + maxSize);
+		}
+		// 조각마다 나오는 샘플의 수
+		final Map<Long, Integer> grams = new HashMap<>();
+		final Set<Long> seenGrams = new HashSet<>();
+		for (byte[] sample : samples) {
+			seenGrams.clear();
+			for (int i = 0; i + GRAM <= sample.length; i++) {
+				final long gram = gram(sample, i);
+				if (seenGrams.add(gram)) grams.merge(gram, 1, Integer::sum);
+			}
+		}
+
+		// 자주 나오는 조각이 이어진 구간마다 나오는 샘플의 수. 바이트를 그대로 ISO-8859-1 문자열로 다룬다.
+		final int minCount = Math.max(2, samples.size() / 16);
+		final Map<String, Integer> segments = new HashMap<>();
+		final Set<String> seenSegments = new HashSet<>();
+		for (byte[] sample : samples) {
+			seenSegments.clear();
+			int start = -1;
+			for (int i = 0; i + GRAM <= sample.length; i++) {
+				final boolean frequent = grams.get(gram(sample, i)) >= minCount;
+				if (frequent && start < 0) {
+					start = i;
+				} else if (!frequent && start >= 0) {
+					seenSegments.add(new String(sample, start, i - 1 + GRAM - start, StandardCharsets.ISO_8859_1));
+					start = -1;
+				}
+			}
+			if (start >= 0) {
+				seenSegments.add(new String(sample, start, sample.length - start, StandardCharsets.ISO_8859_1));
+			}
+			for (String segment : seenSegments) {
+				segments.merge(segment, 1, Integer::sum);
+			}
+		}
+
+		final List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+		for (Map.Entry<String, Integer> segment : segments.entrySet()) {
+			if (segment.getValue() >= 2) candidates.add(segment);
+		}
+		candidates.sort((a, b) -> {
+			final int c = Long.compare((long) b.getValue() * b.getKey().length(), (long) a.getValue() * a.getKey().length());
+			return 0 != c ? c : a.getKey().compareTo(b.getKey());
+		});
+
+		// 점수가 높은 것부터 담고, 사전에는 거꾸로 쓴다.
+		final List<String> chosen = new ArrayList<>();
+		final StringBuilder all = new StringBuilder();
+		int size = 0;
+		for (Map.Entry<String, Integer> candidate : candidates) {
+			if (size > maxSize - GRAM) break;
+			final String segment = candidate.getKey();
+			if (size + segment.length() > maxSize) continue;
+			if (all.indexOf(segment) >= 0) continue;
+			chosen.add(segment);
+			all.append(segment);
+			size += segment.length();
+		}
+		final StringBuilder dictionary = new StringBuilder(size);
+		for (int i = chosen.size() - 1; i >= 0; i--) {
+			dictionary.append(chosen.get(i));
+		}
+		return new DeflateDictionary(dictionary.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static long gram(@NotNull final byte[] bytes, final int offset) {
+		long value = 0;
+		for (int i = 0; i < GRAM; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * 사전의 ID. 압축된 데이터의 헤더에 기록된다.
+	 *
+	 * @return 내용의 Adler-32
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public int size() {
+		return bytes.length;
+	}
+
+	/**
+	 * 저장할 수 있도록 사전의 내용을 복사한다.
+	 *
+	 * @return 사전의 내용
+	 */
+	@NotNull
+	public byte[] toByteArray() {
+		return bytes.clone();
+	}
+
+	/**
+	 * 복사하지 않은 내용
+	 */
+	@NotNull
+	byte[] bytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "DeflateDictionary(id=" + Integer.toHexString(id) + ", size=" + bytes.length + ")";
+	}
+}
@@ -0,0 +1,528 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+/**
+ * 디렉토리 트리의 스냅샷. 경로마다 크기, 수정 시각, 그리고 선택적으로 내용의 해시를 기록한다.
+ * <p>
+ * 두 스냅샷을 비교하면 그 사이에 생성, 수정, 삭제된 경로를 알 수 있다.
+ * {@link FileWatcher}는 이벤트가 넘쳤을 때나 다시 시작할 때 이것으로 놓친 변경을 찾는다.
+ * 해시를 기록하면 내용은 그대로이고 수정 시각만 바뀐 파일은 수정으로 보지 않는다.
+ *
+ * @author Elex
+ * @see FileWatcher#useSnapshot(Path, boolean)
+ */
+public final class FileSnapshot {
+	/**
+	 * "FSNP"
+	 */
+	private static final int MAGIC = 0x46534E50;
+	private static final byte VERSION = 1;
+	private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+	private final ConcurrentNavigableMap<Path, Entry> entries;
+	private final boolean hashed;
+	/**
+	 * 찍을 때 읽지 못한 것들
+	 */
+	private List<IOException> errors = Collections.emptyList();
+
+	private FileSnapshot(@NotNull final ConcurrentNavigableMap<Path, Entry> entries, final boolean hashed) {
+		this.entries = entries;
+		this.hashed = hashed;
+	}
+
+	/**
+	 * @param hashContents 내용의 해시를 기록할 지
+	 * @return 빈 스냅샷
+	 */
+	@NotNull
+	public static FileSnapshot empty(final boolean hashContents) {
+		return new FileSnapshot(new ConcurrentSkipListMap<>(), hashContents);
+	}
+
+	/**
+	 * 디렉토리의 스냅샷을 찍는다. 디렉토리 자신은 포함하지 않는다.
+	 *
+	 * @param root         디렉토리
+	 * @param recursive    하위 디렉토리의 내용도 포함할 지
+	 * @param hashContents 내용의 해시를 기록할 지
+	 * @return 스냅샷
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static FileSnapshot scan(@NotNull final Path root, final boolean recursive,
+	                                final boolean hashContents) throws IOException {
+		return scan(Collections.singletonMap(root, recursive), hashContents, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 여러 디렉토리의 스냅샷을 fork-join 풀에서 하위 디렉토리별로 나누어 찍는다.
+	 * 찍는 도중에 사라진 파일은 무시한다.
+	 * <p>
+	 * 읽지 못한 파일이나 디렉토리가 있어도 멈추지 않는다. 그 경로(디렉토리면 그 아래까지)는 previous 의 기록을 그대로 두어
+	 * 지워진 것으로 보이지 않게 하고, 실패는 {@link #getErrors()}에 담는다.
+	 *
+	 * @param roots        디렉토리와, 하위 디렉토리의 내용도 포함할 지
+	 * @param hashContents 내용의 해시를 기록할 지
+	 * @param previous     크기와 수정 시각이 같은 파일은 이 스냅샷의 해시를 다시 쓴다.
+	 * @param pool         작업을 실행할 풀
+	 * @return 스냅샷. 경로는 절대 경로이다.
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static FileSnapshot scan(@NotNull final Map<Path, Boolean> roots, final boolean hashContents,
+	                                @Nullable final FileSnapshot previous,
+	                                @NotNull final ForkJoinPool pool) throws IOException {
+		final FileSnapshot snapshot = empty(hashContents);
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		final List<ScanTask> tasks = new ArrayList<>();
+		for (Map.Entry<Path, Boolean> root : roots.entrySet()) {
+			tasks.add(new ScanTask(snapshot, previous, root.getKey().toAbsolutePath(), root.getValue(), failures));
+		}
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		if (!failures.isEmpty()) {
+			snapshot.errors = Collections.unmodifiableList(new ArrayList<>(failures));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 내용의 해시를 기록하는 지
+	 */
+	public boolean isHashed() {
+		return hashed;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * {@link #scan(Map, boolean, FileSnapshot, ForkJoinPool)}에서 읽지 못한 것들.
+	 * 그 경로들은 이전 스냅샷의 기록이 남아 있다.
+	 *
+	 * @return 실패가 없었으면 빈 리스트
+	 */
+	@NotNull
+	public List<IOException> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @param path 절대 경로
+	 * @return 기록이 없으면 null
+	 */
+	@Nullable
+	public Entry get(@NotNull final Path path) {
+		return entries.get(path);
+	}
+
+	/**
+	 * @return 경로 순으로 정렬된 읽기 전용 맵
+	 */
+	@NotNull
+	public SortedMap<Path, Entry> entries() {
+		return Collections.unmodifiableSortedMap(entries);
+	}
+
+	/**
+	 * 경로 하나의 기록을 지금 상태로 고친다. 없어진 경로는 그 아래의 기록까지 지운다.
+	 *
+	 * @param path 절대 경로
+	 * @throws IOException ..
+	 */
+	void update(@NotNull final Path path) throws IOException {
+		final BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			remove(path);
+			return;
+		}
+		entries.put(path, entry(path, attrs, hashed, entries.get(path)));
+	}
+
+	/**
+	 * 경로와 그 아래의 기록을 지운다.
+	 */
+	void remove(@NotNull final Path path) {
+		entries.remove(path);
+		// 같은 문자열로 시작하는 경로들은 정렬했을 때 연속해 있다.
+		final String prefix = path.toString();
+		final Iterator<Path> it = entries.tailMap(path, false).keySet().iterator();
+		while (it.hasNext()) {
+			final Path p = it.next();
+			if (!p.toString().startsWith(prefix)) {
+				break;
+			}
+			if (p.startsWith(path)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * 이 스냅샷 이후에 바뀐 것
+	 *
+	 * @param newer 나중에 찍은 스냅샷
+	 * @return 생성, 수정, 삭제된 경로들
+	 */
+	@NotNull
+	public Diff diff(@NotNull final FileSnapshot newer) {
+		final List<Path> created = new ArrayList<>();
+		final List<Path> modified = new ArrayList<>();
+		final List<Path> deleted = new ArrayList<>();
+		for (Map.Entry<Path, Entry> e : entries.entrySet()) {
+			final Entry now = newer.entries.get(e.getKey());
+			if (null == now) {
+				deleted.add(e.getKey());
+			} else if (e.getValue().isModified(now)) {
+				modified.add(e.getKey());
+			}
+		}
+		for (Path path : newer.entries.keySet()) {
+			if (!entries.containsKey(path)) {
+				created.add(path);
+			}
+		}
+		return new Diff(created, modified, deleted);
+	}
+
+	/**
+	 * 파일에 기록한다. 경로는 앞의 경로와 겹치는 부분을 빼고 기록한다.
+	 * 임시 파일에 쓴 뒤 바꿔치기하므로, 도중에 실패해도 이전 기록은 남는다.
+	 *
+	 * @param file 저장할 파일
+	 * @throws IOException ..
+	 */
+	public void save(@NotNull final Path file) throws IOException {
+		final ByteArrayBuilder out = new ByteArrayBuilder();
+		out.putInt(MAGIC).append(VERSION).append((byte) (hashed ? 1 : 0));
+		final Map<Path, Entry> copy = new TreeMap<>(entries);
+		out.putVarInt(copy.size());
+		String prev = "";
+		for (Map.Entry<Path, Entry> e : copy.entrySet()) {
+			final String path = e.getKey().toString();
+			int common = 0;
+			final int max = Math.min(prev.length(), path.length());
+			while (common < max && prev.charAt(common) == path.charAt(common)) {
+				common++;
+			}
+			// 서로게이트 쌍을 가르지 않는다.
+			if (common > 0 && Character.isHighSurrogate(path.charAt(common - 1))) {
+				common--;
+			}
+			out.putVarInt(common).putString(path.substring(common));
+
+			final Entry entry = e.getValue();
+			out.append((byte) (entry.directory ? 1 : 0))
+					.putVarLong(entry.size)
+					.putZigZagVarLong(entry.lastModified);
+			if (hashed) {
+				// NO_HASH(-1)가 한 바이트가 되도록
+				out.putVarLong(entry.hash + 1);
+			}
+			prev = path;
+		}
+
+		final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.writeTo(channel);
+		}
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * {@link #save(Path)}로 기록한 스냅샷을 읽는다.
+	 *
+	 * @param file 저장한 파일
+	 * @return 스냅샷
+	 * @throws IOException 형식이 맞지 않으면
+	 */
+	@NotNull
+	public static FileSnapshot load(@NotNull final Path file) throws IOException {
+		final ChunkedBytes in = new ChunkedBytes(IOz.readByteArrayFrom(file));
+		try {
+			if (in.nextInt() != MAGIC || in.next() != VERSION) {
+				throw new IOException("Not a snapshot file: " + file);
+			}
+			final boolean hashed = in.next() != 0;
+			final FileSnapshot snapshot = empty(hashed);
+			final int count = in.nextVarInt();
+			String prev = "";
+			for (int i = 0; i < count; i++) {
+				final int common = in.nextVarInt();
+				final String path = prev.substring(0, common) + in.nextString();
+				final boolean directory = in.next() != 0;
+				final long size = in.nextVarLong();
+				final long lastModified = in.nextZigZagVarLong();
+				final long hash = hashed ? in.nextVarLong() - 1 : Entry.NO_HASH;
+				snapshot.entries.put(Paths.get(path), new Entry(directory, size, lastModified, hash));
+				prev = path;
+			}
+			return snapshot;
+		} catch (RuntimeException e) {
+			throw new IOException("Broken snapshot file: " + file, e);
+		}
+	}
+
+	@NotNull
+	private static Entry entry(@NotNull final Path path, @NotNull final BasicFileAttributes attrs,
+	                           final boolean hashContents, @Nullable final Entry previous) throws IOException {
+		final long size = attrs.isDirectory() ? 0 : attrs.size();
+		final long lastModified = attrs.lastModifiedTime().toMillis();
+		long hash = Entry.NO_HASH;
+		if (hashContents && attrs.isRegularFile()) {
+			if (null != previous && previous.hash != Entry.NO_HASH
+					&& previous.size == size && previous.lastModified == lastModified) {
+				hash = previous.hash;
+			} else {
+				hash = hash(path);
+			}
+		}
+		return new Entry(attrs.isDirectory(), size, lastModified, hash);
+	}
+
+	private static long hash(@NotNull final Path path) throws IOException {
+		final CRC32 crc = new CRC32();
+		final ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				crc.update(buffer);
+				buffer.clear();
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * 경로 하나의 기록
+	 */
+	@ToString
+	public static final class Entry {
+		/**
+		 * 해시를 기록하지 않음
+		 */
+		public static final long NO_HASH = -1;
+
+		private final boolean directory;
+		private final long size;
+		private final long lastModified;
+		private final long hash;
+
+		private Entry(final boolean directory, final long size, final long lastModified, final long hash) {
+			this.directory = directory;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return epoch milliseconds
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return 내용의 CRC32, 또는 {@link #NO_HASH}
+		 */
+		public long getHash() {
+			return hash;
+		}
+
+		/**
+		 * 디렉토리는 종류가 바뀔 때만 수정으로 본다.
+		 * 파일은 크기가 바뀌었거나, 수정 시각이 바뀌었는데 해시로 내용이 같다고 확인할 수 없으면 수정으로 본다.
+		 */
+		private boolean isModified(@NotNull final Entry now) {
+			if (directory != now.directory) {
+				return true;
+			}
+			if (directory) {
+				return false;
+			}
+			if (size != now.size) {
+				return true;
+			}
+			if (lastModified == now.lastModified) {
+				return false;
+			}
+			return hash == NO_HASH || hash != now.hash;
+		}
+	}
+
+	/**
+	 * 두 스냅샷의 차이. 각 목록은 경로 순으로 정렬되어 있다.
+	 */
+	@ToString
+	public static final class Diff {
+		private final List<Path> created, modified, deleted;
+
+		private Diff(final List<Path> created, final List<Path> modified, final List<Path> deleted) {
+			this.created = Collections.unmodifiableList(created);
+			this.modified = Collections.unmodifiableList(modified);
+			this.deleted = Collections.unmodifiableList(deleted);
+		}
+
+		@NotNull
+		public List<Path> getCreated() {
+			return created;
+		}
+
+		@NotNull
+		public List<Path> getModified() {
+			return modified;
+		}
+
+		@NotNull
+		public List<Path> getDeleted() {
+			return deleted;
+		}
+
+		public boolean isEmpty() {
+			return created.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+		}
+	}
+
+	/**
+	 * 디렉토리 하나의 항목을 기록하고, 하위 디렉토리는 나누어 처리한다.
+	 */
+	private static final class ScanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final FileSnapshot snapshot;
+		@Nullable
+		private final FileSnapshot previous;
+		private final Path dir;
+		private final boolean recursive;
+		private final Queue<IOException> failures;
+
+		private ScanTask(final FileSnapshot snapshot, @Nullable final FileSnapshot previous, final Path dir,
+		                 final boolean recursive, final Queue<IOException> failures) {
+			this.snapshot = snapshot;
+			this.previous = previous;
+			this.dir = dir;
+			this.recursive = recursive;
+			this.failures = failures;
+		}
+
+		@Override
+		protected void compute() {
+			final List<ScanTask> subdirs = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+				for (Path path : stream) {
+					try {
+						final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						snapshot.entries.put(path, entry(path, attrs, snapshot.hashed,
+								null == previous ? null : previous.entries.get(path)));
+						if (recursive && attrs.isDirectory()) {
+							subdirs.add(new ScanTask(snapshot, previous, path, true, failures));
+						}
+					} catch (NoSuchFileException e) {
+						// 그 사이에 사라졌다.
+					} catch (IOException e) {
+						failures.add(e);
+						keepPrevious(path);
+					}
+				}
+			} catch (NoSuchFileException e) {
+				// 그 사이에 사라졌다.
+			} catch (IOException | DirectoryIteratorException e) {
+				failures.add(e instanceof DirectoryIteratorException
+						? ((DirectoryIteratorException) e).getCause() : (IOException) e);
+				keepPrevious(dir);
+			}
+			invokeAll(subdirs);
+		}
+
+		/**
+		 * 읽지 못한 경로와 그 아래는 이전 기록을 남긴다. 이미 읽은 기록은 덮어쓰지 않는다.
+		 */
+		private void keepPrevious(final Path path) {
+			if (null == previous) {
+				return;
+			}
+			final Entry entry = previous.entries.get(path);
+			if (null != entry) {
+				snapshot.entries.putIfAbsent(path, entry);
+			}
+			// 같은 문자열로 시작하는 경로들은 정렬했을 때 연속해 있다.
+			final String prefix = path.toString();
+			for (Map.Entry<Path, Entry> e : previous.entries.tailMap(path, false).entrySet()) {
+				if (!e.getKey().toString().startsWith(prefix)) {
+					break;
+				}
+				if (e.getKey().startsWith(path)) {
+					snapshot.entries.putIfAbsent(e.getKey(), e.getValue());
+				}
+			}
+		}
+	}
+}
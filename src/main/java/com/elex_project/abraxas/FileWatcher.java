@@ -6,22 +6,76 @@
 
 package com.elex_project.abraxas;
 
+import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 파일 와쳐
+ * <p>
+ * 여러 감시 대상을 하나의 스레드에서 감시한다. 핸들러가 받는 경로는 이벤트가 난 디렉토리로 풀어낸 절대 경로이다.
+ * {@link #addWatchPointWithSubDirectories(Path)}로 추가한 대상은, 나중에 생긴 하위 디렉토리도 자동으로 감시한다.
+ * 감시할 수 있는 디렉토리 수는 운영체제의 제한(리눅스는 fs.inotify.max_user_watches)을 받는다.
+ * <p>
+ * {@link #useSnapshot(Path, boolean)}로 스냅샷을 켜면, 이벤트가 넘쳤을 때({@link StandardWatchEventKinds#OVERFLOW}),
+ * 다시 시작할 때, 그리고 {@link #resync()}를 호출할 때 감시 대상을 다시 훑어서 놓친 변경을 핸들러에 전달한다.
+ * <p>
+ * {@link #start(BatchHandler, long, Executor)}로 시작하면, 이벤트를 경로별로 합쳐 두었다가
+ * 조용한 시간이 지나면 한 번에 전달한다. 파일 하나를 저장할 때 생기는 수십 개의 이벤트가 하나로 합쳐진다.
+ * <p>
+ * 기본으로는 {@link WatchService}로 감시한다. 이를 믿을 수 없는 곳에서는 {@link #FileWatcher(Backend)}에
+ * {@link PollingWatchBackend}를 넘기시오. 핸들러는 어느 쪽이든 그대로 사용할 수 있다.
  */
 public final class FileWatcher {
+	/**
+	 * 멈추라는 요청을 확인하는 주기
+	 */
+	private static final long POLL_INTERVAL_MILLIS = 250;
 
-	private WatchKey watchKey;
-	private WatchService watchService;
+	private final Backend backend;
 	private Worker worker;
-	private boolean isRunning = false;
+	private volatile boolean isRunning = false;
+	/**
+	 * 감시 대상과, 하위 디렉토리도 감시하는 지
+	 */
+	private final Map<Path, Boolean> roots = new ConcurrentHashMap<>();
+	private boolean useSnapshot = false;
+	@Nullable
+	private FileSnapshot snapshot;
+	@Nullable
+	private Path snapshotFile;
+	private boolean hashContents;
+	@Nullable
+	private Coalescer coalescer;
+	@Nullable
+	private ExecutorService batchExecutor;
+	private long maxBatchDelayMillis = 0;
+	/**
+	 * 멈출 때 백엔드를 닫았으면 참. 다시 시작할 때 감시 대상을 다시 등록한다.
+	 */
+	private boolean backendClosed = false;
+	/**
+	 * 와쳐 스레드가 아닌 곳에서 다시 훑어 찾은 변경. 와쳐 스레드가 핸들러에 전달한다.
+	 */
+	private final Queue<FileSnapshot.Diff> resyncs = new ConcurrentLinkedQueue<>();
 
 	/**
 	 * @param path 감시 대상
@@ -42,36 +96,197 @@ public final class FileWatcher {
 	 * @throws IOException
 	 */
 	public FileWatcher() throws IOException {
-		//watchService 생성
-		watchService = FileSystems.getDefault().newWatchService();
+		this(new WatchServiceBackend());
 	}
 
+	/**
+	 * 다른 방식으로 감시한다. addWatchPoint()를 실행해서 감시 폴더를 지정하시오.
+	 *
+	 * @param backend 예를 들어 {@link WatchService}를 믿을 수 없는 네트워크 파일 시스템에서는 {@link PollingWatchBackend}
+	 */
+	public FileWatcher(@NotNull final Backend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * 감시 대상을 추가한다. 실행 중에도 추가할 수 있다.
+	 *
+	 * @param path 디렉토리
+	 * @throws IOException ..
+	 */
 	public void addWatchPoint(@NotNull final Path path) throws IOException {
-		//해당 디렉토리 경로에 와치서비스와 이벤트 등록
-		path.register(watchService,
-				StandardWatchEventKinds.ENTRY_CREATE,
-				StandardWatchEventKinds.ENTRY_DELETE,
-				StandardWatchEventKinds.ENTRY_MODIFY,
-				StandardWatchEventKinds.OVERFLOW);
+		roots.putIfAbsent(path.toAbsolutePath(), false);
+		backend.addRoot(path.toAbsolutePath(), false);
 	}
 
+	/**
+	 * 디렉토리와 그 하위 디렉토리들을 감시 대상에 추가한다. 나중에 생기는 하위 디렉토리도 감시한다.
+	 * 실행 중에도 추가할 수 있다.
+	 *
+	 * @param path 디렉토리
+	 * @throws Exception ..
+	 */
 	public void addWatchPointWithSubDirectories(final Path path) throws Exception {
-		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-			@Override
-			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes basicFileAttributes) throws IOException {
-				addWatchPoint(dir);
-				return FileVisitResult.CONTINUE;
+		roots.put(path.toAbsolutePath(), true);
+		backend.addRoot(path.toAbsolutePath(), true);
+	}
+
+	/**
+	 * 감시 중인 디렉토리의 수
+	 */
+	public int getWatchedDirectoryCount() {
+		return backend.getWatchedDirectoryCount();
+	}
+
+	/**
+	 * 감시 대상의 스냅샷을 유지한다. {@link #start(Handler)} 전에 호출하시오.
+	 * <p>
+	 * indexFile 에 이전 스냅샷이 있으면, 시작할 때 그 이후의 변경을 핸들러에 전달한다.
+	 * 없으면 시작할 때 찍은 스냅샷을 기준으로 삼는다. 스냅샷은 다시 훑을 때와 멈출 때 저장한다.
+	 *
+	 * @param indexFile    스냅샷을 저장할 파일. null 이면 메모리에만 둔다.
+	 * @param hashContents 내용의 해시를 기록할 지. 수정 시각만 바뀐 파일을 거를 수 있지만, 훑는 비용이 커진다.
+	 * @throws IOException 저장된 스냅샷을 읽을 수 없으면
+	 * @see FileSnapshot
+	 */
+	public synchronized void useSnapshot(@Nullable final Path indexFile, final boolean hashContents) throws IOException {
+		this.useSnapshot = true;
+		this.snapshotFile = indexFile;
+		this.hashContents = hashContents;
+		this.snapshot = null;
+		if (null != indexFile && Files.exists(indexFile)) {
+			final FileSnapshot saved = FileSnapshot.load(indexFile);
+			if (saved.isHashed() == hashContents) {
+				this.snapshot = saved;
+			}
+		}
+	}
+
+	/**
+	 * 현재 스냅샷
+	 *
+	 * @return 스냅샷을 사용하지 않거나 아직 찍지 않았으면 null
+	 */
+	@Nullable
+	public synchronized FileSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * 감시 대상을 다시 훑어서 마지막 스냅샷 이후의 변경을 찾고, 실행 중이면 핸들러에 전달한다.
+	 * 핸들러는 와쳐 스레드에서만 호출되므로, 다른 스레드에서 호출하면 조금 뒤에 전달된다.
+	 * 처음 호출할 때는 기준이 될 스냅샷만 찍는다.
+	 * 읽지 못한 경로가 있어도 나머지 변경은 전달하며, 그 실패는 {@link #getSnapshot()}의 {@link FileSnapshot#getErrors()}로 알 수 있다.
+	 *
+	 * @return 변경. 처음 호출했으면 비어 있다.
+	 * @throws IOException 스냅샷을 저장하지 못했으면. 변경은 이미 전달되었다.
+	 * @throws IllegalStateException {@link #useSnapshot(Path, boolean)}을 호출하지 않았으면
+	 */
+	@NotNull
+	public FileSnapshot.Diff resync() throws IOException {
+		final FileSnapshot.Diff diff = rescan();
+		if (isRunning && !diff.isEmpty()) {
+			resyncs.add(diff);
+			if (Thread.currentThread() == worker) {
+				worker.deliverResyncs();
+			}
+		}
+		saveSnapshot();
+		return diff;
+	}
+
+	@NotNull
+	private synchronized FileSnapshot.Diff rescan() throws IOException {
+		if (!useSnapshot) {
+			throw new IllegalStateException("Snapshot is not enabled.");
+		}
+		final FileSnapshot older = snapshot;
+		final FileSnapshot newer = FileSnapshot.scan(roots, hashContents, older, ForkJoinPool.commonPool());
+		snapshot = newer;
+		return (null == older ? newer : older).diff(newer);
+	}
+
+	private synchronized boolean isSnapshotEnabled() {
+		return useSnapshot;
+	}
+
+	private synchronized void saveSnapshot() throws IOException {
+		if (null != snapshot && null != snapshotFile) {
+			snapshot.save(snapshotFile);
+		}
+	}
+
+	/**
+	 * 이벤트가 가리키는 경로의 스냅샷 기록을 고친다.
+	 */
+	private synchronized void updateSnapshot(@NotNull final Path path) {
+		if (null != snapshot) {
+			try {
+				snapshot.update(path);
+			} catch (IOException e) {
+				// 다음에 다시 훑을 때 바로잡힌다.
 			}
-		});
+		}
 	}
 
 	public void start(final Handler handler) {
 		if (isRunning) return;
 
+		if (backendClosed) {
+			backendClosed = false;
+			for (Map.Entry<Path, Boolean> root : roots.entrySet()) {
+				try {
+					backend.addRoot(root.getKey(), root.getValue());
+				} catch (IOException e) {
+					// 멈춰 있는 동안 사라진 감시 대상
+				}
+			}
+		}
+		resyncs.clear();
+		isRunning = true;
 		worker = new Worker(handler);
 		worker.start();
 	}
 
+	/**
+	 * 이벤트를 경로별로 합쳐서 묶음으로 전달하도록 시작한다.
+	 * <p>
+	 * 마지막 이벤트 이후로 quietMillis 동안 새 이벤트가 없으면 그때까지의 묶음을 전달한다.
+	 * 이벤트가 끊이지 않아도 {@link #setMaxBatchDelay(long)}이 지나면 전달한다.
+	 * 한 경로의 이벤트는 생성 후 삭제면 없던 것으로, 생성 후 수정이면 생성으로, 삭제 후 생성이면 수정으로 합친다.
+	 *
+	 * @param handler     묶음을 받을 핸들러. 와쳐 스레드가 아닌 executor 에서 실행된다.
+	 * @param quietMillis 조용한 시간
+	 * @param executor    핸들러를 실행할 곳. 묶음의 순서를 지키려면 한 번에 하나씩 실행해야 한다.
+	 *                    null 이면 전용 스레드 하나를 사용한다.
+	 */
+	public void start(@NotNull final BatchHandler handler, final long quietMillis, @Nullable final Executor executor) {
+		if (isRunning) return;
+
+		Executor target = executor;
+		if (null == target) {
+			batchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "FileWatcher-batch");
+				thread.setDaemon(true);
+				return thread;
+			});
+			target = batchExecutor;
+		}
+		final long maxDelay = maxBatchDelayMillis > 0 ? maxBatchDelayMillis : quietMillis * 10;
+		coalescer = new Coalescer(handler, target, quietMillis, maxDelay);
+		start(coalescer);
+	}
+
+	/**
+	 * 이벤트가 끊이지 않을 때, 첫 이벤트 이후로 묶음을 전달하기까지 기다리는 최대 시간.
+	 * {@link #start(BatchHandler, long, Executor)} 전에 지정하시오. 0 이면 조용한 시간의 10배.
+	 *
+	 * @param millis 최대 시간
+	 */
+	public void setMaxBatchDelay(final long millis) {
+		this.maxBatchDelayMillis = millis;
+	}
+
 	public boolean isRunning() {
 		return isRunning;
 	}
@@ -83,6 +298,27 @@ public final class FileWatcher {
 		} catch (InterruptedException e) {
 			//L.e(TAG, e);
 		}
+		try {
+			//감시를 해제한다. 다시 시작하면 다시 등록한다.
+			backend.close();
+		} catch (IOException e) {
+			//L.e(TAG, e);
+		}
+		backendClosed = true;
+		try {
+			saveSnapshot();
+		} catch (IOException e) {
+			//L.e(TAG, e);
+		}
+		if (null != coalescer) {
+			//남은 이벤트
+			coalescer.flush();
+			coalescer = null;
+		}
+		if (null != batchExecutor) {
+			batchExecutor.shutdown();
+			batchExecutor = null;
+		}
 	}
 
 	public interface Handler {
@@ -95,6 +331,498 @@ public final class FileWatcher {
 		public void onOverflow(final Path path);
 	}
 
+	/**
+	 * 합쳐진 이벤트들을 한 번에 받는다.
+	 *
+	 * @see #start(BatchHandler, long, Executor)
+	 */
+	@FunctionalInterface
+	public interface BatchHandler {
+		public void onBatch(final Batch batch);
+	}
+
+	public enum Kind {
+		CREATED, MODIFIED, DELETED
+	}
+
+	/**
+	 * 경로 하나의 합쳐진 이벤트
+	 */
+	@ToString
+	public static final class Event {
+		private final Kind kind;
+		private final Path path;
+
+		private Event(final Kind kind, final Path path) {
+			this.kind = kind;
+			this.path = path;
+		}
+
+		@NotNull
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return 절대 경로
+		 */
+		@NotNull
+		public Path getPath() {
+			return path;
+		}
+	}
+
+	/**
+	 * 한 번에 전달하는 이벤트들과 지연 시간
+	 */
+	@ToString
+	public static final class Batch {
+		private final List<Event> events;
+		private final boolean overflow;
+		private final int rawEventCount;
+		private final long firstEventNanos, lastEventNanos;
+		private long deliveredNanos;
+
+		private Batch(final List<Event> events, final boolean overflow, final int rawEventCount,
+		              final long firstEventNanos, final long lastEventNanos) {
+			this.events = Collections.unmodifiableList(events);
+			this.overflow = overflow;
+			this.rawEventCount = rawEventCount;
+			this.firstEventNanos = firstEventNanos;
+			this.lastEventNanos = lastEventNanos;
+		}
+
+		/**
+		 * @return 경로마다 하나씩, 처음 이벤트가 난 순서대로
+		 */
+		@NotNull
+		public List<Event> getEvents() {
+			return events;
+		}
+
+		/**
+		 * @return 이벤트가 넘쳐서 빠진 것이 있을 수 있으면 참
+		 * @see FileWatcher#useSnapshot(Path, boolean)
+		 */
+		public boolean isOverflow() {
+			return overflow;
+		}
+
+		/**
+		 * @return 합치기 전의 이벤트 수
+		 */
+		public int getRawEventCount() {
+			return rawEventCount;
+		}
+
+		/**
+		 * @return 첫 이벤트부터 핸들러가 호출될 때까지의 시간
+		 */
+		public long getLatencyNanos() {
+			return deliveredNanos - firstEventNanos;
+		}
+
+		/**
+		 * @return 마지막 이벤트부터 핸들러가 호출될 때까지의 시간
+		 */
+		public long getSettleNanos() {
+			return deliveredNanos - lastEventNanos;
+		}
+
+		/**
+		 * @return 첫 이벤트부터 마지막 이벤트까지의 시간
+		 */
+		public long getSpanNanos() {
+			return lastEventNanos - firstEventNanos;
+		}
+	}
+
+	/**
+	 * 이벤트를 경로별로 합쳐 두었다가 묶음으로 전달한다. 경로는 절대 경로로 받는다.
+	 */
+	private static final class Coalescer implements Handler {
+		private final BatchHandler handler;
+		private final Executor executor;
+		private final long quietNanos, maxDelayNanos;
+		private final Map<Path, Kind> pending = new LinkedHashMap<>();
+		private boolean overflow;
+		private int rawEventCount;
+		private long firstEventNanos, lastEventNanos;
+
+		private Coalescer(final BatchHandler handler, final Executor executor, final long quietMillis, final long maxDelayMillis) {
+			this.handler = handler;
+			this.executor = executor;
+			this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+			this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(quietMillis, maxDelayMillis));
+		}
+
+		@Override
+		public synchronized void onCreated(final Path path) {
+			add(path, Kind.CREATED);
+		}
+
+		@Override
+		public synchronized void onDeleted(final Path path) {
+			add(path, Kind.DELETED);
+		}
+
+		@Override
+		public synchronized void onModified(final Path path) {
+			add(path, Kind.MODIFIED);
+		}
+
+		@Override
+		public synchronized void onOverflow(final Path path) {
+			touch();
+			overflow = true;
+		}
+
+		private void add(final Path path, final Kind kind) {
+			touch();
+			final Kind merged = merge(pending.get(path), kind);
+			if (null == merged) {
+				pending.remove(path);
+			} else {
+				pending.put(path, merged);
+			}
+		}
+
+		private void touch() {
+			final long now = System.nanoTime();
+			if (rawEventCount++ == 0) {
+				firstEventNanos = now;
+			}
+			lastEventNanos = now;
+		}
+
+		/**
+		 * @return 없던 것이 되면 null
+		 */
+		@Nullable
+		private static Kind merge(@Nullable final Kind previous, @NotNull final Kind kind) {
+			if (null == previous) {
+				return kind;
+			}
+			switch (previous) {
+				case CREATED:
+					return kind == Kind.DELETED ? null : Kind.CREATED;
+				case MODIFIED:
+					return kind == Kind.DELETED ? Kind.DELETED : Kind.MODIFIED;
+				default:
+					return kind == Kind.DELETED ? Kind.DELETED : Kind.MODIFIED;
+			}
+		}
+
+		private long dueNanos() {
+			return Math.min(lastEventNanos + quietNanos, firstEventNanos + maxDelayNanos);
+		}
+
+		/**
+		 * @return 다음 묶음을 전달할 때까지 기다릴 시간. 1 과 max 사이.
+		 */
+		private synchronized long millisUntilDue(final long max) {
+			if (rawEventCount == 0) {
+				return max;
+			}
+			final long millis = TimeUnit.NANOSECONDS.toMillis(dueNanos() - System.nanoTime()) + 1;
+			return Math.max(1, Math.min(max, millis));
+		}
+
+		private synchronized void flushIfDue() {
+			if (rawEventCount > 0 && System.nanoTime() - dueNanos() >= 0) {
+				flush();
+			}
+		}
+
+		private synchronized void flush() {
+			if (rawEventCount == 0) {
+				return;
+			}
+			final List<Event> events = new ArrayList<>(pending.size());
+			for (Map.Entry<Path, Kind> e : pending.entrySet()) {
+				events.add(new Event(e.getValue(), e.getKey()));
+			}
+			final Batch batch = new Batch(events, overflow, rawEventCount, firstEventNanos, lastEventNanos);
+			pending.clear();
+			overflow = false;
+			rawEventCount = 0;
+			if (events.isEmpty() && !batch.overflow) {
+				// 생성했다가 지운 것뿐
+				return;
+			}
+			executor.execute(() -> {
+				batch.deliveredNanos = System.nanoTime();
+				handler.onBatch(batch);
+			});
+		}
+	}
+
+	/**
+	 * 변경을 찾아서 핸들러에 알리는 방식. 한 와쳐 스레드에서만 {@link #poll(long, Handler)}을 호출한다.
+	 * 와쳐를 멈출 때 {@link #close()}하고, 다시 시작할 때 {@link #addRoot(Path, boolean)}로 감시 대상을 다시 등록한다.
+	 *
+	 * @see PollingWatchBackend
+	 */
+	public interface Backend extends Closeable {
+		/**
+		 * 감시 대상을 추가한다. 실행 중에도 호출할 수 있다. 닫힌 뒤에 호출하면 다시 연다.
+		 *
+		 * @param dir       절대 경로
+		 * @param recursive 하위 디렉토리도 감시할 지
+		 * @throws IOException ..
+		 */
+		public void addRoot(@NotNull final Path dir, final boolean recursive) throws IOException;
+
+		/**
+		 * 최대 timeoutMillis 동안 변경을 기다렸다가, 찾은 것들을 절대 경로로 handler 에 전달한다.
+		 *
+		 * @param timeoutMillis 기다릴 최대 시간
+		 * @param handler       변경을 받을 핸들러
+		 * @return 더 감시할 것이 없으면 false
+		 * @throws InterruptedException ..
+		 */
+		public boolean poll(final long timeoutMillis, @NotNull final Handler handler) throws InterruptedException;
+
+		/**
+		 * @return 감시 중인 디렉토리의 수
+		 */
+		public int getWatchedDirectoryCount();
+	}
+
+	/**
+	 * {@link WatchService}로 감시한다.
+	 */
+	private static final class WatchServiceBackend implements Backend {
+		@Nullable
+		private volatile WatchService watchService;
+		/**
+		 * 감시 대상과, 하위 디렉토리도 감시하는 지
+		 */
+		private final Map<Path, Boolean> roots = new ConcurrentHashMap<>();
+		/**
+		 * 등록한 디렉토리의 절대 경로
+		 */
+		private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+		private final Map<Path, WatchKey> dirs = new ConcurrentHashMap<>();
+
+		private WatchServiceBackend() throws IOException {
+			open();
+		}
+
+		@NotNull
+		private synchronized WatchService open() throws IOException {
+			WatchService service = watchService;
+			if (null == service) {
+				//watchService 생성
+				service = FileSystems.getDefault().newWatchService();
+				watchService = service;
+			}
+			return service;
+		}
+
+		@Override
+		public void addRoot(@NotNull final Path dir, final boolean recursive) throws IOException {
+			open();
+			if (recursive) {
+				roots.put(dir, true);
+				registerTree(dir, null);
+			} else {
+				roots.putIfAbsent(dir, false);
+				register(dir);
+			}
+		}
+
+		private void register(@NotNull final Path dir) throws IOException {
+			final WatchKey registered = dirs.get(dir);
+			if (null != registered && registered.isValid()) return;
+			//해당 디렉토리 경로에 와치서비스와 이벤트 등록
+			final WatchKey key = dir.register(open(),
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.OVERFLOW);
+			keys.put(key, dir);
+			dirs.put(dir, key);
+		}
+
+		/**
+		 * 디렉토리 트리를 모두 등록한다.
+		 *
+		 * @param created null 이 아니면, 등록하기 전에 이미 생긴 항목들을 생성 이벤트로 알린다.
+		 */
+		private void registerTree(@NotNull final Path root, @Nullable final Handler created) throws IOException {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes basicFileAttributes) throws IOException {
+					register(dir);
+					if (null != created && !dir.equals(root)) {
+						created.onCreated(dir);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes basicFileAttributes) {
+					if (null != created) {
+						created.onCreated(file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					// 그 사이에 사라졌다.
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+
+		/**
+		 * 하위 디렉토리도 감시하는 대상 안인지
+		 */
+		private boolean isRecursive(@NotNull final Path dir) {
+			for (Map.Entry<Path, Boolean> root : roots.entrySet()) {
+				if (root.getValue() && dir.startsWith(root.getKey())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int getWatchedDirectoryCount() {
+			return keys.size();
+		}
+
+		@Override
+		public boolean poll(final long timeoutMillis, @NotNull final Handler handler) throws InterruptedException {
+			final WatchService service = watchService;
+			if (null == service) return false;
+			final WatchKey watchKey;
+			try {
+				//이벤트가 오길 대기
+				watchKey = service.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (ClosedWatchServiceException e) {
+				return false;
+			}
+			if (null == watchKey) return true;
+
+			final Path dir = keys.get(watchKey);
+			if (null == dir) {
+				//등록이 취소된 키
+				watchKey.cancel();
+				return true;
+			}
+			//이벤트들을 가져옴
+			List<WatchEvent<?>> events = watchKey.pollEvents();
+			for (WatchEvent<?> event : events) {
+				//이벤트 종류
+				WatchEvent.Kind<?> kind = event.kind();
+				//경로
+				final Path path = null == event.context() ? dir : dir.resolve((Path) event.context());
+				if (kind.equals(StandardWatchEventKinds.ENTRY_CREATE)) {
+					handler.onCreated(path);
+					//L.v(TAG, "생성; " + path.toAbsolutePath().toString());
+					if (isRecursive(dir) && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+						try {
+							//새 디렉토리를 감시하고, 등록하기 전에 생긴 것들을 알린다.
+							registerTree(path, handler);
+						} catch (IOException e) {
+							//L.e(TAG, e);
+						}
+					}
+				} else if (kind.equals(StandardWatchEventKinds.ENTRY_DELETE)) {
+					handler.onDeleted(path);
+					//L.v(TAG, "제거; " + path.toAbsolutePath().toString());
+				} else if (kind.equals(StandardWatchEventKinds.ENTRY_MODIFY)) {
+					handler.onModified(path);
+					//L.v(TAG, "수정; " + path.toAbsolutePath().toString());
+				} else if (kind.equals(StandardWatchEventKinds.OVERFLOW)) {
+					for (Map.Entry<Path, Boolean> root : roots.entrySet()) {
+						if (!root.getValue()) continue;
+						try {
+							//놓친 새 디렉토리를 등록한다.
+							registerTree(root.getKey(), null);
+						} catch (IOException e) {
+							//L.e(TAG, e);
+						}
+					}
+					handler.onOverflow(path);
+					//L.v(TAG, "오버플로; " + path.toAbsolutePath().toString());
+				} else {
+					//L.v(TAG, "모름; " + path.toAbsolutePath().toString());
+				}
+			}
+
+			if (!watchKey.reset()) {
+				//디렉토리가 사라졌다.
+				keys.remove(watchKey);
+				dirs.remove(dir);
+				if (keys.isEmpty()) {
+					try {
+						close();
+					} catch (IOException e) {
+						//L.e(TAG, e);
+					}
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			final WatchService service = watchService;
+			watchService = null;
+			roots.clear();
+			keys.clear();
+			dirs.clear();
+			if (null != service) service.close();
+		}
+	}
+
+	/**
+	 * 백엔드가 찾은 변경으로 스냅샷을 고치고 핸들러에 넘긴다.
+	 */
+	private final class Dispatcher implements Handler {
+		private final Handler handler;
+
+		private Dispatcher(final Handler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void onCreated(final Path path) {
+			updateSnapshot(path);
+			handler.onCreated(path);
+		}
+
+		@Override
+		public void onDeleted(final Path path) {
+			updateSnapshot(path);
+			handler.onDeleted(path);
+		}
+
+		@Override
+		public void onModified(final Path path) {
+			updateSnapshot(path);
+			handler.onModified(path);
+		}
+
+		@Override
+		public void onOverflow(final Path path) {
+			handler.onOverflow(path);
+			if (isSnapshotEnabled()) {
+				try {
+					//놓친 이벤트는 다시 훑어서 찾는다.
+					resync();
+				} catch (IOException e) {
+					//L.e(TAG, e);
+				}
+			}
+		}
+	}
+
 	private class Worker extends Thread {
 		private Handler handler;
 
@@ -104,49 +832,42 @@ public final class FileWatcher {
 
 		@Override
 		public void run() {
-			isRunning = true;
 			//L.v(TAG, "Worker is running");
-			while (isRunning) {
+			if (isSnapshotEnabled()) {
 				try {
-					//이벤트가 오길 대기(Blocking)
-					watchKey = watchService.take();
-				} catch (InterruptedException e) {
+					//멈춰 있는 동안의 변경
+					resync();
+				} catch (IOException e) {
 					//L.e(TAG, e);
 				}
-
-				//이벤트들을 가져옴
-				List<WatchEvent<?>> events = watchKey.pollEvents();
-				for (WatchEvent<?> event : events) {
-					//이벤트 종류
-					WatchEvent.Kind<?> kind = event.kind();
-					//경로
-					Path path = (Path) event.context();
-					if (kind.equals(StandardWatchEventKinds.ENTRY_CREATE)) {
-						handler.onCreated(path);
-						//L.v(TAG, "생성; " + path.toAbsolutePath().toString());
-					} else if (kind.equals(StandardWatchEventKinds.ENTRY_DELETE)) {
-						handler.onDeleted(path);
-						//L.v(TAG, "제거; " + path.toAbsolutePath().toString());
-					} else if (kind.equals(StandardWatchEventKinds.ENTRY_MODIFY)) {
-						handler.onModified(path);
-						//L.v(TAG, "수정; " + path.toAbsolutePath().toString());
-					} else if (kind.equals(StandardWatchEventKinds.OVERFLOW)) {
-						handler.onOverflow(path);
-						//L.v(TAG, "오버플로; " + path.toAbsolutePath().toString());
-					} else {
-						//L.v(TAG, "모름; " + path.toAbsolutePath().toString());
-					}
-				}
-
-				if (!watchKey.reset()) {
-					try {
-						watchService.close();
+			}
+			final Dispatcher dispatcher = new Dispatcher(handler);
+			final Coalescer batching = handler instanceof Coalescer ? (Coalescer) handler : null;
+			while (isRunning) {
+				try {
+					//멈추라는 요청과 묶음을 전달할 때를 확인하도록 주기적으로 깨어난다.
+					if (!backend.poll(null == batching ? POLL_INTERVAL_MILLIS
+							: batching.millisUntilDue(POLL_INTERVAL_MILLIS), dispatcher)) {
 						isRunning = false;
-					} catch (IOException e) {
-						//L.e(TAG, e);
 					}
+				} catch (InterruptedException e) {
+					//L.e(TAG, e);
+					break;
 				}
+				deliverResyncs();
+				if (null != batching) batching.flushIfDue();
+			}
+		}
 
+		/**
+		 * 다시 훑어 찾은 변경을 핸들러에 전달한다. 스냅샷은 이미 고쳐졌다.
+		 */
+		private void deliverResyncs() {
+			FileSnapshot.Diff diff;
+			while (null != (diff = resyncs.poll())) {
+				for (Path path : diff.getDeleted()) handler.onDeleted(path);
+				for (Path path : diff.getCreated()) handler.onCreated(path);
+				for (Path path : diff.getModified()) handler.onModified(path);
 			}
 		}
 	}
@@ -6,14 +6,36 @@
 
 package com.elex_project.abraxas;
 
+import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 /**
@@ -23,6 +45,14 @@ import java.util.regex.Pattern;
  */
 public final class Filez {
 	public static final Pattern SAFE_FILENAME_PATTERN = Pattern.compile("[\\w%+,./=_-]+");
+	/**
+	 * transferTo 한 번에 넘기는 최대 크기. 진행 상황을 이 단위로 알린다.
+	 */
+	private static final long TRANSFER_SIZE = 8L << 20;
+	/**
+	 * 스트림에서 복사할 때 쓰는 버퍼의 크기
+	 */
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
 	private Filez() {
 
@@ -45,8 +75,8 @@ public final class Filez {
 	// copy a file from srcFile to destFile, return true if succeed, return
 	// false if fail
 	public static void copyToFileOrThrow(final File srcFile, final File destFile) throws IOException {
-		try (InputStream in = new FileInputStream(srcFile)) {
-			copyToFileOrThrow(in, destFile);
+		try (FileChannel in = FileChannel.open(srcFile.toPath(), StandardOpenOption.READ)) {
+			copyToFileOrThrow(in, 0, destFile);
 		}
 	}
 
@@ -60,24 +90,168 @@ public final class Filez {
 	 */
 	public static void copyToFileOrThrow(final InputStream inputStream, @NotNull final File destFile)
 			throws IOException {
+		if (inputStream instanceof FileInputStream) {
+			final FileChannel in = ((FileInputStream) inputStream).getChannel();
+			long position = -1;
+			try {
+				position = in.position();
+			} catch (IOException e) {
+				// 파이프, FIFO 는 위치를 옮길 수 없으므로 스트림으로 복사한다.
+			}
+			if (position >= 0) {
+				copyToFileOrThrow(in, position, destFile);
+				return;
+			}
+		}
+		if (destFile.exists()) {
+			destFile.delete();
+		}
+		try (FileChannel out = FileChannel.open(destFile.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// FileInputStream 의 채널을 transferFrom()에 넘기면 위치를 옮기려 하므로 직접 옮겨 쓴다.
+			final ReadableByteChannel in = Channels.newChannel(inputStream);
+			final ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+			while (in.read(buffer) >= 0) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				buffer.clear();
+			}
+			syncQuietly(out);
+		}
+	}
+
+	/**
+	 * 파일 채널의 position 부터 끝까지를 커널 안에서(sendfile, copy_file_range) 복사한다.
+	 */
+	private static void copyToFileOrThrow(@NotNull final FileChannel in, final long position, @NotNull final File destFile)
+			throws IOException {
 		if (destFile.exists()) {
 			destFile.delete();
 		}
-		FileOutputStream out = new FileOutputStream(destFile);
+		try (FileChannel out = FileChannel.open(destFile.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			in.position(position + transfer(in, position, out, null));
+			syncQuietly(out);
+		}
+	}
+
+	private static void syncQuietly(@NotNull final FileChannel channel) {
 		try {
-			byte[] buffer = new byte[4096];
-			int bytesRead;
-			while ((bytesRead = inputStream.read(buffer)) >= 0) {
-				out.write(buffer, 0, bytesRead);
+			channel.force(true);
+		} catch (IOException ignore) {
+		}
+	}
+
+	/**
+	 * in 의 position 부터 끝까지를 out 에 복사한다.
+	 *
+	 * @param progress 복사한 바이트 수를 더할 카운터
+	 * @return 복사한 바이트 수
+	 */
+	private static long transfer(@NotNull final FileChannel in, final long position, @NotNull final FileChannel out,
+	                             @Nullable final AtomicLong progress) throws IOException {
+		final long size = in.size();
+		long pos = position;
+		while (pos < size) {
+			final long n = in.transferTo(pos, Math.min(TRANSFER_SIZE, size - pos), out);
+			if (n <= 0) {
+				// 복사하는 도중에 파일이 줄었다.
+				break;
 			}
-		} finally {
-			out.flush();
+			pos += n;
+			if (null != progress) {
+				progress.addAndGet(n);
+			}
+		}
+		return pos - position;
+	}
+
+	/**
+	 * 파일 하나를 복사한다. 일반 파일은 {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}로,
+	 * 그 밖의 것(심볼릭 링크 등)은 {@link Files#copy(Path, Path, CopyOption...)}으로 복사한다.
+	 * 대상 파일은 {@link Files#copy(Path, Path, CopyOption...)}처럼 원본의 권한으로 만든다(umask 가 적용된다).
+	 * {@link StandardCopyOption#COPY_ATTRIBUTES}는 시각들과 권한, 가능하면 소유자도 복사한다.
+	 *
+	 * @param from        원본 파일
+	 * @param to          대상 파일
+	 * @param copyOptions {@link StandardCopyOption#REPLACE_EXISTING}이 없으면 대상이 있을 때 예외.
+	 *                    있으면 대상을 지우고 새로 만든다. 대상이 심볼릭 링크이면 링크를 바꾼다.
+	 * @return 복사한 바이트 수
+	 * @throws IOException ..
+	 */
+	public static long copyFile(@NotNull final Path from, @NotNull final Path to, final CopyOption... copyOptions) throws IOException {
+		return copyFile(from, to, null, copyOptions);
+	}
+
+	private static long copyFile(@NotNull final Path from, @NotNull final Path to, @Nullable final AtomicLong progress,
+	                             final CopyOption... copyOptions) throws IOException {
+		boolean replace = false, attributes = false, noFollow = false;
+		for (CopyOption option : copyOptions) {
+			if (option == StandardCopyOption.REPLACE_EXISTING) {
+				replace = true;
+			} else if (option == StandardCopyOption.COPY_ATTRIBUTES) {
+				attributes = true;
+			} else if (option == LinkOption.NOFOLLOW_LINKS) {
+				noFollow = true;
+			}
+		}
+		if (noFollow ? !Files.isRegularFile(from, LinkOption.NOFOLLOW_LINKS) : !Files.isRegularFile(from)) {
+			Files.copy(from, to, copyOptions);
+			return 0;
+		}
+		if (Files.exists(to) && Files.isSameFile(from, to)) {
+			// Files.copy 처럼 아무것도 하지 않는다.
+			return 0;
+		}
+		final PosixFileAttributes posix = posixAttributesOf(from);
+		if (replace) {
+			// 링크를 따라가지 않고 지운다.
+			Files.deleteIfExists(to);
+		}
+		final long copied;
+		try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+		     FileChannel out = null == posix
+				     ? FileChannel.open(to, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)
+				     : FileChannel.open(to, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW),
+				     PosixFilePermissions.asFileAttribute(posix.permissions()))) {
+			copied = transfer(in, 0, out, progress);
+		}
+		if (attributes) {
+			copyAttributes(from, to, posix);
+		}
+		return copied;
+	}
+
+	/**
+	 * @return POSIX 를 지원하지 않는 파일 시스템이면 null
+	 */
+	@Nullable
+	private static PosixFileAttributes posixAttributesOf(@NotNull final Path path) throws IOException {
+		final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+		return null == view ? null : view.readAttributes();
+	}
+
+	/**
+	 * {@link Files#copy(Path, Path, CopyOption...)}의 {@link StandardCopyOption#COPY_ATTRIBUTES}처럼,
+	 * 권한은 umask 없이 그대로, 소유자는 바꿀 수 있을 때만 복사한다.
+	 */
+	private static void copyAttributes(@NotNull final Path from, @NotNull final Path to,
+	                                   @Nullable final PosixFileAttributes posix) throws IOException {
+		final BasicFileAttributes basic = null == posix ? Files.readAttributes(from, BasicFileAttributes.class) : posix;
+		if (null != posix) {
+			final PosixFileAttributeView view = Files.getFileAttributeView(to, PosixFileAttributeView.class);
 			try {
-				out.getFD().sync();
+				view.setOwner(posix.owner());
+				view.setGroup(posix.group());
 			} catch (IOException ignore) {
+				// 권한이 없으면 소유자는 복사하지 않는다.
 			}
-			out.close();
+			view.setPermissions(posix.permissions());
 		}
+		Files.getFileAttributeView(to, BasicFileAttributeView.class)
+				.setTimes(basic.lastModifiedTime(), basic.lastAccessTime(), basic.creationTime());
 	}
 
 	/**
@@ -434,6 +608,289 @@ public final class Filez {
 		Files.deleteIfExists(path);
 	}
 
+	/**
+	 * 파일을 지우거나, 디렉토리와 그 내용을 fork-join 풀에서 하위 디렉토리별로 나누어 지운다.
+	 *
+	 * @param path file or dir
+	 * @throws IOException 지우지 못한 것이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 */
+	public static void deleteParallel(@NotNull final Path path) throws IOException {
+		deleteParallel(path, ForkJoinPool.commonPool(), 0);
+	}
+
+	public static void deleteParallel(@NotNull final File path) throws IOException {
+		deleteParallel(path.toPath());
+	}
+
+	/**
+	 * 파일을 지우거나, 디렉토리와 그 내용을 fork-join 풀에서 하위 디렉토리별로 나누어 지운다.
+	 * 지울 수 있는 것은 모두 지운 뒤에 실패를 알린다.
+	 *
+	 * @param path        file or dir
+	 * @param pool        작업을 실행할 풀
+	 * @param maxOpenDirs 동시에 열어 둘 디렉토리 스트림의 최대 수. 0 이하이면 제한하지 않는다.
+	 * @throws IOException 지우지 못한 것이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 */
+	public static void deleteParallel(@NotNull final Path path, @NotNull final ForkJoinPool pool,
+	                                  final int maxOpenDirs) throws IOException {
+		if (!isDirectory(path)) {
+			Files.delete(path);
+			return;
+		}
+		final TreeWalk walk = new TreeWalk(maxOpenDirs);
+		pool.invoke(new DeleteTask(walk, path, true));
+		walk.throwFailures();
+	}
+
+	/**
+	 * 디렉토리는 남기고, 그 내용을 fork-join 풀에서 하위 디렉토리별로 나누어 지운다.
+	 *
+	 * @param dir dir
+	 * @throws IOException 지우지 못한 것이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 * @see #deleteContents(File)
+	 */
+	public static void deleteContentsParallel(@NotNull final Path dir) throws IOException {
+		deleteContentsParallel(dir, ForkJoinPool.commonPool(), 0);
+	}
+
+	public static void deleteContentsParallel(@NotNull final File dir) throws IOException {
+		deleteContentsParallel(dir.toPath());
+	}
+
+	/**
+	 * 디렉토리는 남기고, 그 내용을 fork-join 풀에서 하위 디렉토리별로 나누어 지운다.
+	 * 지울 수 있는 것은 모두 지운 뒤에 실패를 알린다.
+	 *
+	 * @param dir         dir
+	 * @param pool        작업을 실행할 풀
+	 * @param maxOpenDirs 동시에 열어 둘 디렉토리 스트림의 최대 수. 0 이하이면 제한하지 않는다.
+	 * @throws IOException 디렉토리가 아니거나, 지우지 못한 것이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 */
+	public static void deleteContentsParallel(@NotNull final Path dir, @NotNull final ForkJoinPool pool,
+	                                          final int maxOpenDirs) throws IOException {
+		if (!isDirectory(dir)) {
+			throw new NotDirectoryException(dir.toString());
+		}
+		final TreeWalk walk = new TreeWalk(maxOpenDirs);
+		pool.invoke(new DeleteTask(walk, dir, false));
+		walk.throwFailures();
+	}
+
+	/**
+	 * 파일의 크기, 또는 디렉토리 안의 모든 파일 크기의 합
+	 *
+	 * @param path file or dir
+	 * @return 바이트 수
+	 * @throws IOException 읽지 못한 것이 있으면
+	 * @see #scan(Path)
+	 */
+	public static long sizeOf(@NotNull final Path path) throws IOException {
+		return scan(path).getBytes();
+	}
+
+	public static long sizeOf(@NotNull final File path) throws IOException {
+		return sizeOf(path.toPath());
+	}
+
+	/**
+	 * 디렉토리 트리의 파일 수, 디렉토리 수, 크기를 fork-join 풀에서 하위 디렉토리별로 나누어 센다.
+	 * 심볼릭 링크는 따라가지 않고 파일로 센다.
+	 *
+	 * @param path file or dir
+	 * @return 합계
+	 * @throws IOException 읽지 못한 것이 있으면
+	 */
+	@NotNull
+	public static TreeSize scan(@NotNull final Path path) throws IOException {
+		return scan(path, ForkJoinPool.commonPool(), 0);
+	}
+
+	/**
+	 * 디렉토리 트리의 파일 수, 디렉토리 수, 크기를 fork-join 풀에서 하위 디렉토리별로 나누어 센다.
+	 *
+	 * @param path        file or dir
+	 * @param pool        작업을 실행할 풀
+	 * @param maxOpenDirs 동시에 열어 둘 디렉토리 스트림의 최대 수. 0 이하이면 제한하지 않는다.
+	 * @return 합계
+	 * @throws IOException 읽지 못한 것이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 */
+	@NotNull
+	public static TreeSize scan(@NotNull final Path path, @NotNull final ForkJoinPool pool,
+	                            final int maxOpenDirs) throws IOException {
+		final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		if (!attrs.isDirectory()) {
+			return new TreeSize(1, 0, attrs.isRegularFile() ? attrs.size() : 0);
+		}
+		final TreeWalk walk = new TreeWalk(maxOpenDirs);
+		final TreeSize size = pool.invoke(new ScanTask(walk, path));
+		walk.throwFailures();
+		return size;
+	}
+
+	/**
+	 * 디렉토리 트리의 합계
+	 */
+	@ToString
+	public static final class TreeSize {
+		private final long files, directories, bytes;
+
+		private TreeSize(final long files, final long directories, final long bytes) {
+			this.files = files;
+			this.directories = directories;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * 디렉토리가 아닌 것의 수
+		 */
+		public long getFiles() {
+			return files;
+		}
+
+		/**
+		 * 시작한 디렉토리를 포함한 디렉토리의 수
+		 */
+		public long getDirectories() {
+			return directories;
+		}
+
+		/**
+		 * 일반 파일 크기의 합
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * 병렬로 트리를 훑는 작업들이 공유하는 상태
+	 */
+	private static final class TreeWalk {
+		@Nullable
+		private final Semaphore handles;
+		private final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+
+		private TreeWalk(final int maxOpenDirs) {
+			this.handles = maxOpenDirs > 0 ? new Semaphore(maxOpenDirs) : null;
+		}
+
+		/**
+		 * 디렉토리의 항목들. 스트림은 목록을 읽는 동안만 열어 둔다.
+		 */
+		@NotNull
+		private List<Path> list(@NotNull final Path dir) {
+			final List<Path> entries = new ArrayList<>();
+			try {
+				if (null != handles) handles.acquire();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path entry : stream) {
+						entries.add(entry);
+					}
+				} finally {
+					if (null != handles) handles.release();
+				}
+			} catch (IOException | DirectoryIteratorException e) {
+				failures.add(e instanceof DirectoryIteratorException
+						? ((DirectoryIteratorException) e).getCause() : (IOException) e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failures.add(new InterruptedIOException(dir.toString()));
+			}
+			return entries;
+		}
+
+		private void throwFailures() throws IOException {
+			final IOException failure = failures.poll();
+			if (null != failure) {
+				IOException e;
+				while (null != (e = failures.poll())) {
+					failure.addSuppressed(e);
+				}
+				throw failure;
+			}
+		}
+	}
+
+	private static final class DeleteTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final TreeWalk walk;
+		private final Path dir;
+		/**
+		 * 내용을 지운 뒤에 디렉토리도 지울 지
+		 */
+		private final boolean deleteDir;
+
+		private DeleteTask(final TreeWalk walk, final Path dir, final boolean deleteDir) {
+			this.walk = walk;
+			this.dir = dir;
+			this.deleteDir = deleteDir;
+		}
+
+		@Override
+		protected void compute() {
+			final List<DeleteTask> subdirs = new ArrayList<>();
+			for (Path entry : walk.list(dir)) {
+				if (isDirectory(entry)) {
+					subdirs.add(new DeleteTask(walk, entry, true));
+				} else {
+					try {
+						Files.deleteIfExists(entry);
+					} catch (IOException e) {
+						walk.failures.add(e);
+					}
+				}
+			}
+			invokeAll(subdirs);
+			if (!deleteDir) {
+				return;
+			}
+			try {
+				Files.deleteIfExists(dir);
+			} catch (IOException e) {
+				walk.failures.add(e);
+			}
+		}
+	}
+
+	private static final class ScanTask extends RecursiveTask<TreeSize> {
+		private static final long serialVersionUID = 1L;
+		private final TreeWalk walk;
+		private final Path dir;
+
+		private ScanTask(final TreeWalk walk, final Path dir) {
+			this.walk = walk;
+			this.dir = dir;
+		}
+
+		@Override
+		protected TreeSize compute() {
+			long files = 0, directories = 1, bytes = 0;
+			final List<ScanTask> subdirs = new ArrayList<>();
+			for (Path entry : walk.list(dir)) {
+				try {
+					final BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					if (attrs.isDirectory()) {
+						subdirs.add(new ScanTask(walk, entry));
+					} else {
+						files++;
+						if (attrs.isRegularFile()) {
+							bytes += attrs.size();
+						}
+					}
+				} catch (IOException e) {
+					walk.failures.add(e);
+				}
+			}
+			for (ScanTask task : invokeAll(subdirs)) {
+				final TreeSize size = task.join();
+				files += size.files;
+				directories += size.directories;
+				bytes += size.bytes;
+			}
+			return new TreeSize(files, directories, bytes);
+		}
+	}
+
 	public static void copy(@NotNull final File from, @NotNull final File to, final CopyOption... copyOptions) throws IOException {
 		copy(from.toPath(), to.toPath(), copyOptions);
 	}
@@ -458,7 +915,7 @@ public final class Filez {
 				@Override
 				public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
 					try {
-						Files.copy(path, to.resolve(from.relativize(path)), copyOptions);
+						copyFile(path, to.resolve(from.relativize(path)), copyOptions);
 					} catch (IOException x) {
 						System.err.format("Unable to copy: %s: %s%n", path, x);
 					}
@@ -485,10 +942,137 @@ public final class Filez {
 				}
 			});
 		} else {
-			Files.copy(from, to, copyOptions);
+			copyFile(from, to, copyOptions);
 		}
 	}
 
+	/**
+	 * 디렉토리 트리를 여러 스레드에서 복사한다.
+	 * 디렉토리는 트리를 훑는 스레드가 만들고, 파일은 작업 스레드들이 커널 안에서 복사한다.
+	 * 디렉토리는 {@link #copy(Path, Path, CopyOption...)}처럼 원본의 권한으로 만들고,
+	 * 수정 시각({@link StandardCopyOption#COPY_ATTRIBUTES}이면 모든 속성)은 모든 파일을 복사한 뒤에 맞춘다.
+	 *
+	 * @param from        원본 파일 또는 디렉토리
+	 * @param to          대상
+	 * @param parallelism 파일을 복사할 스레드 수
+	 * @param listener    진행 상황. 작업 스레드들에서 동시에 호출된다.
+	 * @param copyOptions 파일마다 적용할 옵션
+	 * @throws IOException 복사하지 못한 파일이 있으면. 나머지 실패는 suppressed 에 담긴다.
+	 * @see #copyFile(Path, Path, CopyOption...)
+	 */
+	public static void copyParallel(@NotNull final Path from, @NotNull final Path to, final int parallelism,
+	                                @Nullable final OnCopyProgressListener listener,
+	                                final CopyOption... copyOptions) throws IOException {
+		final long started = System.nanoTime();
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		if (!isDirectory(from)) {
+			copyFile(from, to, bytes, copyOptions);
+			if (null != listener) listener.onProgress(1, bytes.get(), System.nanoTime() - started);
+			return;
+		}
+
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		final List<Path> dirs = new ArrayList<>();
+		// 디렉토리의 속성은 파일을 모두 복사한 뒤에 맞춘다.
+		boolean attributes = false;
+		final List<CopyOption> dirOptions = new ArrayList<>();
+		for (CopyOption option : copyOptions) {
+			if (option == StandardCopyOption.COPY_ATTRIBUTES) {
+				attributes = true;
+			} else if (option != StandardCopyOption.REPLACE_EXISTING) {
+				dirOptions.add(option);
+			}
+		}
+		final CopyOption[] dirCopyOptions = dirOptions.toArray(new CopyOption[0]);
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			final Thread thread = new Thread(runnable, "Filez-copy");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes basicFileAttributes) {
+					final Path newdir = to.resolve(from.relativize(path));
+					try {
+						if (!Files.isDirectory(newdir, LinkOption.NOFOLLOW_LINKS)) {
+							// Filez.copy 처럼 원본의 권한으로 만든다.
+							Files.copy(path, newdir, dirCopyOptions);
+						}
+					} catch (IOException x) {
+						failures.add(x);
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) {
+					final Path target = to.resolve(from.relativize(path));
+					executor.execute(() -> {
+						try {
+							copyFile(path, target, bytes, copyOptions);
+							final long n = files.incrementAndGet();
+							if (null != listener) listener.onProgress(n, bytes.get(), System.nanoTime() - started);
+						} catch (IOException x) {
+							failures.add(x);
+						}
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException e) {
+					failures.add(e);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path path, IOException e) {
+					dirs.add(path);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// 남은 파일을 복사하는 중
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (Path dir : dirs) {
+			final Path newdir = to.resolve(from.relativize(dir));
+			try {
+				if (attributes) {
+					copyAttributes(dir, newdir, posixAttributesOf(dir));
+				} else {
+					Files.setLastModifiedTime(newdir, Files.getLastModifiedTime(dir));
+				}
+			} catch (IOException x) {
+				failures.add(x);
+			}
+		}
+		final IOException failure = failures.poll();
+		if (null != failure) {
+			IOException e;
+			while (null != (e = failures.poll())) {
+				failure.addSuppressed(e);
+			}
+			throw failure;
+		}
+	}
+
+	public static void copyParallel(@NotNull final File from, @NotNull final File to, final int parallelism,
+	                                @Nullable final OnCopyProgressListener listener,
+	                                final CopyOption... copyOptions) throws IOException {
+		copyParallel(from.toPath(), to.toPath(), parallelism, listener, copyOptions);
+	}
+
 	public static void move(@NotNull final File from, @NotNull final File to, final CopyOption... copyOptions) throws IOException {
 		move(from.toPath(), to.toPath(), copyOptions);
 	}
@@ -543,4 +1127,17 @@ public final class Filez {
 			Files.move(from, to, copyOptions);
 		}
 	}
+
+	/**
+	 * 복사의 진행 상황
+	 */
+	@FunctionalInterface
+	public interface OnCopyProgressListener {
+		/**
+		 * @param files        지금까지 복사한 파일 수
+		 * @param bytes        지금까지 복사한 바이트 수
+		 * @param elapsedNanos 시작한 뒤로 지난 시간. bytes 와 함께 처리량을 구할 수 있다.
+		 */
+		public void onProgress(final long files, final long bytes, final long elapsedNanos);
+	}
 }
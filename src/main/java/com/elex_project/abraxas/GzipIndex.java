@@ -0,0 +1,225 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * {@link Compressez#gzipParallel(java.io.InputStream, Path, int, int, Compressez.OnProgressListener)}가 만든
+ * 여러 멤버 gzip 파일의 블록 목록. 블록마다 압축된 위치와 압축 전 위치를 기록한다.
+ * <p>
+ * 블록은 각각 완전한 gzip 멤버이므로, 이것으로 원하는 위치의 블록만 풀거나 여러 블록을 동시에 풀 수 있다.
+ * gzip 파일 옆에 {@link #pathOf(Path)}의 이름으로 저장한다.
+ *
+ * @author Elex
+ * @see Compressez#readGzipBlock(Path, GzipIndex, int)
+ */
+public final class GzipIndex {
+	/**
+	 * "GZIX"
+	 */
+	private static final int MAGIC = 0x475A4958;
+	private static final byte VERSION = 1;
+
+	private final int blockSize;
+	private int count = 0;
+	/**
+	 * 블록의 시작 위치. 마지막 원소는 전체 크기
+	 */
+	private long[] compressedOffsets = new long[16 + 1];
+	private long[] uncompressedOffsets = new long[16 + 1];
+
+	GzipIndex(final int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @param gzipFile gzip 파일
+	 * @return 같은 디렉토리의 "이름.idx"
+	 */
+	@NotNull
+	public static Path pathOf(@NotNull final Path gzipFile) {
+		return gzipFile.resolveSibling(gzipFile.getFileName() + ".idx");
+	}
+
+	/**
+	 * 다음 블록을 기록한다.
+	 */
+	void add(final int compressedLength, final int uncompressedLength) {
+		if (count + 1 == compressedOffsets.length) {
+			compressedOffsets = Arrays.copyOf(compressedOffsets, compressedOffsets.length * 2);
+			uncompressedOffsets = Arrays.copyOf(uncompressedOffsets, uncompressedOffsets.length * 2);
+		}
+		compressedOffsets[count + 1] = compressedOffsets[count] + compressedLength;
+		uncompressedOffsets[count + 1] = uncompressedOffsets[count] + uncompressedLength;
+		count++;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getBlockCount() {
+		return count;
+	}
+
+	/**
+	 * @return gzip 파일의 크기
+	 */
+	public long getCompressedSize() {
+		return compressedOffsets[count];
+	}
+
+	/**
+	 * @return 압축을 해제한 크기
+	 */
+	public long getUncompressedSize() {
+		return uncompressedOffsets[count];
+	}
+
+	public long getCompressedOffset(final int block) {
+		checkBlock(block);
+		return compressedOffsets[block];
+	}
+
+	public int getCompressedLength(final int block) {
+		checkBlock(block);
+		return (int) (compressedOffsets[block + 1] - compressedOffsets[block]);
+	}
+
+	public long getUncompressedOffset(final int block) {
+		checkBlock(block);
+		return uncompressedOffsets[block];
+	}
+
+	public int getUncompressedLength(final int block) {
+		checkBlock(block);
+		return (int) (uncompressedOffsets[block + 1] - uncompressedOffsets[block]);
+	}
+
+	/**
+	 * 압축 전 위치가 들어 있는 블록
+	 *
+	 * @param position 압축 전 위치
+	 * @return 블록의 번호
+	 * @throws IndexOutOfBoundsException 범위를 벗어나면
+	 */
+	public int blockAt(final long position) {
+		if (position < 0 || position >= getUncompressedSize()) {
+			throw new IndexOutOfBoundsException("Position: " + position);
+		}
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (uncompressedOffsets[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	private void checkBlock(final int block) {
+		if (block < 0 || block >= count) {
+			throw new IndexOutOfBoundsException("Block: " + block);
+		}
+	}
+
+	/**
+	 * 임시 파일에 쓰고 옮긴다.
+	 *
+	 * @param file 저장할 파일
+	 * @throws IOException ..
+	 */
+	public void save(@NotNull final Path file) throws IOException {
+		final ByteArrayBuilder out = new ByteArrayBuilder();
+		out.putInt(MAGIC).append(VERSION);
+		out.putVarInt(blockSize).putVarInt(count);
+		for (int i = 0; i < count; i++) {
+			out.putVarInt(getCompressedLength(i)).putVarInt(getUncompressedLength(i));
+		}
+
+		final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.writeTo(channel);
+		}
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * {@link #save(Path)}로 기록한 목록을 읽는다.
+	 *
+	 * @param file 저장한 파일
+	 * @return 블록 목록
+	 * @throws IOException 읽을 수 없거나 형식이 다르면
+	 */
+	@NotNull
+	public static GzipIndex load(@NotNull final Path file) throws IOException {
+		final ChunkedBytes in = new ChunkedBytes(IOz.readByteArrayFrom(file));
+		try {
+			if (in.nextInt() != MAGIC || in.next() != VERSION) {
+				throw new IOException("Not a gzip index file: " + file);
+			}
+			final GzipIndex index = new GzipIndex(in.nextVarInt());
+			final int count = in.nextVarInt();
+			for (int i = 0; i < count; i++) {
+				index.add(in.nextVarInt(), in.nextVarInt());
+			}
+			return index;
+		} catch (RuntimeException e) {
+			throw new IOException("Broken gzip index file: " + file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "GzipIndex(blocks=" + count + ", compressedSize=" + getCompressedSize()
+				+ ", uncompressedSize=" + getUncompressedSize() + ")";
+	}
+}
@@ -21,12 +21,30 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * I/O
@@ -46,6 +64,27 @@ public final class IOz {
 	 * no
 	 */
 	private static final String NO = "no";
+	/**
+	 * {@link #readByteBufferFrom(Path)}가 메모리 맵을 사용하기 시작하는 파일 크기, 4MB
+	 */
+	public static final long DEFAULT_MAP_THRESHOLD = 4L << 20;
+	/**
+	 * 배열 하나에 담을 수 있는 최대 크기
+	 */
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * {@link #readLineFrom(InputStream, OnReadingLineListener)}의 읽기 버퍼 크기(문자 수)
+	 */
+	public static final int LINE_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * {@link #readLineFrom(InputStream, OnReadingLineListener)}가 한 번에 전달하는 줄의 수
+	 */
+	public static final int LINE_BATCH_SIZE = 4096;
+	/**
+	 * {@link #processLinesParallel(Path, Consumer)}가 파일을 나누는 구간의 크기, 32MB
+	 */
+	public static final long PARALLEL_CHUNK_SIZE = 32L << 20;
 
 	private IOz() {
 
@@ -206,16 +245,33 @@ public final class IOz {
 	 */
 	@NotNull
 	public static byte[] readByteArrayFrom(@NotNull final InputStream inputStream) throws IOException {
-		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			if (inputStream instanceof FileInputStream) {
+				final FileChannel channel = ((FileInputStream) inputStream).getChannel();
+				final long position;
+				try {
+					position = channel.position();
+				} catch (IOException e) {
+					// 파이프, FIFO 는 위치를 옮길 수 없으므로 차례로 읽는다.
+					return readSequentially(inputStream);
+				}
+				return readByteArrayFrom(channel, position);
+			}
+			return readSequentially(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	@NotNull
+	private static byte[] readSequentially(@NotNull final InputStream inputStream) throws IOException {
+		// 배열을 두 배씩 늘려 가며 복사하지 않도록 청크에 모은 뒤 한 번만 복사한다.
+		final ByteArrayBuilder buffer = new ByteArrayBuilder();
+		final byte[] buf = new byte[BUFFER_SIZE];
 		int nRead;
-		byte[] buf = new byte[1024];
 		while ((nRead = inputStream.read(buf, 0, buf.length)) != -1) {
-			buffer.write(buf, 0, nRead);
+			buffer.append(buf, 0, nRead);
 		}
-
-		buffer.flush();
-		buffer.close();
-		inputStream.close();
 		return buffer.toByteArray();
 	}
 
@@ -229,13 +285,112 @@ public final class IOz {
 	 */
 	@NotNull
 	public static byte[] readByteArrayFrom(@NotNull final File file) throws IOException {
-		return readByteArrayFrom(new FileInputStream(file));
+		return readByteArrayFrom(file.toPath());
 	}
 
+	/**
+	 * 파일에서 바이트 배열을 읽어 온다.
+	 * 일반 파일은 파일 크기에 맞춰 배열을 한 번만 할당하고, 위치 지정 읽기로 채운다.
+	 * 그 밖의 것(FIFO 등)은 차례로 읽는다.
+	 *
+	 * @param path 파일
+	 * @return 바이트 배열
+	 * @throws IOException 파일이 2GB를 넘으면
+	 */
 	@NotNull
 	public static byte[] readByteArrayFrom(@NotNull final Path path) throws IOException {
-		return Files.readAllBytes(path);
-		//return readByteArrayFrom(new FileInputStream(file));
+		if (!Files.isRegularFile(path)) {
+			try (InputStream in = Files.newInputStream(path)) {
+				return readSequentially(in);
+			}
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readByteArrayFrom(channel, 0);
+		}
+	}
+
+	@NotNull
+	private static byte[] readByteArrayFrom(@NotNull final FileChannel channel, final long position) throws IOException {
+		final long size = channel.size() - position;
+		if (size > MAX_ARRAY_SIZE) {
+			throw new IOException("File is too large for an array: " + size);
+		}
+		final byte[] bytes = new byte[(int) Math.max(size, 0)];
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		long pos = position;
+		int n = 0;
+		while (buffer.hasRemaining() && (n = channel.read(buffer, pos)) >= 0) {
+			pos += n;
+		}
+		if (n < 0) {
+			// 읽는 도중에 파일이 줄었다.
+			return Arrays.copyOf(bytes, buffer.position());
+		}
+		// 크기를 알 수 없는 파일(/proc 등)이거나 읽는 도중에 파일이 늘었다.
+		final ByteBuffer one = ByteBuffer.allocate(1);
+		if (channel.read(one, pos) <= 0) {
+			return bytes;
+		}
+		final ByteArrayBuilder rest = new ByteArrayBuilder();
+		rest.append(bytes).append(one.get(0));
+		pos++;
+		final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		while ((n = channel.read(buf, pos)) >= 0) {
+			rest.append(buf.array(), 0, n);
+			pos += n;
+			buf.clear();
+		}
+		channel.position(pos);
+		return rest.toByteArray();
+	}
+
+	/**
+	 * 파일을 바이트 버퍼로 읽는다.
+	 * {@link #DEFAULT_MAP_THRESHOLD} 이상인 파일은 복사하지 않고 메모리에 매핑한다.
+	 *
+	 * @param path 파일
+	 * @return 힙 버퍼 또는 읽기 전용 {@link MappedByteBuffer}
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static ByteBuffer readByteBufferFrom(@NotNull final Path path) throws IOException {
+		return readByteBufferFrom(path, DEFAULT_MAP_THRESHOLD);
+	}
+
+	/**
+	 * 파일을 바이트 버퍼로 읽는다.
+	 * 2GB가 넘는 파일은 하나의 버퍼로 매핑할 수 없으므로 {@link ChunkedBytes#map(Path, long, long)}을 사용하시오.
+	 *
+	 * @param path         파일
+	 * @param mapThreshold 이 크기 이상이면 메모리에 매핑한다.
+	 * @return 힙 버퍼 또는 읽기 전용 {@link MappedByteBuffer}
+	 * @throws IOException 매핑할 파일이 2GB를 넘으면
+	 */
+	@NotNull
+	public static ByteBuffer readByteBufferFrom(@NotNull final Path path, final long mapThreshold) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return ByteBuffer.wrap(readByteArrayFrom(path));
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < mapThreshold || size == 0) {
+				return ByteBuffer.wrap(readByteArrayFrom(channel, 0));
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to map: " + size);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	@NotNull
+	public static ByteBuffer readByteBufferFrom(@NotNull final File file) throws IOException {
+		return readByteBufferFrom(file.toPath());
+	}
+
+	@NotNull
+	public static ByteBuffer readByteBufferFrom(@NotNull final File file, final long mapThreshold) throws IOException {
+		return readByteBufferFrom(file.toPath(), mapThreshold);
 	}
 
 	@NotNull
@@ -323,6 +478,278 @@ public final class IOz {
 		return sb.toString();
 	}
 
+	/**
+	 * 파일의 줄들을 필요할 때마다 읽는 스트림. 다 쓰면 닫아야 한다.
+	 * 전체를 리스트로 모으지 않으므로 큰 파일에는 {@link #readLinesFrom(Path)} 대신 사용하시오.
+	 *
+	 * @param path UTF-8 텍스트 파일
+	 * @return 닫아야 하는 스트림
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static Stream<String> lines(@NotNull final Path path) throws IOException {
+		return Files.lines(path, StandardCharsets.UTF_8);
+	}
+
+	@NotNull
+	public static Stream<String> lines(@NotNull final File file) throws IOException {
+		return lines(file.toPath());
+	}
+
+	/**
+	 * 입력 스트림의 줄들을 필요할 때마다 읽는 스트림. 닫으면 입력 스트림도 닫힌다.
+	 * 읽는 중의 {@link IOException}은 {@link UncheckedIOException}으로 던져진다.
+	 *
+	 * @param inputStream UTF-8 입력 스트림
+	 * @return 닫아야 하는 스트림
+	 */
+	@NotNull
+	public static Stream<String> lines(@NotNull final InputStream inputStream) {
+		final BufferedReader reader = getReader(inputStream);
+		return reader.lines().onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * 줄마다 문자열을 만들지 않는 줄 단위 읽기
+	 *
+	 * @param path UTF-8 텍스트 파일
+	 * @return 닫아야 하는 line reader
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public static LineReader lineReader(@NotNull final Path path) throws IOException {
+		return new LineReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+	}
+
+	@NotNull
+	public static LineReader lineReader(@NotNull final File file) throws IOException {
+		return lineReader(file.toPath());
+	}
+
+	@NotNull
+	public static LineReader lineReader(@NotNull final InputStream inputStream) {
+		return new LineReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 파일의 줄마다 action 을 실행한다. 넘겨 받은 {@link CharSequence}는 action 안에서만 유효하다.
+	 *
+	 * @param path   UTF-8 텍스트 파일
+	 * @param action 줄 처리
+	 * @throws IOException ..
+	 * @see LineReader
+	 */
+	public static void forEachLine(@NotNull final Path path, @NotNull final Consumer<? super CharSequence> action) throws IOException {
+		try (LineReader reader = lineReader(path)) {
+			CharSequence line;
+			while (null != (line = reader.nextLine())) {
+				action.accept(line);
+			}
+		}
+	}
+
+	/**
+	 * 큰 텍스트 파일의 줄들을 여러 스레드에서 처리한다. action 은 여러 스레드에서 동시에 호출된다.
+	 *
+	 * @param path   UTF-8 텍스트 파일
+	 * @param action 줄 처리. 넘겨 받은 {@link CharSequence}는 호출 안에서만 유효하다.
+	 * @throws IOException ..
+	 * @see #processLinesParallel(Path, long, ForkJoinPool, Supplier, BiConsumer, BinaryOperator)
+	 */
+	public static void processLinesParallel(@NotNull final Path path, @NotNull final Consumer<? super CharSequence> action) throws IOException {
+		processLinesParallel(path, PARALLEL_CHUNK_SIZE, ForkJoinPool.commonPool(),
+				() -> null, (Void result, CharSequence line) -> action.accept(line), (a, b) -> null);
+	}
+
+	/**
+	 * 큰 텍스트 파일의 줄들을 여러 스레드에서 처리하고 결과를 합친다.
+	 *
+	 * @param path        UTF-8 텍스트 파일
+	 * @param identity    구간마다 결과를 모을 컨테이너
+	 * @param accumulator 줄을 결과에 더한다. 넘겨 받은 {@link CharSequence}는 호출 안에서만 유효하다.
+	 * @param combiner    두 구간의 결과를 파일 순서대로 합친다.
+	 * @param <R>         결과
+	 * @return 파일 전체의 결과
+	 * @throws IOException ..
+	 * @see #processLinesParallel(Path, long, ForkJoinPool, Supplier, BiConsumer, BinaryOperator)
+	 */
+	public static <R> R processLinesParallel(@NotNull final Path path, @NotNull final Supplier<R> identity,
+	                                         @NotNull final BiConsumer<R, ? super CharSequence> accumulator,
+	                                         @NotNull final BinaryOperator<R> combiner) throws IOException {
+		return processLinesParallel(path, PARALLEL_CHUNK_SIZE, ForkJoinPool.commonPool(), identity, accumulator, combiner);
+	}
+
+	/**
+	 * 큰 텍스트 파일을 줄바꿈('\n')에 맞춘 chunkSize 정도의 구간으로 나누고,
+	 * 구간마다 메모리에 매핑해서 fork-join 풀에서 디코딩하고 처리한 뒤, 결과를 파일 순서대로 합친다.
+	 * 구간은 줄의 시작에서 시작하므로 줄 구분자는 {@link LineReader}와 같다.
+	 *
+	 * @param path        UTF-8 텍스트 파일
+	 * @param chunkSize   구간의 크기(바이트)
+	 * @param pool        작업을 실행할 풀
+	 * @param identity    구간마다 결과를 모을 컨테이너
+	 * @param accumulator 줄을 결과에 더한다. 넘겨 받은 {@link CharSequence}는 호출 안에서만 유효하다.
+	 * @param combiner    두 구간의 결과를 파일 순서대로 합친다.
+	 * @param <R>         결과
+	 * @return 파일 전체의 결과
+	 * @throws IOException 읽을 수 없거나, 2GB가 넘는 줄이 있으면
+	 */
+	public static <R> R processLinesParallel(@NotNull final Path path, final long chunkSize, @NotNull final ForkJoinPool pool,
+	                                         @NotNull final Supplier<R> identity,
+	                                         @NotNull final BiConsumer<R, ? super CharSequence> accumulator,
+	                                         @NotNull final BinaryOperator<R> combiner) throws IOException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize: " + chunkSize);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long[] bounds = splitAtNewlines(channel, chunkSize);
+			if (bounds.length < 2) {
+				return identity.get();
+			}
+			return pool.invoke(new LinesTask<>(channel, bounds, 0, bounds.length - 1, identity, accumulator, combiner));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 각 구간의 경계. 첫 경계는 0, 마지막 경계는 파일의 크기이고, 나머지는 '\n' 바로 다음이다.
+	 */
+	@NotNull
+	private static long[] splitAtNewlines(@NotNull final FileChannel channel, final long chunkSize) throws IOException {
+		final long size = channel.size();
+		final List<Long> bounds = new ArrayList<>();
+		if (size == 0) {
+			return new long[0];
+		}
+		bounds.add(0L);
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long pos = chunkSize;
+		while (pos < size) {
+			// pos - 1 부터 줄바꿈을 찾는다.
+			long bound = size;
+			long scan = pos - 1;
+			search:
+			while (scan < size) {
+				buffer.clear();
+				final int n = channel.read(buffer, scan);
+				if (n <= 0) {
+					break;
+				}
+				for (int i = 0; i < n; i++) {
+					if (buffer.get(i) == '\n') {
+						bound = scan + i + 1;
+						break search;
+					}
+				}
+				scan += n;
+			}
+			if (bound < size) {
+				bounds.add(bound);
+			}
+			pos = bound + chunkSize;
+		}
+		bounds.add(size);
+
+		final long[] out = new long[bounds.size()];
+		for (int i = 0; i < out.length; i++) {
+			out[i] = bounds.get(i);
+			if (i > 0 && out[i] - out[i - 1] > Integer.MAX_VALUE) {
+				throw new IOException("Line is too long to map: " + (out[i] - out[i - 1]));
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * 구간 [from, to)를 반으로 나누어 처리한다.
+	 */
+	private static final class LinesTask<R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+		private final FileChannel channel;
+		private final long[] bounds;
+		private final int from, to;
+		private final Supplier<R> identity;
+		private final BiConsumer<R, ? super CharSequence> accumulator;
+		private final BinaryOperator<R> combiner;
+
+		private LinesTask(final FileChannel channel, final long[] bounds, final int from, final int to,
+		                  final Supplier<R> identity, final BiConsumer<R, ? super CharSequence> accumulator,
+		                  final BinaryOperator<R> combiner) {
+			this.channel = channel;
+			this.bounds = bounds;
+			this.from = from;
+			this.to = to;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from > 1) {
+				final int mid = (from + to) >>> 1;
+				final LinesTask<R> right = new LinesTask<>(channel, bounds, mid, to, identity, accumulator, combiner);
+				right.fork();
+				final R left = new LinesTask<>(channel, bounds, from, mid, identity, accumulator, combiner).compute();
+				return combiner.apply(left, right.join());
+			}
+			final R result = identity.get();
+			try {
+				final ByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], bounds[to] - bounds[from]);
+				final LineReader reader = new LineReader(new InputStreamReader(
+						new ByteBufferInputStream(range), StandardCharsets.UTF_8), LINE_BUFFER_SIZE);
+				CharSequence line;
+				while (null != (line = reader.nextLine())) {
+					accumulator.accept(result, line);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * 바이트 버퍼를 입력 스트림으로
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(@NotNull final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
 	@NotNull
 	public static List<String> readLinesFrom(@NotNull final Path path) throws IOException {
 		return Files.readAllLines(path);
@@ -411,23 +838,144 @@ public final class IOz {
 		readLineFrom(new FileInputStream(file), listener);
 	}
 
+	/**
+	 * 끝에 도달할 때까지 줄을 읽어 {@link #LINE_BATCH_SIZE}개씩 리스너에 전달한다. 입력 스트림은 닫힌다.
+	 *
+	 * @param inputStream UTF-8 입력 스트림
+	 * @param listener    리스너
+	 * @throws IOException ..
+	 */
 	public static void readLineFrom(@NotNull final InputStream inputStream, @NotNull final OnReadingLineListener listener) throws IOException {
-		BufferedReader reader;
+		readLineFrom(inputStream, listener, LINE_BUFFER_SIZE, LINE_BATCH_SIZE);
+	}
+
+	/**
+	 * 끝에 도달할 때까지 줄을 읽어 batchSize 개씩 리스너에 전달한다. 입력 스트림은 닫힌다.
+	 *
+	 * @param inputStream UTF-8 입력 스트림
+	 * @param listener    리스너
+	 * @param bufferSize  읽기 버퍼의 크기(문자 수)
+	 * @param batchSize   한 번에 전달할 줄의 수
+	 * @throws IOException ..
+	 */
+	public static void readLineFrom(@NotNull final InputStream inputStream, @NotNull final OnReadingLineListener listener,
+	                                final int bufferSize, final int batchSize) throws IOException {
+		try (LineReader reader = new LineReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), bufferSize)) {
+			listener.onStarted();
+			List<String> batch = new ArrayList<>(batchSize);
+			CharSequence line;
+			while (null != (line = reader.nextLine())) {
+				batch.add(line.toString());
+				if (batch.size() >= batchSize) {
+					listener.lines(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				listener.lines(batch);
+			}
+			listener.onFinished();
+		}
+	}
+
+	/**
+	 * 리스너를 별도의 작업 스레드에서 실행해서, 읽기와 처리를 겹친다.
+	 * 읽은 묶음은 최대 queueCapacity 개까지 대기하고, 큐가 차면 읽기가 기다린다.
+	 * 모든 묶음이 처리될 때까지 반환하지 않으며, 리스너에서 던진 예외는 호출한 스레드로 다시 던져진다.
+	 *
+	 * @param inputStream   UTF-8 입력 스트림
+	 * @param listener      리스너. 모든 콜백이 작업 스레드에서 호출된다.
+	 * @param bufferSize    읽기 버퍼의 크기(문자 수)
+	 * @param batchSize     한 번에 전달할 줄의 수
+	 * @param queueCapacity 대기할 수 있는 묶음의 수
+	 * @throws IOException 읽기에 실패하거나, 리스너가 checked 예외를 던지면
+	 */
+	public static void readLineFrom(@NotNull final InputStream inputStream, @NotNull final OnReadingLineListener listener,
+	                                final int bufferSize, final int batchSize, final int queueCapacity) throws IOException {
+		final BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		final List<String> endOfLines = Collections.emptyList();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread worker = new Thread(() -> {
+			try {
+				listener.onStarted();
+				List<String> batch;
+				while (endOfLines != (batch = queue.take())) {
+					listener.lines(batch);
+				}
+				listener.onFinished();
+			} catch (InterruptedException e) {
+				// 읽기에 실패해서 중단됨
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "IOz-line-listener");
+		worker.setDaemon(true);
+		worker.start();
+
+		boolean completed = false;
 		try {
-			reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-		} catch (NoClassDefFoundError e) {
-			reader = new BufferedReader(new InputStreamReader(inputStream, Stringz.UTF_8));
+			readLineFrom(inputStream, new OnReadingLineListener() {
+				@Override
+				public void onStarted() {
+				}
+
+				@Override
+				public void line(final String line) {
+					lines(Collections.singletonList(line));
+				}
+
+				@Override
+				public void lines(final List<String> lines) {
+					enqueue(queue, lines, failure);
+				}
+
+				@Override
+				public void onFinished() {
+					enqueue(queue, endOfLines, failure);
+				}
+			}, bufferSize, batchSize);
+			worker.join();
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (UncheckedIOException e) {
+			// 읽는 스레드가 인터럽트됨
+			throw e.getCause();
+		} catch (CancellationException e) {
+			// 리스너가 실패해서 읽기를 멈춤
+		} finally {
+			if (!completed) {
+				worker.interrupt();
+			}
 		}
 
-		if (null != listener) listener.onStarted();
-		String line = null;
-		while (reader.ready() && null != (line = reader.readLine())) {
-			if (null != listener) listener.line(line);
+		final Throwable e = failure.get();
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (null != e) {
+			throw new IOException(e);
 		}
-		if (null != listener) listener.onFinished();
+	}
 
-		inputStream.close();
-		reader.close();
+	/**
+	 * 작업 스레드가 실패했으면 {@link CancellationException}을 던져 읽기를 멈춘다.
+	 * 기다리는 중에 인터럽트되면 {@link InterruptedIOException}을 감싼 {@link UncheckedIOException}을 던진다.
+	 */
+	private static void enqueue(final BlockingQueue<List<String>> queue, final List<String> batch,
+	                            final AtomicReference<Throwable> failure) {
+		try {
+			while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+				if (null != failure.get()) {
+					throw new CancellationException();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException());
+		}
 	}
 
 	/**
@@ -514,6 +1062,17 @@ public final class IOz {
 
 		public void line(final String line);
 
+		/**
+		 * 여러 줄을 한 번에 받는다. 기본 구현은 줄마다 {@link #line(String)}을 호출한다.
+		 *
+		 * @param lines 읽은 줄들
+		 */
+		public default void lines(final List<String> lines) {
+			for (String line : lines) {
+				line(line);
+			}
+		}
+
 		public void onFinished();
 	}
 
@@ -0,0 +1,183 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 줄 단위로 읽되, 줄마다 문자열을 만들지 않는다.
+ * {@link #nextLine()}이 돌려주는 {@link CharSequence}는 내부 버퍼의 뷰이므로 다음 호출 전까지만 유효하다.
+ * 보관하려면 {@link CharSequence#toString()}으로 복사하시오.
+ * <p>
+ * 버퍼보다 긴 줄을 만날 때만 버퍼가 늘어나므로, 파일 크기와 무관하게 메모리 사용량이 일정하다.
+ * 줄 구분자는 {@link java.io.BufferedReader#readLine()}과 같이 '\n', '\r', "\r\n"이다.
+ *
+ * @author Elex
+ * @see IOz#lineReader(java.nio.file.Path)
+ */
+public final class LineReader implements Closeable {
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private char[] buf;
+	private int start, end;
+	private boolean eof;
+	/**
+	 * 앞에서 '\r'로 줄이 끝났으니, 이어지는 '\n'은 건너뛴다.
+	 */
+	private boolean skipLF;
+	private final Line line = new Line();
+
+	public LineReader(@NotNull final Reader reader) {
+		this(reader, DEFAULT_BUFFER_SIZE);
+	}
+
+	public LineReader(@NotNull final Reader reader, final int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize: " + bufferSize);
+		}
+		this.reader = reader;
+		this.buf = new char[bufferSize];
+	}
+
+	/**
+	 * 다음 줄
+	 *
+	 * @return 줄 구분자를 뺀 내용. 다음 호출 전까지만 유효하다. 끝에 도달하면 null.
+	 * @throws IOException ..
+	 */
+	@Nullable
+	public CharSequence nextLine() throws IOException {
+		int scan = start;
+		while (true) {
+			if (skipLF && start < end) {
+				if (buf[start] == '\n') {
+					start++;
+				}
+				skipLF = false;
+				scan = start;
+			}
+			for (int i = scan; i < end; i++) {
+				final char c = buf[i];
+				if (c == '\n' || c == '\r') {
+					line.set(start, i - start);
+					start = i + 1;
+					skipLF = c == '\r';
+					return line;
+				}
+			}
+			if (eof) {
+				if (start < end) {
+					line.set(start, end - start);
+					start = end;
+					return line;
+				}
+				return null;
+			}
+			scan = end - start;
+			fill();
+		}
+	}
+
+	/**
+	 * 남은 내용을 버퍼의 앞으로 옮기고(가득 찼으면 늘리고) 더 읽는다.
+	 */
+	private void fill() throws IOException {
+		final int remaining = end - start;
+		if (remaining == buf.length) {
+			final char[] larger = new char[buf.length << 1];
+			System.arraycopy(buf, start, larger, 0, remaining);
+			buf = larger;
+		} else if (start > 0) {
+			System.arraycopy(buf, start, buf, 0, remaining);
+		}
+		start = 0;
+		end = remaining;
+		final int n = reader.read(buf, end, buf.length - end);
+		if (n < 0) {
+			eof = true;
+		} else {
+			end += n;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * 내부 버퍼의 한 구간
+	 */
+	private final class Line implements CharSequence {
+		private int offset, length;
+
+		private void set(final int offset, final int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+			}
+			return buf[offset + index];
+		}
+
+		@NotNull
+		@Override
+		public CharSequence subSequence(final int from, final int to) {
+			if (from < 0 || to > length || from > to) {
+				throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+			}
+			return new String(buf, offset + from, to - from);
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return new String(buf, offset, length);
+		}
+	}
+}
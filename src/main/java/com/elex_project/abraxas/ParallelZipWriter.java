@@ -0,0 +1,542 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 항목들을 작업 스레드들에서 압축하고, 순서대로 ZIP 파일에 쓴다.
+ * <p>
+ * 큰 파일은 {@link #BLOCK_SIZE} 단위로 나누어 따로 압축한다. 마지막이 아닌 블록은 SYNC_FLUSH 로 끝내서
+ * 이어 붙인 것이 하나의 deflate 스트림이 되도록 하고, 앞 블록의 끝 32KB를 사전으로 주어 압축률을 유지한다.
+ * 블록마다 구한 CRC 는 합쳐서 항목의 CRC 로 쓴다.
+ * 압축 중인 블록의 수를 제한하므로, 메모리 사용량은 아카이브의 크기와 무관하다.
+ * <p>
+ * 압축하는 항목의 크기는 미리 알 수 없으므로 데이터 디스크립터를 쓰고, 필요하면 ZIP64 레코드를 쓴다.
+ *
+ * @author Elex
+ * @see Compressez#zipParallel(Path, int, java.util.function.Predicate, int, Compressez.OnProgressListener, Path...)
+ */
+final class ParallelZipWriter implements Closeable {
+	/**
+	 * 나누어 압축하는 단위
+	 */
+	static final int BLOCK_SIZE = 1024 * 1024;
+	/**
+	 * deflate 사전의 크기
+	 */
+	private static final int WINDOW_SIZE = 32 * 1024;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int DATA_DESCRIPTOR = 0x08074b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int ZIP64_END = 0x06064b50;
+	private static final int ZIP64_LOCATOR = 0x07064b50;
+	private static final int END = 0x06054b50;
+
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+	private static final int FLAG_UTF8 = 0x0800;
+
+	private final FileChannel channel;
+	private final ExecutorService executor;
+	private final int level;
+	private final int maxPending;
+	@Nullable
+	private final Compressez.OnProgressListener listener;
+	private final ArrayDeque<Piece> pending = new ArrayDeque<>();
+	private final List<Entry> written = new ArrayList<>();
+	private final long started = System.nanoTime();
+	private long position = 0;
+	private long bytes = 0;
+
+	/**
+	 * @param zipFile     만들 파일. 있으면 덮어쓴다.
+	 * @param level       압축 수준
+	 * @param parallelism 압축할 스레드 수
+	 * @param listener    진행 상황. 항목을 쓸 때마다 호출한 스레드에서 호출된다.
+	 */
+	ParallelZipWriter(@NotNull final Path zipFile, final int level, final int parallelism,
+	                  @Nullable final Compressez.OnProgressListener listener) throws IOException {
+		this.channel = FileChannel.open(zipFile, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			final Thread thread = new Thread(runnable, "Compressez-zip");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.level = level;
+		this.maxPending = parallelism * 4;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param name     '/'로 끝나는 이름
+	 * @param modified 수정 시각
+	 */
+	void addDirectory(@NotNull final String name, final long modified) throws IOException {
+		final Entry entry = new Entry(name, modified, true);
+		add(new Piece(entry, CompletableFuture.completedFuture(Block.EMPTY), true, true));
+	}
+
+	/**
+	 * @param file     파일
+	 * @param name     항목의 이름
+	 * @param size     파일의 크기
+	 * @param modified 수정 시각
+	 * @param stored   압축하지 않고 저장할 지
+	 */
+	void addFile(@NotNull final Path file, @NotNull final String name, final long size,
+	             final long modified, final boolean stored) throws IOException {
+		final Entry entry = new Entry(name, modified, stored);
+		entry.file = file;
+		if (stored) {
+			add(new Piece(entry, executor.submit(() -> checksum(file)), true, true));
+			return;
+		}
+		long offset = 0;
+		do {
+			final long from = offset;
+			final int length = (int) Math.min(BLOCK_SIZE, size - from);
+			final boolean last = from + length >= size;
+			add(new Piece(entry, executor.submit(() -> deflate(file, from, length, last, level)), 0 == from, last));
+			offset += length;
+		} while (offset < size);
+	}
+
+	/**
+	 * 남은 항목들을 쓰고, 중앙 디렉토리를 쓴다.
+	 */
+	void finish() throws IOException {
+		while (!pending.isEmpty()) {
+			writeNext();
+		}
+		final long centralOffset = position;
+		for (Entry entry : written) {
+			writeCentralHeader(entry);
+		}
+		writeEnd(centralOffset, position - centralOffset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		channel.close();
+	}
+
+	private void add(@NotNull final Piece piece) throws IOException {
+		while (pending.size() >= maxPending) {
+			writeNext();
+		}
+		pending.add(piece);
+	}
+
+	/**
+	 * 가장 오래된 블록이 압축되기를 기다렸다가 쓴다.
+	 */
+	private void writeNext() throws IOException {
+		final Piece piece = pending.poll();
+		final Block block = Compressez.await(piece.block);
+		final Entry entry = piece.entry;
+		if (piece.first) {
+			entry.offset = position;
+			if (entry.stored) {
+				entry.crc = block.crc;
+				entry.size = block.inputLength;
+				entry.compressedSize = block.inputLength;
+			}
+			writeLocalHeader(entry);
+		}
+		if (entry.stored) {
+			if (null != entry.file) transfer(entry.file, entry.size);
+		} else {
+			entry.crc = piece.first ? block.crc : crc32Combine(entry.crc, block.crc, block.inputLength);
+			entry.size += block.inputLength;
+			entry.compressedSize += block.length;
+			write(ByteBuffer.wrap(block.data, 0, block.length));
+		}
+		if (piece.last) {
+			if (!entry.stored) writeDataDescriptor(entry);
+			written.add(entry);
+			bytes += entry.size;
+			if (null != listener) listener.onProgress(written.size(), bytes, System.nanoTime() - started);
+		}
+	}
+
+	private void transfer(@NotNull final Path file, final long size) throws IOException {
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			long done = 0;
+			while (done < size) {
+				final long n = in.transferTo(done, size - done, channel);
+				if (n <= 0) break;
+				done += n;
+			}
+			position += done;
+			if (done < size) {
+				throw new IOException("File changed while zipping: " + file);
+			}
+		}
+	}
+
+	private void writeLocalHeader(@NotNull final Entry entry) throws IOException {
+		// 저장하는 항목만 크기를 미리 안다.
+		final boolean zip64 = entry.stored && entry.size >= ZIP64_MAGIC;
+		final ByteBuffer buffer = header(30 + entry.name.length + (zip64 ? 20 : 0));
+		buffer.putInt(LOCAL_HEADER);
+		buffer.putShort((short) (zip64 ? 45 : 20));
+		buffer.putShort((short) entry.flags());
+		buffer.putShort((short) entry.method());
+		buffer.putInt((int) entry.dosTime);
+		if (entry.stored) {
+			buffer.putInt((int) entry.crc);
+			buffer.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize));
+			buffer.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+		} else {
+			buffer.putInt(0).putInt(0).putInt(0);
+		}
+		buffer.putShort((short) entry.name.length);
+		buffer.putShort((short) (zip64 ? 20 : 0));
+		buffer.put(entry.name);
+		if (zip64) {
+			buffer.putShort((short) 0x0001).putShort((short) 16);
+			buffer.putLong(entry.size).putLong(entry.compressedSize);
+		}
+		buffer.flip();
+		write(buffer);
+	}
+
+	private void writeDataDescriptor(@NotNull final Entry entry) throws IOException {
+		final boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+		final ByteBuffer buffer = header(zip64 ? 24 : 16);
+		buffer.putInt(DATA_DESCRIPTOR);
+		buffer.putInt((int) entry.crc);
+		if (zip64) {
+			buffer.putLong(entry.compressedSize).putLong(entry.size);
+		} else {
+			buffer.putInt((int) entry.compressedSize).putInt((int) entry.size);
+		}
+		buffer.flip();
+		write(buffer);
+	}
+
+	private void writeCentralHeader(@NotNull final Entry entry) throws IOException {
+		int extra = 0;
+		if (entry.size >= ZIP64_MAGIC) extra += 8;
+		if (entry.compressedSize >= ZIP64_MAGIC) extra += 8;
+		if (entry.offset >= ZIP64_MAGIC) extra += 8;
+		final int version = extra > 0 ? 45 : 20;
+		final ByteBuffer buffer = header(46 + entry.name.length + (extra > 0 ? 4 + extra : 0));
+		buffer.putInt(CENTRAL_HEADER);
+		buffer.putShort((short) version);
+		buffer.putShort((short) version);
+		buffer.putShort((short) entry.flags());
+		buffer.putShort((short) entry.method());
+		buffer.putInt((int) entry.dosTime);
+		buffer.putInt((int) entry.crc);
+		buffer.putInt((int) Math.min(entry.compressedSize, ZIP64_MAGIC));
+		buffer.putInt((int) Math.min(entry.size, ZIP64_MAGIC));
+		buffer.putShort((short) entry.name.length);
+		buffer.putShort((short) (extra > 0 ? 4 + extra : 0));
+		buffer.putShort((short) 0); // comment
+		buffer.putShort((short) 0); // disk
+		buffer.putShort((short) 0); // internal attributes
+		buffer.putInt(entry.directory ? 0x10 : 0);
+		buffer.putInt((int) Math.min(entry.offset, ZIP64_MAGIC));
+		buffer.put(entry.name);
+		if (extra > 0) {
+			buffer.putShort((short) 0x0001).putShort((short) extra);
+			if (entry.size >= ZIP64_MAGIC) buffer.putLong(entry.size);
+			if (entry.compressedSize >= ZIP64_MAGIC) buffer.putLong(entry.compressedSize);
+			if (entry.offset >= ZIP64_MAGIC) buffer.putLong(entry.offset);
+		}
+		buffer.flip();
+		write(buffer);
+	}
+
+	private void writeEnd(final long centralOffset, final long centralSize) throws IOException {
+		final int count = written.size();
+		if (count >= ZIP64_MAGIC_COUNT || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+			final long zip64End = position;
+			final ByteBuffer buffer = header(56 + 20);
+			buffer.putInt(ZIP64_END);
+			buffer.putLong(44);
+			buffer.putShort((short) 45).putShort((short) 45);
+			buffer.putInt(0).putInt(0);
+			buffer.putLong(count).putLong(count);
+			buffer.putLong(centralSize).putLong(centralOffset);
+			buffer.putInt(ZIP64_LOCATOR);
+			buffer.putInt(0);
+			buffer.putLong(zip64End);
+			buffer.putInt(1);
+			buffer.flip();
+			write(buffer);
+		}
+		final ByteBuffer buffer = header(22);
+		buffer.putInt(END);
+		buffer.putShort((short) 0).putShort((short) 0);
+		buffer.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+		buffer.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+		buffer.putInt((int) Math.min(centralSize, ZIP64_MAGIC));
+		buffer.putInt((int) Math.min(centralOffset, ZIP64_MAGIC));
+		buffer.putShort((short) 0);
+		buffer.flip();
+		write(buffer);
+	}
+
+	@NotNull
+	private static ByteBuffer header(final int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(@NotNull final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer);
+		}
+	}
+
+	/**
+	 * 저장할 파일의 CRC
+	 */
+	@NotNull
+	private static Block checksum(@NotNull final Path file) throws IOException {
+		final CRC32 crc = new CRC32();
+		final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		long total = 0;
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				crc.update(buffer.array(), 0, n);
+				total += n;
+				buffer.clear();
+			}
+		}
+		return new Block(null, 0, crc.getValue(), total);
+	}
+
+	/**
+	 * 파일의 한 구간을 raw deflate 로 압축한다. 앞 32KB를 사전으로 쓴다.
+	 */
+	@NotNull
+	private static Block deflate(@NotNull final Path file, final long position, final int length,
+	                             final boolean last, final int level) throws IOException {
+		final int prefix = (int) Math.min(WINDOW_SIZE, position);
+		final byte[] input = new byte[prefix + length];
+		final ByteBuffer buffer = ByteBuffer.wrap(input);
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (in.read(buffer, position - prefix + buffer.position()) < 0) break;
+			}
+		}
+		final int n = Math.max(0, buffer.position() - prefix);
+		if (n < length) {
+			throw new IOException("File changed while zipping: " + file);
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(input, prefix, n);
+
+		final Deflater deflater = ZlibPool.deflater(level, Deflater.DEFAULT_STRATEGY, true);
+		try {
+			if (prefix > 0) deflater.setDictionary(input, 0, prefix);
+			deflater.setInput(input, prefix, n);
+			byte[] out = new byte[n + (n >>> 8) + 64];
+			int len = 0;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					if (len == out.length) out = Arrays.copyOf(out, out.length * 2);
+					len += deflater.deflate(out, len, out.length - len);
+				}
+			} else {
+				// 출력 버퍼를 다 채우지 않았으면 모두 내보낸 것이다.
+				do {
+					if (len == out.length) out = Arrays.copyOf(out, out.length * 2);
+					len += deflater.deflate(out, len, out.length - len, Deflater.SYNC_FLUSH);
+				} while (len == out.length);
+			}
+			return new Block(out, len, crc.getValue(), n);
+		} finally {
+			ZlibPool.release(deflater, level, Deflater.DEFAULT_STRATEGY, true);
+		}
+	}
+
+	/**
+	 * 이어 붙인 두 데이터의 CRC32. zlib 의 crc32_combine 과 같다.
+	 *
+	 * @param crc1 앞 데이터의 CRC
+	 * @param crc2 뒤 데이터의 CRC
+	 * @param len2 뒤 데이터의 길이
+	 * @return 이어 붙인 데이터의 CRC
+	 */
+	static long crc32Combine(final long crc1, final long crc2, long len2) {
+		if (len2 <= 0) return crc1;
+		final long[] even = new long[32];
+		final long[] odd = new long[32];
+
+		// 0 비트 하나를 넣는 연산
+		odd[0] = 0xEDB88320L;
+		long row = 1;
+		for (int n = 1; n < 32; n++) {
+			odd[n] = row;
+			row <<= 1;
+		}
+		gf2MatrixSquare(even, odd); // 0 비트 두 개
+		gf2MatrixSquare(odd, even); // 0 비트 네 개
+
+		// 0 바이트 len2 개를 넣는다.
+		long crc = crc1;
+		do {
+			gf2MatrixSquare(even, odd);
+			if ((len2 & 1) != 0) crc = gf2MatrixTimes(even, crc);
+			len2 >>= 1;
+			if (len2 == 0) break;
+			gf2MatrixSquare(odd, even);
+			if ((len2 & 1) != 0) crc = gf2MatrixTimes(odd, crc);
+			len2 >>= 1;
+		} while (len2 != 0);
+		return (crc ^ crc2) & 0xFFFFFFFFL;
+	}
+
+	private static long gf2MatrixTimes(@NotNull final long[] matrix, long vector) {
+		long sum = 0;
+		for (int i = 0; vector != 0; i++, vector >>>= 1) {
+			if ((vector & 1) != 0) sum ^= matrix[i];
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(@NotNull final long[] square, @NotNull final long[] matrix) {
+		for (int n = 0; n < 32; n++) {
+			square[n] = gf2MatrixTimes(matrix, matrix[n]);
+		}
+	}
+
+	/**
+	 * MS-DOS 형식의 날짜와 시각
+	 */
+	private static long dosTime(final long millis) {
+		final LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+		if (time.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (long) (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+				| time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+	}
+
+	private static final class Entry {
+		private final byte[] name;
+		private final long dosTime;
+		private final boolean stored;
+		private final boolean directory;
+		@Nullable
+		private Path file;
+		private long offset;
+		private long crc;
+		private long size;
+		private long compressedSize;
+
+		private Entry(@NotNull final String name, final long modified, final boolean stored) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.dosTime = dosTime(modified);
+			this.stored = stored;
+			this.directory = name.endsWith("/");
+		}
+
+		private int method() {
+			return stored ? 0 : 8;
+		}
+
+		private int flags() {
+			return stored ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+		}
+	}
+
+	/**
+	 * 순서대로 쓸 블록 하나
+	 */
+	private static final class Piece {
+		private final Entry entry;
+		private final Future<Block> block;
+		private final boolean first;
+		private final boolean last;
+
+		private Piece(final Entry entry, final Future<Block> block, final boolean first, final boolean last) {
+			this.entry = entry;
+			this.block = block;
+			this.first = first;
+			this.last = last;
+		}
+	}
+
+	/**
+	 * 압축한 블록
+	 */
+	private static final class Block {
+		private static final Block EMPTY = new Block(null, 0, 0, 0);
+
+		private final byte[] data;
+		private final int length;
+		private final long crc;
+		private final long inputLength;
+
+		private Block(final byte[] data, final int length, final long crc, final long inputLength) {
+			this.data = data;
+			this.length = length;
+			this.crc = crc;
+			this.inputLength = inputLength;
+		}
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 디렉토리를 주기적으로 훑어서 변경을 찾는 {@link FileWatcher.Backend}.
+ * {@link WatchService}가 이벤트를 놓치는 네트워크 파일 시스템이나 일부 컨테이너 오버레이에서 사용한다.
+ * <p>
+ * 한 번에 감시 대상마다 최대 statBudget 개의 항목만 stat 하고, 나머지 디렉토리는 다음 차례에 돌아가며 훑는다.
+ * 디렉토리들은 pool 에서 나누어 훑는다.
+ * 변경을 찾으면 가장 짧은 간격으로 훑고, 변경이 없으면 간격을 두 배씩 늘린다.
+ * 디렉토리는 그 안의 항목이 바뀌어도 수정으로 알리지 않는다.
+ *
+ * <pre>
+ * FileWatcher watcher = new FileWatcher(new PollingWatchBackend());
+ * watcher.addWatchPointWithSubDirectories(path);
+ * watcher.start(handler);
+ * </pre>
+ *
+ * @author Elex
+ * @see FileWatcher#FileWatcher(FileWatcher.Backend)
+ */
+public final class PollingWatchBackend implements FileWatcher.Backend {
+	public static final long DEFAULT_MIN_INTERVAL_MILLIS = 100;
+	public static final long DEFAULT_MAX_INTERVAL_MILLIS = 5000;
+	public static final int DEFAULT_STAT_BUDGET = 10_000;
+
+	private final long minIntervalMillis;
+	private final long maxIntervalMillis;
+	private final int statBudget;
+	private final ForkJoinPool pool;
+	private final Map<Path, Root> roots = new LinkedHashMap<>();
+
+	private long intervalMillis;
+	private long nextScanMillis;
+	private volatile boolean closed = false;
+
+	public PollingWatchBackend() {
+		this(DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS, DEFAULT_STAT_BUDGET, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param minIntervalMillis 변경이 이어질 때 훑는 간격
+	 * @param maxIntervalMillis 변경이 없을 때 늘어나는 최대 간격
+	 * @param statBudget        한 번에 감시 대상마다 stat 할 항목의 수
+	 * @param pool              디렉토리를 나누어 훑을 곳
+	 */
+	public PollingWatchBackend(final long minIntervalMillis, final long maxIntervalMillis,
+	                           final int statBudget, @NotNull final ForkJoinPool pool) {
+		if (minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+			throw new IllegalArgumentException("Invalid interval: " + minIntervalMillis + ", " + maxIntervalMillis);
+		}
+		if (statBudget <= 0) {
+			throw new IllegalArgumentException("Invalid stat budget: " + statBudget);
+		}
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxIntervalMillis = maxIntervalMillis;
+		this.statBudget = statBudget;
+		this.pool = pool;
+		this.intervalMillis = minIntervalMillis;
+		this.nextScanMillis = now() + minIntervalMillis;
+	}
+
+	/**
+	 * 현재 상태를 기준으로 기록한다. 이때는 아무것도 알리지 않는다. 닫힌 뒤에 호출하면 다시 연다.
+	 */
+	@Override
+	public synchronized void addRoot(@NotNull final Path dir, final boolean recursive) throws IOException {
+		closed = false;
+		final Root existing = roots.get(dir);
+		if (null != existing && (existing.recursive || !recursive)) return;
+		if (!Files.isDirectory(dir)) {
+			throw new NotDirectoryException(dir.toString());
+		}
+
+		final Root root = new Root(dir, recursive);
+		List<Path> wave = Collections.singletonList(dir);
+		while (!wave.isEmpty()) {
+			final Listing listing = list(wave);
+			final List<Path> next = new ArrayList<>();
+			for (Path d : wave) {
+				final Map<Path, State> children = listing.listed.get(d);
+				if (null == children) continue;
+				root.dirs.put(d, children);
+				if (recursive) {
+					for (Map.Entry<Path, State> child : children.entrySet()) {
+						if (child.getValue().directory) next.add(child.getKey());
+					}
+				}
+			}
+			wave = next;
+		}
+		roots.put(dir, root);
+		intervalMillis = minIntervalMillis;
+		nextScanMillis = now() + minIntervalMillis;
+	}
+
+	@Override
+	public boolean poll(final long timeoutMillis, @NotNull final FileWatcher.Handler handler) throws InterruptedException {
+		if (closed) return false;
+		final long wait;
+		synchronized (this) {
+			wait = nextScanMillis - now();
+		}
+		if (wait > timeoutMillis) {
+			Thread.sleep(timeoutMillis);
+			return !closed;
+		}
+		if (wait > 0) Thread.sleep(wait);
+		return !closed && scan(handler);
+	}
+
+	@Override
+	public synchronized int getWatchedDirectoryCount() {
+		int count = 0;
+		for (Root root : roots.values()) {
+			count += root.dirs.size();
+		}
+		return count;
+	}
+
+	/**
+	 * 지금까지 훑는 간격. 변경이 없으면 늘어난다.
+	 */
+	public synchronized long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+	/**
+	 * 기록한 상태를 버린다.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		roots.clear();
+	}
+
+	/**
+	 * 감시 대상마다 차례가 된 디렉토리들을 예산만큼 훑는다.
+	 *
+	 * @return 감시 대상이 모두 사라졌으면 false
+	 */
+	private synchronized boolean scan(@NotNull final FileWatcher.Handler handler) {
+		boolean changed = false;
+		boolean removed = false;
+		final Iterator<Root> iterator = roots.values().iterator();
+		while (iterator.hasNext()) {
+			final Root root = iterator.next();
+			if (root.pending.isEmpty()) {
+				//한 바퀴를 다 돌았다.
+				root.pending.addAll(root.dirs.keySet());
+			}
+			final List<Path> batch = new ArrayList<>();
+			int budget = statBudget;
+			while (budget > 0 && !root.pending.isEmpty()) {
+				final Path dir = root.pending.poll();
+				final Map<Path, State> known = root.dirs.get(dir);
+				if (null == known) continue;
+				batch.add(dir);
+				budget -= known.size() + 1;
+			}
+
+			final Listing listing = list(batch);
+			for (Path dir : batch) {
+				if (!root.dirs.containsKey(dir)) continue;
+				if (listing.gone.contains(dir)) {
+					//부모 디렉토리를 훑을 때 디렉토리 자신의 삭제를 알린다.
+					forget(root, dir, handler);
+					changed = true;
+				} else {
+					final Map<Path, State> children = listing.listed.get(dir);
+					if (null != children) {
+						changed |= apply(root, dir, children, handler);
+					}
+				}
+			}
+			if (root.dirs.isEmpty()) {
+				//감시 대상이 사라졌다.
+				handler.onDeleted(root.path);
+				iterator.remove();
+				removed = true;
+			}
+		}
+
+		if (changed) {
+			intervalMillis = minIntervalMillis;
+		} else {
+			intervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+		}
+		nextScanMillis = now() + intervalMillis;
+		return !removed || !roots.isEmpty();
+	}
+
+	/**
+	 * 디렉토리의 새 목록을 기록된 것과 비교해서 알린다.
+	 *
+	 * @return 바뀐 것이 있는 지
+	 */
+	private boolean apply(@NotNull final Root root, @NotNull final Path dir,
+	                      @NotNull final Map<Path, State> children, @NotNull final FileWatcher.Handler handler) {
+		final Map<Path, State> known = root.dirs.put(dir, children);
+		boolean changed = false;
+		for (Map.Entry<Path, State> entry : known.entrySet()) {
+			if (children.containsKey(entry.getKey())) continue;
+			if (entry.getValue().directory) forget(root, entry.getKey(), handler);
+			handler.onDeleted(entry.getKey());
+			changed = true;
+		}
+		for (Map.Entry<Path, State> entry : children.entrySet()) {
+			final Path path = entry.getKey();
+			final State state = entry.getValue();
+			final State old = known.get(path);
+			if (null == old) {
+				handler.onCreated(path);
+				watchNewDirectory(root, path, state);
+				changed = true;
+			} else if (old.directory != state.directory) {
+				if (old.directory) forget(root, path, handler);
+				handler.onModified(path);
+				watchNewDirectory(root, path, state);
+				changed = true;
+			} else if (!state.directory && (old.size != state.size || old.modified != state.modified)) {
+				handler.onModified(path);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * 새 하위 디렉토리는 다음 차례에 바로 훑어서, 그 안의 항목들을 생성으로 알린다.
+	 */
+	private static void watchNewDirectory(@NotNull final Root root, @NotNull final Path path, @NotNull final State state) {
+		if (state.directory && root.recursive) {
+			root.dirs.put(path, new HashMap<>());
+			root.pending.addFirst(path);
+		}
+	}
+
+	/**
+	 * 사라진 디렉토리 안의 기록을 지우고 삭제로 알린다.
+	 */
+	private static void forget(@NotNull final Root root, @NotNull final Path dir, @NotNull final FileWatcher.Handler handler) {
+		final Map<Path, State> children = root.dirs.remove(dir);
+		if (null == children) return;
+		for (Map.Entry<Path, State> child : children.entrySet()) {
+			if (child.getValue().directory) forget(root, child.getKey(), handler);
+			handler.onDeleted(child.getKey());
+		}
+	}
+
+	@NotNull
+	private Listing list(@NotNull final List<Path> dirs) {
+		final Listing listing = new Listing();
+		if (dirs.size() == 1) {
+			listing.list(dirs.get(0));
+		} else if (!dirs.isEmpty()) {
+			pool.invoke(new ListTask(dirs, 0, dirs.size(), listing));
+		}
+		return listing;
+	}
+
+	private static long now() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	/**
+	 * 감시 대상 하나의 기록
+	 */
+	private static final class Root {
+		private final Path path;
+		private final boolean recursive;
+		/**
+		 * 디렉토리마다 그 안의 항목들
+		 */
+		private final Map<Path, Map<Path, State>> dirs = new HashMap<>();
+		/**
+		 * 이번 바퀴에서 아직 훑지 않은 디렉토리
+		 */
+		private final ArrayDeque<Path> pending = new ArrayDeque<>();
+
+		private Root(final Path path, final boolean recursive) {
+			this.path = path;
+			this.recursive = recursive;
+		}
+	}
+
+	private static final class State {
+		private final boolean directory;
+		private final long size;
+		private final long modified;
+
+		private State(final boolean directory, final long size, final long modified) {
+			this.directory = directory;
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+
+	/**
+	 * 디렉토리들을 훑은 결과
+	 */
+	private static final class Listing {
+		private final Map<Path, Map<Path, State>> listed = new ConcurrentHashMap<>();
+		/**
+		 * 사라졌거나 디렉토리가 아니게 된 것
+		 */
+		private final Set<Path> gone = ConcurrentHashMap.newKeySet();
+
+		private void list(@NotNull final Path dir) {
+			final Map<Path, State> children = new HashMap<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+				for (Path child : stream) {
+					final State state = stat(child);
+					if (null != state) children.put(child, state);
+				}
+			} catch (NoSuchFileException | NotDirectoryException e) {
+				gone.add(dir);
+				return;
+			} catch (IOException | DirectoryIteratorException e) {
+				// 일시적인 오류일 수 있으니, 다음 차례까지 기록을 그대로 둔다.
+				return;
+			}
+			listed.put(dir, children);
+		}
+
+		@Nullable
+		private static State stat(@NotNull final Path path) {
+			try {
+				final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				return new State(attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis());
+			} catch (IOException e) {
+				// 그 사이에 사라졌다.
+				return null;
+			}
+		}
+	}
+
+	private static final class ListTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<Path> dirs;
+		private final int from;
+		private final int to;
+		private final Listing listing;
+
+		private ListTask(final List<Path> dirs, final int from, final int to, final Listing listing) {
+			this.dirs = dirs;
+			this.from = from;
+			this.to = to;
+			this.listing = listing;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				listing.list(dirs.get(from));
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new ListTask(dirs, from, middle, listing), new ListTask(dirs, middle, to, listing));
+		}
+	}
+}
@@ -105,6 +105,44 @@ public final class RegExz {
 		return sb.toString();
 	}
 
+	/**
+	 * 항목 이름에 쓰는 glob. '*'(없는 것을 포함한 어떠한 수의 문자, '/'도 포함)와 '?'(어떠한 하나의 문자)만 와일드카드이고,
+	 * 나머지는 '$', '[' 등을 포함해서 글자 그대로 맞춘다.
+	 *
+	 * @param glob 패턴
+	 * @return 이름 전체와 맞추어 볼 정규식
+	 * @see #globPrefixLength(String)
+	 */
+	@NotNull
+	static Pattern compileLiteralGlob(@NotNull final String glob) {
+		final StringBuilder sb = new StringBuilder(glob.length() + 16);
+		int start = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			if (c == '*' || c == '?') {
+				if (i > start) sb.append(Pattern.quote(glob.substring(start, i)));
+				sb.append(c == '*' ? ".*" : ".");
+				start = i + 1;
+			}
+		}
+		if (start < glob.length()) sb.append(Pattern.quote(glob.substring(start)));
+		return Pattern.compile(sb.toString(), Pattern.DOTALL);
+	}
+
+	/**
+	 * {@link #compileLiteralGlob(String)}의 패턴에서 첫 와일드카드 앞까지, 글자 그대로인 부분의 길이
+	 *
+	 * @param glob 패턴
+	 * @return 맞는 이름들이 모두 이만큼의 접두어로 시작한다.
+	 */
+	static int globPrefixLength(@NotNull final String glob) {
+		int i = 0;
+		while (i < glob.length() && glob.charAt(i) != '*' && glob.charAt(i) != '?') {
+			i++;
+		}
+		return i;
+	}
+
 	@NotNull
 	private static String regexFromGlob2(@NotNull String line) {
 		//LOG.info("got line [" + line + "]");
@@ -0,0 +1,482 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.EventListener;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 하나의 생산자 스레드와 하나의 소비자 스레드가 락 없이 사용하는 환형 바이트 버퍼.
+ * <p/>
+ * {@link CircularByteBuffer}와 같은 메서드를 제공하지만, 모니터를 잡지 않고
+ * 읽기/쓰기 커서를 순서가 보장된 쓰기(lazySet)로 주고 받는다.
+ * 용량은 2의 거듭제곱으로 올림되며, 동적으로 늘어나지 않는다.
+ * <p/>
+ * put 계열 메서드는 생산자 스레드에서만, get/seek/skip 계열 메서드는 소비자 스레드에서만 호출해야 한다.
+ * available(), free(), capacity()는 어느 스레드에서나 호출할 수 있다.
+ * 리스너는 생산자 스레드에서 호출되므로 버퍼를 읽을 수 없다. 소비자에게 알리기만 하시오.
+ *
+ * @see CircularByteBuffer
+ */
+public class SpscCircularByteBuffer {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * 바이트 버퍼
+	 */
+	private final byte[] buffer;
+	private final int mask;
+
+	/**
+	 * 읽기 커서. 소비자 스레드만 갱신한다.
+	 */
+	private final AtomicLong head = new AtomicLong();
+	/**
+	 * 쓰기 커서. 생산자 스레드만 갱신한다.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	/**
+	 * 생산자가 마지막으로 읽은 읽기 커서
+	 */
+	private long headCache;
+	/**
+	 * 소비자가 마지막으로 읽은 쓰기 커서
+	 */
+	private long tailCache;
+
+	private final CopyOnWriteArrayList<InputListener> listeners = new CopyOnWriteArrayList<>();
+	/**
+	 * 리스너를 호출하는 중인 생산자 스레드. 리스너 안에서 읽지 못하게 막는다.
+	 */
+	private Thread notifying;
+
+	public SpscCircularByteBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 버퍼 크기는 동적으로 변경할 수 없음.
+	 *
+	 * @param capacity 2의 거듭제곱으로 올림된다.
+	 */
+	public SpscCircularByteBuffer(final int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.buffer = new byte[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * 읽을 수 있는 데이터를 모두 버린다. 소비자 스레드에서 호출할 것.
+	 */
+	public void clear() {
+		checkConsumer();
+		tailCache = tail.get();
+		head.lazySet(tailCache);
+	}
+
+	/**
+	 * 소비자 쪽에서 읽을 수 있는 크기. 캐시된 쓰기 커서가 부족하면 새로 읽는다.
+	 */
+	private int readable(final long h, final int wanted) {
+		checkConsumer();
+		long n = tailCache - h;
+		if (n < wanted) {
+			tailCache = tail.get();
+			n = tailCache - h;
+		}
+		return (int) n;
+	}
+
+	/**
+	 * 리스너 안에서 읽으면 두 번째 소비자가 되므로 막는다.
+	 *
+	 * @throws IllegalStateException 리스너 안에서 호출하면
+	 */
+	private void checkConsumer() {
+		final Thread producer = notifying;
+		if (null != producer && producer == Thread.currentThread()) {
+			throw new IllegalStateException("Listeners must not read from the buffer.");
+		}
+	}
+
+	/**
+	 * 생산자 쪽에서 쓸 수 있는 크기. 캐시된 읽기 커서가 부족하면 새로 읽는다.
+	 */
+	private int writable(final long t, final int wanted) {
+		long n = buffer.length - (t - headCache);
+		if (n < wanted) {
+			headCache = head.get();
+			n = buffer.length - (t - headCache);
+		}
+		return (int) n;
+	}
+
+	/**
+	 * 한 바이트 읽기
+	 *
+	 * @return 읽을 데이터가 없으면 -1
+	 */
+	public int get() {
+		final long h = head.get();
+		if (readable(h, 1) < 1) {
+			return -1;
+		}
+		final byte value = buffer[(int) h & mask];
+		head.lazySet(h + 1);
+		return value;
+	}
+
+	/**
+	 * 버퍼의 크기만큼 읽기
+	 *
+	 * @param dst 버퍼
+	 * @return 읽어들인 실제 데이터의 바이트 크기. 읽을 데이터가 없었다면 0
+	 */
+	public int get(final byte[] dst) {
+		return get(dst, 0, dst.length);
+	}
+
+	/**
+	 * 버퍼의 크기만큼 읽기
+	 *
+	 * @param dst 버퍼
+	 * @param off 옵셋
+	 * @param len 길이
+	 * @return 읽어들인 실제 데이터의 바이트 크기. 읽을 데이터가 없었다면 0
+	 */
+	public int get(final byte[] dst, final int off, final int len) {
+		final long h = head.get();
+		final int count = Math.min(readable(h, len), len);
+		if (count <= 0) {
+			return 0;
+		}
+		final int idx = (int) h & mask;
+		final int first = Math.min(count, buffer.length - idx);
+		System.arraycopy(buffer, idx, dst, off, first);
+		if (count > first) {
+			System.arraycopy(buffer, 0, dst, off + first, count - first);
+		}
+		head.lazySet(h + count);
+		return count;
+	}
+
+	/**
+	 * 읽기 커서에서부터 size 바이트를 빅 엔디언 정수로 읽고, 커서를 옮긴다.
+	 */
+	private long getBigEndian(final int size) throws IndexOutOfBoundsException {
+		final long h = head.get();
+		if (readable(h, size) < size) {
+			throw new IndexOutOfBoundsException();
+		}
+		long value = 0;
+		for (int i = 0; i < size; i++) {
+			value = (value << 8) | (buffer[(int) (h + i) & mask] & 0xFF);
+		}
+		head.lazySet(h + size);
+		return value;
+	}
+
+	public byte getByte() throws IndexOutOfBoundsException {
+		return (byte) getBigEndian(Numberz.BYTE_SIZE);
+	}
+
+	public short getShort() throws IndexOutOfBoundsException {
+		return (short) getBigEndian(Numberz.SHORT_SIZE);
+	}
+
+	public int getInt() throws IndexOutOfBoundsException {
+		return (int) getBigEndian(Numberz.INT_SIZE);
+	}
+
+	public long getLong() throws IndexOutOfBoundsException {
+		return getBigEndian(Numberz.LONG_SIZE);
+	}
+
+	/**
+	 * 버퍼의 읽기 가능한 영역 내에서 특정 바이트의 위치(현재 커서 기준)를 반환.
+	 *
+	 * @param b 찾고자 하는 바이트
+	 * @return 찾은 바이트의 위치, 없으면 -1.
+	 */
+	public int seek(final byte b) {
+		final long h = head.get();
+		final int n = readable(h, Integer.MAX_VALUE);
+		for (int i = 0; i < n; i++) {
+			if (buffer[(int) (h + i) & mask] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public String getString(final byte terminalByte)
+			throws IndexOutOfBoundsException {
+		try {
+			return getString(terminalByte, StandardCharsets.UTF_8);
+		} catch (NoClassDefFoundError e) {
+			try {
+				return getString(terminalByte, Stringz.UTF_8);
+			} catch (UnsupportedEncodingException e1) {
+				throw new RuntimeException(e1);
+			}
+		}
+	}
+
+	/**
+	 * 버퍼에서 문자열을 읽는다.
+	 *
+	 * @param terminalByte 문자열의 마지막 바이트. 종료 문자.
+	 * @param encoding     인코딩.
+	 * @return 버퍼에 종료 문자가 없는 때(seek() 반환 값이 0보다 작은 경우)에는 null을 반환.
+	 * @throws IndexOutOfBoundsException e
+	 * @throws UnsupportedEncodingException e
+	 */
+	public String getString(final byte terminalByte, final String encoding)
+			throws IndexOutOfBoundsException, UnsupportedEncodingException {
+		int pos = seek(terminalByte);
+		if (pos >= 0) {
+			final byte[] s = new byte[pos + 1];
+			get(s);
+			return new String(s, encoding);
+		}
+		return null;
+	}
+
+	public String getString(final byte terminalByte, final Charset encoding)
+			throws IndexOutOfBoundsException {
+		int pos = seek(terminalByte);
+		if (pos >= 0) {
+			final byte[] s = new byte[pos + 1];
+			get(s);
+			return new String(s, encoding);
+		}
+		return null;
+	}
+
+	/**
+	 * 한 바이트 저장
+	 *
+	 * @param value 바이트
+	 * @return 버퍼가 가득 차서 저장하지 못했으면 false
+	 */
+	public boolean put(final byte value) {
+		final long t = tail.get();
+		if (writable(t, 1) < 1) {
+			return false;
+		}
+		buffer[(int) t & mask] = value;
+		tail.lazySet(t + 1);
+
+		if (!listeners.isEmpty()) {
+			notifying = Thread.currentThread();
+			try {
+				for (InputListener listener : listeners) {
+					if (listener.getTrigger() == value) {
+						listener.onDataAvailable(value, this);
+					}
+				}
+			} finally {
+				notifying = null;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 바이트 배열을 저장
+	 *
+	 * @param src 바이트 배열
+	 * @return 실제로 저장한 바이트 크기
+	 */
+	public int put(final byte[] src) {
+		return put(src, 0, src.length);
+	}
+
+	/**
+	 * 바이트 배열을 저장. 버퍼의 남은 공간만큼만 저장한다.
+	 *
+	 * @param src 바이트 배열
+	 * @param off 옵셋
+	 * @param len 길이
+	 * @return 실제로 저장한 바이트 크기
+	 */
+	public int put(final byte[] src, final int off, final int len) {
+		final long t = tail.get();
+		final int count = Math.min(writable(t, len), len);
+		if (count <= 0) {
+			return 0;
+		}
+		final int idx = (int) t & mask;
+		final int first = Math.min(count, buffer.length - idx);
+		System.arraycopy(src, off, buffer, idx, first);
+		if (count > first) {
+			System.arraycopy(src, off + first, buffer, 0, count - first);
+		}
+		tail.lazySet(t + count);
+
+		if (!listeners.isEmpty()) {
+			notifying = Thread.currentThread();
+			try {
+				for (InputListener listener : listeners) {
+					final byte trigger = listener.getTrigger();
+					for (int i = 0; i < count; i++) {
+						if (trigger == src[off + i]) {
+							listener.onDataAvailable(trigger, this);
+							break;
+						}
+					}
+				}
+			} finally {
+				notifying = null;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 다음에 읽게 될 첫 번째 바이트
+	 *
+	 * @return 읽을 데이터가 없으면 -1
+	 */
+	public int peek() {
+		final long h = head.get();
+		return readable(h, 1) > 0 ? buffer[(int) h & mask] : -1;
+	}
+
+	/**
+	 * Skips the given count of bytes, but at most the currently available count.
+	 *
+	 * @return number of bytes actually skipped from this buffer (0 if no bytes are available)
+	 */
+	public int skip(int count) {
+		final long h = head.get();
+		count = Math.min(count, readable(h, count));
+		if (count <= 0) {
+			return 0;
+		}
+		head.lazySet(h + count);
+		return count;
+	}
+
+	public int skipUntil(final byte b) {
+		int pos = seek(b);
+		return pos > 0 ? skip(pos) : 0;
+	}
+
+	/**
+	 * 버퍼의 최대 저장 공간 크기
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * 읽을 수 있는 데이터의 크기
+	 */
+	public int available() {
+		final long h = head.get();
+		return (int) (tail.get() - h);
+	}
+
+	/**
+	 * 쓰기 가능한 데이터의 크기
+	 */
+	public int free() {
+		return buffer.length - available();
+	}
+
+	@Override
+	public String toString() {
+		return "[" + head.get() + ", " + tail.get() + "]\t" + Bytez.toHex(":", buffer);
+	}
+
+	/**
+	 * 입력 데이터 모니터를 등록.
+	 * 만일, 동일한 바이트의 트리거가 이미 등록되어 있다면 기존의 트리거는 제거된다.
+	 *
+	 * @param listener listener
+	 */
+	public void addListener(@NotNull final InputListener listener) {
+		removeListener(listener.getTrigger());
+		listeners.add(listener);
+	}
+
+	public void removeListener(final InputListener listener) {
+		listeners.remove(listener);
+	}
+
+	public void removeListener(final byte trigger) {
+		for (InputListener l : listeners) {
+			if (l.getTrigger() == trigger) {
+				listeners.remove(l);
+			}
+		}
+	}
+
+	public void removeAllListeners() {
+		listeners.clear();
+	}
+
+	/**
+	 * 버퍼 입력 모니터
+	 */
+	public interface InputListener extends EventListener {
+		/**
+		 * 감시할 바이트 데이터
+		 *
+		 * @return 바이트
+		 */
+		public byte getTrigger();
+
+		/**
+		 * 버퍼에 트리거 바이트가 입력되면 생산자 스레드에서 호출된다.
+		 * 여기서 get/seek/skip 계열 메서드를 호출하면 {@link IllegalStateException}이 발생한다.
+		 * 소비자 스레드를 깨우는 데에 사용하시오.
+		 *
+		 * @param trigger
+		 * @param buffer
+		 */
+		public void onDataAvailable(byte trigger, SpscCircularByteBuffer buffer);
+	}
+}
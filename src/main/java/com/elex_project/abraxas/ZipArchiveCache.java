@@ -0,0 +1,461 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 자주 읽는 ZIP, JAR 파일을 열어 둔 채로 재사용한다.
+ * <p>
+ * 최근에 쓴 순서로 최대 maxOpenArchives 개를 열어 두고, 넘치면 가장 오래 쓰지 않은 것을 닫는다.
+ * 닫히는 아카이브에서 읽고 있는 스트림이 있으면, 그 스트림을 닫을 때 닫는다.
+ * 아카이브를 열 때 항목의 이름들을 해시 맵과 정렬된 배열로 기록하므로, 접두어나 glob 으로 목록을 구할 때 entries()를 훑지 않는다.
+ * <p>
+ * maxCachedBytes 가 0 보다 크면, maxCachedEntrySize 이하의 작은 항목은 압축을 푼 바이트를 모두 합쳐 maxCachedBytes 까지 보관한다.
+ * 열어 둔 동안 아카이브 파일이 바뀌면 {@link #invalidate(Path)}를 호출하시오.
+ *
+ * <pre><code>
+ * ZipArchiveCache cache = new ZipArchiveCache(32, 64 * 1024 * 1024, 256 * 1024);
+ * byte[] bytes = cache.readBytes(pluginJar, "META-INF/plugin.json");
+ * List&lt;String&gt; icons = cache.list(pluginJar, "icons/");
+ * </code></pre>
+ *
+ * @author Elex
+ * @see Compressez#readZipEntry(ZipFile, String)
+ */
+public final class ZipArchiveCache implements Closeable {
+	public static final int DEFAULT_MAX_OPEN_ARCHIVES = 16;
+
+	private final int maxOpenArchives;
+	private final long maxCachedBytes;
+	private final int maxCachedEntrySize;
+	/**
+	 * 최근에 쓴 순서
+	 */
+	private final LinkedHashMap<Path, Archive> archives = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * "아카이브 경로!항목 이름"마다 압축을 푼 바이트. 최근에 쓴 순서
+	 */
+	private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private boolean closed = false;
+
+	/**
+	 * 아카이브를 {@link #DEFAULT_MAX_OPEN_ARCHIVES}개까지 열어 두고, 바이트는 보관하지 않는다.
+	 */
+	public ZipArchiveCache() {
+		this(DEFAULT_MAX_OPEN_ARCHIVES, 0, 0);
+	}
+
+	/**
+	 * @param maxOpenArchives    열어 둘 아카이브의 최대 수
+	 * @param maxCachedBytes     보관할 바이트의 합. 0 이면 보관하지 않는다.
+	 * @param maxCachedEntrySize 보관할 항목의 최대 크기
+	 */
+	public ZipArchiveCache(final int maxOpenArchives, final long maxCachedBytes, final int maxCachedEntrySize) {
+		if (maxOpenArchives <= 0) {
+			throw new IllegalArgumentException("Invalid max open archives: " + maxOpenArchives);
+		}
+		this.maxOpenArchives = maxOpenArchives;
+		this.maxCachedBytes = Math.max(0, maxCachedBytes);
+		this.maxCachedEntrySize = Math.max(0, maxCachedEntrySize);
+	}
+
+	/**
+	 * @param archive   ZIP 또는 JAR 파일
+	 * @param entryName '/'로 시작하지 않는다.
+	 * @return 없으면 null
+	 * @throws IOException 아카이브를 열 수 없으면
+	 */
+	@Nullable
+	public ZipEntry getEntry(@NotNull final Path archive, @NotNull final String entryName) throws IOException {
+		final Archive opened = acquire(archive);
+		try {
+			return opened.entries.get(entryName);
+		} finally {
+			release(opened);
+		}
+	}
+
+	public boolean contains(@NotNull final Path archive, @NotNull final String entryName) throws IOException {
+		return null != getEntry(archive, entryName);
+	}
+
+	/**
+	 * 항목 전체를 읽는다. 보관할 수 있는 크기이면 보관해 두고, 다음에는 아카이브를 읽지 않는다.
+	 *
+	 * @param archive   ZIP 또는 JAR 파일
+	 * @param entryName '/'로 시작하지 않는다.
+	 * @return 압축을 푼 바이트의 복사본. 항목이 없으면 null
+	 * @throws IOException ..
+	 */
+	@Nullable
+	public byte[] readBytes(@NotNull final Path archive, @NotNull final String entryName) throws IOException {
+		final byte[] bytes = cachedBytes(archive, entryName);
+		return null == bytes ? null : bytes.clone();
+	}
+
+	/**
+	 * 항목을 읽는 스트림. 보관된 항목은 메모리에서 읽는다. 사용 후 꼭 닫아 주시오.
+	 *
+	 * @param archive   ZIP 또는 JAR 파일
+	 * @param entryName '/'로 시작하지 않는다.
+	 * @return 항목이 없으면 null
+	 * @throws IOException ..
+	 */
+	@Nullable
+	public InputStream getInputStream(@NotNull final Path archive, @NotNull final String entryName) throws IOException {
+		final Archive opened = acquire(archive);
+		final ZipEntry entry = opened.entries.get(entryName);
+		if (null == entry || isCacheable(entry)) {
+			release(opened);
+			if (null == entry) return null;
+			final byte[] bytes = cachedBytes(archive, entryName);
+			return null == bytes ? null : new ByteArrayInputStream(bytes);
+		}
+		final InputStream in;
+		try {
+			in = opened.zipFile.getInputStream(entry);
+		} catch (IOException | RuntimeException e) {
+			release(opened);
+			throw e;
+		}
+		return new FilterInputStream(in) {
+			private boolean released = false;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					if (!released) {
+						released = true;
+						release(opened);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * 이름이 접두어로 시작하는 항목들. 디렉토리 안의 항목들을 구하려면 "dir/"처럼 '/'로 끝내시오.
+	 *
+	 * @param archive ZIP 또는 JAR 파일
+	 * @param prefix  접두어. 빈 문자열이면 모두
+	 * @return 정렬된 이름들
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public List<String> list(@NotNull final Path archive, @NotNull final String prefix) throws IOException {
+		return list(archive, prefix, null);
+	}
+
+	/**
+	 * 이름이 glob 패턴에 맞는 항목들. 패턴의 와일드카드 앞 부분으로 범위를 좁힌 뒤에 맞추어 본다.
+	 *
+	 * @param archive ZIP 또는 JAR 파일
+	 * @param glob    '*'와 '?'만 와일드카드이고 나머지는 글자 그대로 맞춘다. '*'는 '/'도 포함한다.
+	 * @return 정렬된 이름들
+	 * @throws IOException ..
+	 */
+	@NotNull
+	public List<String> listGlob(@NotNull final Path archive, @NotNull final String glob) throws IOException {
+		return list(archive, glob.substring(0, RegExz.globPrefixLength(glob)), RegExz.compileLiteralGlob(glob));
+	}
+
+	@NotNull
+	private List<String> list(@NotNull final Path archive, @NotNull final String prefix,
+	                          @Nullable final Pattern pattern) throws IOException {
+		final Archive opened = acquire(archive);
+		try {
+			final String[] names = opened.names;
+			int i = Arrays.binarySearch(names, prefix);
+			if (i < 0) i = -i - 1;
+			final List<String> out = new ArrayList<>();
+			for (; i < names.length && names[i].startsWith(prefix); i++) {
+				if (null == pattern || pattern.matcher(names[i]).matches()) {
+					out.add(names[i]);
+				}
+			}
+			return out;
+		} finally {
+			release(opened);
+		}
+	}
+
+	/**
+	 * 아카이브를 닫고, 보관한 바이트를 버린다. 아카이브 파일이 바뀌었을 때 호출하시오.
+	 *
+	 * @param archive ZIP 또는 JAR 파일
+	 */
+	public synchronized void invalidate(@NotNull final Path archive) {
+		final Path key = keyOf(archive);
+		final Archive opened = archives.remove(key);
+		if (null != opened) evict(opened);
+		final String prefix = key + "!";
+		final Iterator<Map.Entry<String, byte[]>> iterator = cache.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<String, byte[]> entry = iterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				cachedBytes -= entry.getValue().length;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * 모든 아카이브를 닫는다. 읽고 있는 스트림이 있는 아카이브는 그 스트림을 닫을 때 닫는다.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		for (Archive opened : archives.values()) {
+			evict(opened);
+		}
+		archives.clear();
+		cache.clear();
+		cachedBytes = 0;
+	}
+
+	/**
+	 * @return 열려 있는 아카이브의 수
+	 */
+	public synchronized int getOpenArchiveCount() {
+		return archives.size();
+	}
+
+	/**
+	 * @return 보관한 바이트의 합
+	 */
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	/**
+	 * @return 보관한 바이트로 읽은 횟수
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return 보관할 수 있는 항목을 아카이브에서 읽은 횟수
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	private boolean isCacheable(@NotNull final ZipEntry entry) {
+		return maxCachedBytes > 0 && entry.getSize() >= 0 && entry.getSize() <= maxCachedEntrySize
+				&& !entry.isDirectory();
+	}
+
+	/**
+	 * @return 보관한 바이트. 복사하지 않았다.
+	 */
+	@Nullable
+	private byte[] cachedBytes(@NotNull final Path archive, @NotNull final String entryName) throws IOException {
+		final String key = keyOf(archive) + "!" + entryName;
+		if (maxCachedBytes > 0) {
+			synchronized (this) {
+				final byte[] bytes = cache.get(key);
+				if (null != bytes) {
+					hits++;
+					return bytes;
+				}
+			}
+		}
+
+		final Archive opened = acquire(archive);
+		final byte[] bytes;
+		final boolean cacheable;
+		try {
+			final ZipEntry entry = opened.entries.get(entryName);
+			if (null == entry) return null;
+			try (InputStream in = opened.zipFile.getInputStream(entry)) {
+				bytes = IOz.readByteArrayFrom(in);
+			}
+			cacheable = isCacheable(entry);
+		} finally {
+			release(opened);
+		}
+		if (cacheable) {
+			synchronized (this) {
+				misses++;
+				// 읽는 동안 invalidate()나 close()가 불렸으면 이미 지난 내용일 수 있다.
+				if (!closed && !opened.evicted && null == cache.put(key, bytes)) {
+					cachedBytes += bytes.length;
+					final Iterator<byte[]> iterator = cache.values().iterator();
+					while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+						cachedBytes -= iterator.next().length;
+						iterator.remove();
+					}
+				}
+			}
+		}
+		return bytes;
+	}
+
+	@NotNull
+	private static Path keyOf(@NotNull final Path archive) {
+		return archive.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * 아카이브를 열거나 열려 있는 것을 가져오고, 쓰는 중으로 표시한다. {@link #release(Archive)}로 돌려주시오.
+	 * 다른 아카이브의 조회를 막지 않도록, 여는 것과 색인은 모니터 밖에서 한다.
+	 */
+	@NotNull
+	private Archive acquire(@NotNull final Path archive) throws IOException {
+		final Path key = keyOf(archive);
+		synchronized (this) {
+			checkOpen();
+			final Archive opened = archives.get(key);
+			if (null != opened) {
+				opened.references++;
+				return opened;
+			}
+		}
+		final Archive created = Archive.open(key);
+		synchronized (this) {
+			if (closed) {
+				created.close();
+				checkOpen();
+			}
+			final Archive opened = archives.get(key);
+			if (null != opened) {
+				// 다른 스레드가 먼저 열었다.
+				created.close();
+				opened.references++;
+				return opened;
+			}
+			archives.put(key, created);
+			final Iterator<Archive> iterator = archives.values().iterator();
+			while (archives.size() > maxOpenArchives) {
+				evict(iterator.next());
+				iterator.remove();
+			}
+			created.references++;
+			return created;
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Cache is closed.");
+		}
+	}
+
+	private synchronized void release(@NotNull final Archive opened) {
+		opened.references--;
+		if (opened.evicted && opened.references == 0) {
+			opened.close();
+		}
+	}
+
+	/**
+	 * 쓰는 중이 아니면 바로 닫고, 쓰는 중이면 다 쓴 뒤에 닫는다.
+	 */
+	private void evict(@NotNull final Archive opened) {
+		opened.evicted = true;
+		if (opened.references == 0) {
+			opened.close();
+		}
+	}
+
+	/**
+	 * 열려 있는 아카이브와 항목 이름의 색인
+	 */
+	private static final class Archive {
+		private final ZipFile zipFile;
+		private final Map<String, ZipEntry> entries;
+		/**
+		 * 정렬된 항목 이름
+		 */
+		private final String[] names;
+		private int references = 0;
+		private boolean evicted = false;
+
+		/**
+		 * 열고 색인한다. 실패하면 닫는다.
+		 */
+		@NotNull
+		private static Archive open(@NotNull final Path path) throws IOException {
+			final ZipFile zipFile = new ZipFile(path.toFile());
+			try {
+				return new Archive(zipFile);
+			} catch (RuntimeException | Error e) {
+				try {
+					zipFile.close();
+				} catch (IOException x) {
+					e.addSuppressed(x);
+				}
+				throw e;
+			}
+		}
+
+		private Archive(@NotNull final ZipFile zipFile) {
+			this.zipFile = zipFile;
+			this.entries = new HashMap<>(zipFile.size() * 4 / 3 + 1);
+			final Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+			while (enumeration.hasMoreElements()) {
+				final ZipEntry entry = enumeration.nextElement();
+				entries.putIfAbsent(entry.getName(), entry);
+			}
+			this.names = entries.keySet().toArray(new String[0]);
+			Arrays.sort(names);
+		}
+
+		private void close() {
+			try {
+				zipFile.close();
+			} catch (IOException e) {
+				// 읽기 전용이므로 잃을 것이 없다.
+			}
+		}
+	}
+}
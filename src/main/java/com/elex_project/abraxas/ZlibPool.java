@@ -0,0 +1,301 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link Deflater}, {@link Inflater}를 재사용한다. zlib 의 네이티브 상태를 만드는 비용을 피한다.
+ * <p>
+ * 빌려간 것은 돌려주어야 하고, 돌려준 뒤에는 사용하지 않아야 한다.
+ * 압축 수준, 전략, 헤더 여부마다 따로 보관하고, 종류마다 {@link #MAX_IDLE}개가 넘으면 닫는다.
+ *
+ * @author Elex
+ */
+final class ZlibPool {
+	/**
+	 * 종류마다 보관하는 최대 수
+	 */
+	static final int MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	/**
+	 * 다이렉트 버퍼를 복사할 때 쓰는 버퍼의 크기
+	 */
+	static final int SCRATCH_SIZE = 64 * 1024;
+
+	private static final ConcurrentMap<Integer, BlockingQueue<Deflater>> DEFLATERS = new ConcurrentHashMap<>();
+	private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(MAX_IDLE);
+	private static final BlockingQueue<Inflater> RAW_INFLATERS = new ArrayBlockingQueue<>(MAX_IDLE);
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+	private ZlibPool() {
+	}
+
+	/**
+	 * @param level    압축 수준
+	 * @param strategy 압축 전략
+	 * @param nowrap   zlib 헤더 없이 raw deflate 로 압축할 지
+	 * @return 빌린 것. {@link #release(Deflater, int, int, boolean)}로 돌려주시오.
+	 * @throws IllegalArgumentException 압축 수준이나 전략이 잘못되었으면
+	 */
+	@NotNull
+	static Deflater deflater(final int level, final int strategy, final boolean nowrap) {
+		final Deflater deflater = deflaters(level, strategy, nowrap).poll();
+		if (null != deflater) return deflater;
+		final Deflater created = new Deflater(level, nowrap);
+		created.setStrategy(strategy);
+		return created;
+	}
+
+	/**
+	 * 빌릴 때와 같은 인자로 돌려준다.
+	 */
+	static void release(@NotNull final Deflater deflater, final int level, final int strategy, final boolean nowrap) {
+		deflater.reset();
+		if (!deflaters(level, strategy, nowrap).offer(deflater)) {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * @param nowrap zlib 헤더 없는 raw deflate 인지
+	 * @return 빌린 것. {@link #release(Inflater, boolean)}로 돌려주시오.
+	 */
+	@NotNull
+	static Inflater inflater(final boolean nowrap) {
+		final Inflater inflater = (nowrap ? RAW_INFLATERS : INFLATERS).poll();
+		return null != inflater ? inflater : new Inflater(nowrap);
+	}
+
+	static void release(@NotNull final Inflater inflater, final boolean nowrap) {
+		inflater.reset();
+		if (!(nowrap ? RAW_INFLATERS : INFLATERS).offer(inflater)) {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * 스레드마다 하나씩 두는 버퍼. 다른 메소드를 호출하는 동안 들고 있지 마시오.
+	 */
+	@NotNull
+	static byte[] scratch() {
+		return SCRATCH.get();
+	}
+
+	@NotNull
+	private static BlockingQueue<Deflater> deflaters(final int level, final int strategy, final boolean nowrap) {
+		final int key = ((level + 1) << 3) | (strategy << 1) | (nowrap ? 1 : 0);
+		BlockingQueue<Deflater> queue = DEFLATERS.get(key);
+		if (null == queue) {
+			if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+				throw new IllegalArgumentException("Invalid level: " + level);
+			}
+			if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED
+					&& strategy != Deflater.HUFFMAN_ONLY) {
+				throw new IllegalArgumentException("Invalid strategy: " + strategy);
+			}
+			queue = DEFLATERS.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(MAX_IDLE));
+		}
+		return queue;
+	}
+
+	/**
+	 * 닫을 때 deflater 를 돌려주는 스트림
+	 */
+	static final class PooledDeflaterOutputStream extends DeflaterOutputStream {
+		private final int level;
+		private final int strategy;
+		private boolean released = false;
+
+		PooledDeflaterOutputStream(@NotNull final OutputStream out, final int level, final int strategy, final int bufferSize) {
+			super(out, deflater(level, strategy, false), bufferSize, true);
+			this.level = level;
+			this.strategy = strategy;
+		}
+
+		/**
+		 * 돌려준 deflater 는 다른 스레드가 쓰고 있을 수 있으므로, 닫은 뒤에는 건드리지 않는다.
+		 */
+		private void ensureOpen() throws IOException {
+			if (released) throw new IOException("Stream closed");
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			ensureOpen();
+			super.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			ensureOpen();
+			super.write(b, off, len);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			ensureOpen();
+			super.finish();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			ensureOpen();
+			super.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (released) return;
+			try {
+				super.close();
+			} finally {
+				released = true;
+				release(def, level, strategy, false);
+			}
+		}
+	}
+
+	/**
+	 * 닫을 때 inflater 를 돌려주는 스트림
+	 */
+	static final class PooledInflaterInputStream extends InflaterInputStream {
+		private boolean released = false;
+
+		PooledInflaterInputStream(@NotNull final InputStream in, final int bufferSize) {
+			super(in, inflater(false), bufferSize);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (released) return;
+			try {
+				super.close();
+			} finally {
+				released = true;
+				release(inf, false);
+			}
+		}
+	}
+
+	/**
+	 * 쓰는 데이터를 압축해서 채널에 쓴다. 닫으면 스트림을 끝내고 deflater 를 돌려준다.
+	 */
+	static final class DeflatingChannel implements WritableByteChannel {
+		private final WritableByteChannel channel;
+		private final Deflater deflater;
+		private final int level;
+		private final int strategy;
+		private final byte[] input;
+		private final ByteBuffer output;
+		private boolean open = true;
+
+		DeflatingChannel(@NotNull final WritableByteChannel channel, final int level, final int strategy, final int bufferSize) {
+			this.channel = channel;
+			this.deflater = deflater(level, strategy, false);
+			this.level = level;
+			this.strategy = strategy;
+			this.input = new byte[bufferSize];
+			this.output = ByteBuffer.allocate(bufferSize);
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			if (!open) throw new ClosedChannelException();
+			final int length = src.remaining();
+			if (src.hasArray()) {
+				deflater.setInput(src.array(), src.arrayOffset() + src.position(), length);
+				src.position(src.limit());
+				drain();
+			} else {
+				while (src.hasRemaining()) {
+					final int n = Math.min(input.length, src.remaining());
+					src.get(input, 0, n);
+					deflater.setInput(input, 0, n);
+					drain();
+				}
+			}
+			return length;
+		}
+
+		/**
+		 * 입력을 모두 압축해서 채널에 쓴다.
+		 */
+		private void drain() throws IOException {
+			while (!deflater.needsInput()) {
+				flush(deflater.deflate(output.array(), 0, output.capacity()));
+			}
+		}
+
+		private void flush(final int length) throws IOException {
+			output.clear().limit(length);
+			while (output.hasRemaining()) {
+				channel.write(output);
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!open) return;
+			open = false;
+			try {
+				deflater.finish();
+				while (!deflater.finished()) {
+					flush(deflater.deflate(output.array(), 0, output.capacity()));
+				}
+			} finally {
+				release(deflater, level, strategy, false);
+				channel.close();
+			}
+		}
+	}
+}
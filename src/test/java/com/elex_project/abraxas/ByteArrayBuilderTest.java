@@ -34,6 +34,13 @@ package com.elex_project.abraxas;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ByteArrayBuilderTest {
@@ -44,4 +51,83 @@ class ByteArrayBuilderTest {
 		builder.append(32).append((byte)0x01).appendHex("32ff");
 		Console.writeLine(builder.toByteArray());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void segmented() throws IOException {
+		ByteArrayBuilder.ChunkPool pool = new ByteArrayBuilder.ChunkPool(16, 8);
+		ByteArrayBuilder builder = new ByteArrayBuilder(pool);
+		byte[] expected = Random.nextBytes(100);
+		builder.append(expected, 0, 7).append(expected, 7, 93);
+		assertEquals(100, builder.size());
+		assertArrayEquals(expected, builder.toByteArray());
+
+		ByteBuffer[] buffers = builder.toByteBuffers();
+		assertEquals(7, buffers.length);
+		assertEquals(4, buffers[6].remaining());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		builder.writeTo(out);
+		assertArrayEquals(expected, out.toByteArray());
+
+		out.reset();
+		builder.writeTo(Channels.newChannel(out));
+		assertArrayEquals(expected, out.toByteArray());
+
+		builder.reset();
+		assertEquals(7, pool.size());
+		builder.append((byte) 1);
+		assertEquals(6, pool.size());
+	}
+
+	@Test
+	void primitives() {
+		for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+			// 5 바이트 청크라 값이 청크의 경계에 걸친다
+			ByteArrayBuilder builder = new ByteArrayBuilder(new ByteArrayBuilder.ChunkPool(5, 4))
+					.order(order);
+			builder.append((byte) 7).putShort((short) 0x1234).putInt(0x89ABCDEF)
+					.putLong(0x0123456789ABCDEFL).putFloat(1.5f).putDouble(-2.25);
+
+			ByteBuffer expected = ByteBuffer.allocate(27).order(order);
+			expected.put((byte) 7).putShort((short) 0x1234).putInt(0x89ABCDEF)
+					.putLong(0x0123456789ABCDEFL).putFloat(1.5f).putDouble(-2.25);
+			assertArrayEquals(expected.array(), builder.toByteArray());
+		}
+	}
+
+	@Test
+	void varints() {
+		ByteArrayBuilder builder = new ByteArrayBuilder();
+		builder.putVarInt(0).putVarInt(127).putVarInt(300).putVarInt(-1)
+				.putZigZagVarInt(-1).putZigZagVarInt(1).putZigZagVarLong(Long.MIN_VALUE);
+		assertArrayEquals(new byte[]{
+				0x00, 0x7F, (byte) 0xAC, 0x02,
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F,
+				0x01, 0x02,
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01
+		}, builder.toByteArray());
+	}
+
+	@Test
+	void strings() {
+		String str = "abc 가나다 \uD83D\uDE00 \u00E9 \uD800x";
+		byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+		assertEquals(utf8.length, ByteArrayBuilder.utf8Length(str));
+
+		ByteArrayBuilder builder = new ByteArrayBuilder(new ByteArrayBuilder.ChunkPool(3, 4));
+		builder.putUtf8(str);
+		assertArrayEquals(utf8, builder.toByteArray());
+
+		builder.reset();
+		builder.putString(str);
+		byte[] out = builder.toByteArray();
+		assertEquals(utf8.length, out[0]);
+		assertEquals(str.replace("\uD800", "?"),
+				new String(out, 1, out.length - 1, StandardCharsets.UTF_8));
+
+		builder.reset();
+		builder.putStringWithIntLength("hi");
+		assertArrayEquals(new byte[]{0, 0, 0, 2, 'h', 'i'}, builder.toByteArray());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedBytesTest {
+
+	@Test
+	void legacy() {
+		ChunkedBytes chunked = new ChunkedBytes("0102030405");
+		assertEquals(1, chunked.next());
+		assertEquals(2, chunked.peek());
+		assertArrayEquals(new byte[]{2, 3}, chunked.next(2));
+		assertEquals(2, chunked.available());
+		assertArrayEquals(new byte[]{4, 5}, chunked.next(10));
+	}
+
+	@Test
+	void typed() throws IOException {
+		for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+			byte[] bytes = new ByteArrayBuilder().order(order)
+					.putInt(0x89ABCDEF).putLong(-3L).putDouble(0.5)
+					.putZigZagVarInt(-150).putVarLong(Long.MAX_VALUE)
+					.putString("가나다").putStringWithIntLength("xyz")
+					.putVarInt(3).append(new byte[]{7, 8, 9})
+					.toByteArray();
+
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes).flip();
+			Path file = Files.createTempFile("chunked", ".bin");
+			try {
+				Files.write(file, bytes);
+				for (ChunkedBytes chunked : new ChunkedBytes[]{
+						new ChunkedBytes(bytes), new ChunkedBytes(direct), ChunkedBytes.map(file)}) {
+					chunked.order(order);
+					assertEquals(0x89ABCDEFL, chunked.nextUnsignedInt());
+					assertEquals(-3L, chunked.nextLong());
+					assertEquals(0.5, chunked.nextDouble());
+					assertEquals(-150, chunked.nextZigZagVarInt());
+					assertEquals(Long.MAX_VALUE, chunked.nextVarLong());
+					assertEquals("가나다", chunked.nextString());
+					assertEquals("xyz", chunked.nextStringWithIntLength());
+					ByteBuffer field = chunked.nextLengthPrefixed();
+					assertEquals(3, field.remaining());
+					assertEquals(9, field.get(2));
+					assertEquals(0, chunked.available());
+				}
+			} finally {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Test
+	void slices() {
+		byte[] bytes = {0, 0, 0, 1, 0, 0, 0, 2};
+		ChunkedBytes chunked = new ChunkedBytes(bytes);
+		ChunkedBytes first = chunked.nextChunk(4);
+		assertEquals(4, chunked.position());
+		bytes[3] = 42;
+		assertEquals(42, first.nextInt());
+		assertEquals(2, chunked.nextInt());
+		assertThrows(BufferUnderflowException.class, () -> chunked.nextSlice(1));
+	}
+}
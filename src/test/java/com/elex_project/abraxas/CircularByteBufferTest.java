@@ -0,0 +1,373 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircularByteBufferTest {
+
+	@Test
+	void growWhileWrapped() {
+		CircularByteBuffer buffer = new CircularByteBuffer(4);
+		buffer.put(new byte[]{1, 2, 3});
+		assertEquals(1, buffer.get());
+		assertEquals(2, buffer.get());
+		buffer.put(new byte[]{4, 5, 6, 7, 8});
+
+		byte[] dst = new byte[6];
+		assertEquals(6, buffer.get(dst));
+		assertArrayEquals(new byte[]{3, 4, 5, 6, 7, 8}, dst);
+	}
+
+	@Test
+	void channel() throws IOException {
+		channel(false);
+		channel(true);
+	}
+
+	private void channel(boolean direct) throws IOException {
+		CircularByteBuffer buffer = new CircularByteBuffer(8, direct);
+		assertEquals(direct, buffer.isDirect());
+		Pipe pipe = Pipe.open();
+
+		// wrap the cursors so that both free space and data are split in two
+		buffer.put(new byte[]{0, 0, 0, 0, 0, 0});
+		buffer.skip(6);
+		buffer.put(new byte[]{1, 2, 3, 4});
+		assertEquals(4, buffer.writeTo(pipe.sink()));
+		assertEquals(0, buffer.available());
+
+		assertEquals(4, buffer.readFrom(pipe.source()));
+		assertEquals(0x01020304, buffer.getInt());
+
+		pipe.sink().close();
+		assertEquals(-1, buffer.readFrom(pipe.source()));
+		pipe.source().close();
+	}
+
+	@Test
+	void geometricGrowth() {
+		CircularByteBuffer buffer = new CircularByteBuffer(4, 64, CircularByteBuffer.OverflowPolicy.FAIL);
+		buffer.put(new byte[5]);
+		assertEquals(8, buffer.capacity());
+		buffer.put(new byte[20]);
+		assertEquals(25, buffer.capacity());
+		buffer.put(new byte[1]);
+		assertEquals(50, buffer.capacity());
+
+		assertThrows(BufferOverflowException.class, () -> buffer.put(new byte[40]));
+		assertEquals(64, buffer.capacity());
+		assertEquals(26, buffer.available());
+		assertEquals(40, buffer.droppedBytes());
+		assertEquals(26, buffer.highWaterMark());
+	}
+
+	@Test
+	void dropNewest() {
+		CircularByteBuffer buffer = new CircularByteBuffer(4, 4, CircularByteBuffer.OverflowPolicy.DROP_NEWEST);
+		buffer.put(new byte[]{1, 2, 3});
+		buffer.put(new byte[]{4, 5, 6});
+		buffer.put((byte) 7);
+		assertEquals(4, buffer.capacity());
+		assertEquals(3, buffer.droppedBytes());
+		assertEquals(0x01020304, buffer.getInt());
+	}
+
+	@Test
+	void dropOldest() {
+		CircularByteBuffer buffer = new CircularByteBuffer(4, 4, CircularByteBuffer.OverflowPolicy.DROP_OLDEST);
+		buffer.put(new byte[]{1, 2, 3});
+		buffer.put(new byte[]{4, 5});
+		assertEquals(0x02030405, buffer.getInt());
+
+		buffer.put(new byte[]{1, 2, 3, 4, 5, 6, 7});
+		buffer.put((byte) 8);
+		assertEquals(5, buffer.droppedBytes());
+		assertEquals(4, buffer.highWaterMark());
+		assertEquals(0x05060708, buffer.getInt());
+	}
+
+	@Test
+	void block() throws InterruptedException {
+		final CircularByteBuffer buffer = new CircularByteBuffer(4, 4, CircularByteBuffer.OverflowPolicy.BLOCK);
+		buffer.setBlockingTimeout(10, TimeUnit.MILLISECONDS);
+		buffer.put(new byte[]{1, 2, 3});
+		// 전체가 들어갈 공간이 생기지 않았으므로 아무것도 저장하지 않는다.
+		assertThrows(BufferOverflowException.class, () -> buffer.put(new byte[]{4, 5}));
+		assertEquals(2, buffer.droppedBytes());
+		assertEquals(3, buffer.available());
+
+		final ByteBuffer src = ByteBuffer.wrap(new byte[]{4, 5});
+		assertThrows(BufferOverflowException.class, () -> buffer.put(src));
+		assertEquals(0, src.position());
+		assertEquals(4, buffer.droppedBytes());
+		assertEquals(3, buffer.available());
+
+		buffer.setBlockingTimeout(0, TimeUnit.MILLISECONDS);
+		Thread consumer = new Thread(() -> {
+			byte[] dst = new byte[3];
+			int n = 0;
+			while (n < 11) {
+				n += buffer.get(dst);
+				Thread.yield();
+			}
+		});
+		consumer.start();
+		buffer.put(new byte[8]);
+		consumer.join();
+		assertEquals(0, buffer.available());
+	}
+
+	@Test
+	void blockValueAfterGrowth() throws InterruptedException {
+		final CircularByteBuffer buffer = new CircularByteBuffer(6, 8, CircularByteBuffer.OverflowPolicy.BLOCK);
+		buffer.setBlockingTimeout(10, TimeUnit.MILLISECONDS);
+		buffer.put(new byte[6]);
+		// 8 바이트로 늘어난 뒤에도 2 바이트만 비어 있으므로, 값 전체를 기다리다가 시간을 초과한다.
+		assertThrows(BufferOverflowException.class, () -> buffer.putInt(0x01020304));
+		assertEquals(6, buffer.available());
+		assertEquals(4, buffer.droppedBytes());
+
+		buffer.setBlockingTimeout(0, TimeUnit.MILLISECONDS);
+		Thread consumer = new Thread(() -> {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException ignore) {
+			}
+			buffer.get(new byte[6]);
+		});
+		consumer.start();
+		buffer.putInt(0x01020304);
+		consumer.join();
+		assertEquals(4, buffer.available());
+		assertEquals(0x01020304, buffer.getInt());
+		assertEquals(4, buffer.droppedBytes());
+	}
+
+	private static CircularByteBuffer.InputListener listener(final byte trigger, final List<String> frames) {
+		return new CircularByteBuffer.InputListener() {
+			@Override
+			public byte getTrigger() {
+				return trigger;
+			}
+
+			@Override
+			public void onDataAvailable(byte trigger, CircularByteBuffer buffer) {
+				synchronized (frames) {
+					frames.add(buffer.getString(trigger));
+				}
+			}
+		};
+	}
+
+	@Test
+	void listeners() {
+		final List<String> frames = new ArrayList<>();
+		CircularByteBuffer buffer = new CircularByteBuffer(8);
+		buffer.addListener(listener((byte) '\n', frames));
+		buffer.addListener(listener((byte) ';', frames));
+
+		buffer.put(Stringz.toBytes("a;b\nc;d\n"));
+		assertEquals(2, frames.size());
+		assertEquals("a;", frames.get(0));
+		assertEquals("b\n", frames.get(1));
+
+		buffer.put((byte) ';');
+		assertEquals("c;", frames.get(2));
+
+		buffer.removeListener((byte) ';');
+		buffer.put(Stringz.toBytes(";\n"));
+		assertEquals("d\n", frames.get(3));
+		assertEquals(4, frames.size());
+		assertEquals(3, buffer.available());
+	}
+
+	@Test
+	void listenerExecutor() throws InterruptedException {
+		final List<String> frames = new ArrayList<>();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CircularByteBuffer buffer = new CircularByteBuffer();
+		buffer.setListenerExecutor(executor);
+		buffer.addListener(listener((byte) '\n', frames));
+
+		buffer.put(Stringz.toBytes("hello\n"));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+		assertEquals("hello\n", frames.get(0));
+	}
+
+	@Test
+	void seek() {
+		CircularByteBuffer buffer = new CircularByteBuffer(8, 8, CircularByteBuffer.OverflowPolicy.FAIL);
+		buffer.put(new byte[]{0, 0, 0, 0, 0, 0});
+		buffer.skip(6);
+		buffer.put(new byte[]{1, 2, 3, 4, 5});
+		assertEquals(0, buffer.seek((byte) 1));
+		assertEquals(3, buffer.seek((byte) 4));
+		assertEquals(-1, buffer.seek((byte) 9));
+
+		assertEquals(0, buffer.skipUntil((byte) 9));
+		assertEquals(2, buffer.skipUntil((byte) 3));
+		assertEquals(3, buffer.get());
+	}
+
+	@Test
+	void primitives() {
+		primitives(ByteOrder.BIG_ENDIAN, false);
+		primitives(ByteOrder.LITTLE_ENDIAN, false);
+		primitives(ByteOrder.BIG_ENDIAN, true);
+		primitives(ByteOrder.LITTLE_ENDIAN, true);
+	}
+
+	private void primitives(ByteOrder order, boolean direct) {
+		CircularByteBuffer buffer = new CircularByteBuffer(16, 16, CircularByteBuffer.OverflowPolicy.FAIL, direct)
+				.order(order);
+		// every value below straddles the end of the ring at least once
+		for (int offset = 0; offset < 16; offset++) {
+			buffer.clear();
+			buffer.put(new byte[offset]);
+			buffer.skip(offset);
+
+			buffer.putShort((short) 0x1234);
+			buffer.putInt(0xCAFEBABE);
+			buffer.putLong(0x0102030405060708L);
+			buffer.putUnsignedByte(0xFF);
+			assertEquals(15, buffer.available());
+			assertEquals((short) 0x1234, buffer.getShort());
+			assertEquals(0xCAFEBABEL, buffer.getUnsignedInt());
+			assertEquals(0x0102030405060708L, buffer.getLong());
+			assertEquals(0xFF, buffer.getUnsignedByte());
+
+			buffer.putFloat(1.5f);
+			buffer.putDouble(-2.25);
+			buffer.putUnsignedShort(0xFFFE);
+			assertEquals(1.5f, buffer.getFloat());
+			assertEquals(-2.25, buffer.getDouble());
+			assertEquals(0xFFFE, buffer.getUnsignedShort());
+		}
+
+		buffer.clear();
+		buffer.putInt(0x01020304);
+		byte[] bytes = new byte[4];
+		buffer.get(bytes);
+		assertArrayEquals(order == ByteOrder.BIG_ENDIAN
+				? new byte[]{1, 2, 3, 4} : new byte[]{4, 3, 2, 1}, bytes);
+	}
+
+	@Test
+	void stream() throws Exception {
+		final CircularByteBuffer pipe = new CircularByteBuffer(16, 16, CircularByteBuffer.OverflowPolicy.BLOCK);
+		final int total = 10_000;
+		Thread producer = new Thread(() -> {
+			try (OutputStream out = pipe.asOutputStream()) {
+				byte[] chunk = new byte[7];
+				for (int n = 0; n < total; n += chunk.length) {
+					int len = Math.min(chunk.length, total - n);
+					for (int i = 0; i < len; i++) {
+						chunk[i] = (byte) (n + i);
+					}
+					out.write(chunk, 0, len);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		producer.start();
+
+		InputStream in = pipe.asInputStream();
+		byte[] dst = new byte[5];
+		int n = 0;
+		int count;
+		while ((count = in.read(dst)) != -1) {
+			for (int i = 0; i < count; i++) {
+				assertEquals((byte) (n + i), dst[i]);
+			}
+			n += count;
+		}
+		producer.join();
+		assertEquals(total, n);
+		assertEquals(0, pipe.droppedBytes());
+	}
+
+	@Test
+	void streamTimeoutAndClose() throws IOException {
+		CircularByteBuffer pipe = new CircularByteBuffer(4, 4, CircularByteBuffer.OverflowPolicy.BLOCK);
+		pipe.setReadTimeout(10, TimeUnit.MILLISECONDS);
+		InputStream in = pipe.asInputStream();
+		assertThrows(InterruptedIOException.class, in::read);
+
+		OutputStream out = pipe.asOutputStream();
+		out.write(new byte[]{1, 2, 3, 4});
+		in.close();
+		assertThrows(IOException.class, () -> out.write(5));
+	}
+
+	@Test
+	void channelViews() throws IOException {
+		CircularByteBuffer pipe = new CircularByteBuffer(8, true);
+		WritableByteChannel sink = pipe.asWritableChannel();
+		ReadableByteChannel source = pipe.asReadableChannel();
+
+		ByteBuffer src = ByteBuffer.allocateDirect(12);
+		src.putInt(1).putInt(2).putInt(3).flip();
+		assertEquals(12, sink.write(src));
+		assertEquals(0, src.remaining());
+		sink.close();
+
+		ByteBuffer dst = ByteBuffer.allocate(16);
+		assertEquals(12, source.read(dst));
+		assertEquals(-1, source.read(dst));
+		dst.flip();
+		assertEquals(1, dst.getInt());
+		assertEquals(2, dst.getInt());
+		assertEquals(3, dst.getInt());
+	}
+}
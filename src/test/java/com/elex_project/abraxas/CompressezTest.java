@@ -0,0 +1,463 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressezTest {
+
+	/**
+	 * 여러 블록에 걸친 텍스트, 압축되지 않는 파일, 빈 파일과 빈 디렉토리
+	 */
+	private static Path makeTree() throws IOException {
+		Path root = Files.createTempDirectory("compressez");
+		Path src = Files.createDirectories(root.resolve("src/sub"));
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 3_500_000; i++) {
+			sb.append("line ").append(i).append(" of some repetitive text\n");
+		}
+		Files.write(src.resolve("text.txt"), sb.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(src.resolve("random.bin"), Random.nextBytes(1_500_000));
+		Files.write(src.getParent().resolve("photo.png"), Random.nextBytes(5000));
+		Files.write(src.getParent().resolve("empty.txt"), new byte[0]);
+		Files.createDirectories(root.resolve("src/empty"));
+		return root;
+	}
+
+	@Test
+	void zipParallel() throws IOException {
+		Path root = makeTree();
+		try {
+			Path zip = root.resolve("out.zip");
+			AtomicLong entries = new AtomicLong();
+			Compressez.zipParallel(zip, Deflater.BEST_SPEED, Compressez::isCompressed, 3,
+					(n, bytes, elapsed) -> entries.set(n), root.resolve("src"));
+			assertEquals(7, entries.get());
+
+			try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+				assertEquals(7, zipFile.size());
+				assertTrue(zipFile.getEntry("src/empty/").isDirectory());
+				assertEquals(ZipEntry.STORED, zipFile.getEntry("src/photo.png").getMethod());
+				assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("src/sub/text.txt").getMethod());
+				assertTrue(zipFile.getEntry("src/sub/text.txt").getCompressedSize() < 1_000_000);
+				for (String name : new String[]{"src/sub/text.txt", "src/sub/random.bin", "src/photo.png", "src/empty.txt"}) {
+					assertArrayEquals(Files.readAllBytes(root.resolve(name)),
+							IOz.readByteArrayFrom(zipFile.getInputStream(zipFile.getEntry(name))), name);
+				}
+			}
+
+			// 데이터 디스크립터를 스트림으로 읽는다.
+			Map<String, byte[]> read = new HashMap<>();
+			try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+				ZipEntry entry;
+				while (null != (entry = in.getNextEntry())) {
+					read.put(entry.getName(), IOz.readByteArrayFrom(new java.io.FilterInputStream(in) {
+						@Override
+						public void close() {
+						}
+					}));
+				}
+			}
+			assertEquals(7, read.size());
+			assertArrayEquals(Files.readAllBytes(root.resolve("src/sub/text.txt")), read.get("src/sub/text.txt"));
+			assertArrayEquals(Files.readAllBytes(root.resolve("src/sub/random.bin")), read.get("src/sub/random.bin"));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void unzipParallel() throws IOException {
+		Path root = makeTree();
+		try {
+			Path zip = root.resolve("out.zip");
+			Compressez.zipParallel(zip, root.resolve("src"));
+
+			Path all = root.resolve("all");
+			AtomicLong bytes = new AtomicLong();
+			Compressez.unzipParallel(zip, all, null, 3, (n, total, elapsed) -> bytes.accumulateAndGet(total, Math::max));
+			assertTrue(Files.isDirectory(all.resolve("src/empty")));
+			for (String name : new String[]{"src/sub/text.txt", "src/sub/random.bin", "src/photo.png", "src/empty.txt"}) {
+				assertArrayEquals(Files.readAllBytes(root.resolve(name)), Files.readAllBytes(all.resolve(name)), name);
+			}
+			assertEquals(Filez.scan(root.resolve("src")).getBytes(), bytes.get());
+
+			Path some = root.resolve("some");
+			Compressez.unzipParallel(zip, some, "src/sub/*.txt", 2, null);
+			assertTrue(Files.exists(some.resolve("src/sub/text.txt")));
+			assertFalse(Files.exists(some.resolve("src/sub/random.bin")));
+			assertFalse(Files.exists(some.resolve("src/photo.png")));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void unzipCollectsFailures() throws IOException {
+		Path root = Files.createTempDirectory("compressez");
+		try {
+			Path zip = root.resolve("evil.zip");
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+				out.putNextEntry(new ZipEntry("../evil.txt"));
+				out.write(1);
+				out.putNextEntry(new ZipEntry("good.txt"));
+				out.write(2);
+			}
+			Path to = root.resolve("to");
+			assertThrows(ZipException.class, () -> Compressez.unzipParallel(zip, to, null, 2, null));
+			assertFalse(Files.exists(root.resolve("evil.txt")));
+			assertArrayEquals(new byte[]{2}, Files.readAllBytes(to.resolve("good.txt")));
+
+			// 작업 스레드의 unchecked 예외도 모은다.
+			IOException e = assertThrows(IOException.class, () -> Compressez.unzipParallel(zip, root.resolve("again"), "good.txt", 2,
+					(n, total, elapsed) -> {
+						throw new IllegalStateException("listener");
+					}));
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void zipParallelFollowsLinks() throws IOException {
+		Path root = Files.createTempDirectory("compressez");
+		try {
+			Path ext = Files.createDirectories(root.resolve("ext/d"));
+			Files.write(root.resolve("ext/a.txt"), Stringz.toBytes("a"));
+			Files.write(ext.resolve("b.txt"), Stringz.toBytes("b"));
+			Path src = Files.createDirectory(root.resolve("src"));
+			Files.createSymbolicLink(src.resolve("file.txt"), root.resolve("ext/a.txt"));
+			Files.createSymbolicLink(src.resolve("dir"), ext);
+			Files.createSymbolicLink(src.resolve("loop"), src);
+
+			Path zip = root.resolve("out.zip");
+			Compressez.zipParallel(zip, src);
+			try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+				assertEquals(4, zipFile.size());
+				assertArrayEquals(Stringz.toBytes("a"),
+						IOz.readByteArrayFrom(zipFile.getInputStream(zipFile.getEntry("src/file.txt"))));
+				assertTrue(zipFile.getEntry("src/dir/").isDirectory());
+				assertArrayEquals(Stringz.toBytes("b"),
+						IOz.readByteArrayFrom(zipFile.getInputStream(zipFile.getEntry("src/dir/b.txt"))));
+			}
+
+			// 목록을 만든 뒤에 줄어든 파일
+			IOException e = assertThrows(IOException.class, () -> {
+				try (ParallelZipWriter writer = new ParallelZipWriter(zip, Deflater.DEFAULT_COMPRESSION, 2, null)) {
+					writer.addFile(root.resolve("ext/a.txt"), "a.txt", 10, 0, false);
+					writer.finish();
+				}
+			});
+			assertTrue(e.getMessage().contains("File changed"), e::getMessage);
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void crc32Combine() {
+		byte[] a = Random.nextBytes(1234);
+		byte[] b = Random.nextBytes(56789);
+		CRC32 crc = new CRC32();
+		crc.update(a);
+		long crcA = crc.getValue();
+		crc.update(b);
+		long crcAB = crc.getValue();
+		crc.reset();
+		crc.update(b);
+		assertEquals(crcAB, ParallelZipWriter.crc32Combine(crcA, crc.getValue(), b.length));
+	}
+
+	@Test
+	void deflateAndInflate() throws Exception {
+		byte[] text = "{\"id\":1,\"name\":\"abraxas\",\"tags\":[\"a\",\"b\"]}".getBytes(StandardCharsets.UTF_8);
+		byte[] large = new byte[300_000];
+		for (int i = 0; i < large.length; i++) {
+			large[i] = (byte) (i % 251 < 100 ? 'a' : i);
+		}
+		for (byte[] data : new byte[][]{new byte[0], text, large, Random.nextBytes(100_000)}) {
+			assertArrayEquals(data, Compressez.inflate(Compressez.deflate(data)));
+			for (int level : new int[]{Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION}) {
+				for (int strategy : new int[]{Deflater.FILTERED, Deflater.HUFFMAN_ONLY}) {
+					byte[] compressed = Compressez.deflate(data, level, strategy);
+					assertTrue(compressed.length <= Compressez.deflateBound(data.length));
+					assertArrayEquals(data, Compressez.inflate(compressed));
+				}
+			}
+		}
+
+		byte[] compressed = Compressez.deflate(large);
+		assertThrows(DataFormatException.class, () -> Compressez.inflate(Arrays.copyOf(compressed, compressed.length / 2)));
+		assertThrows(IllegalArgumentException.class, () -> Compressez.deflate(text, 10, Deflater.DEFAULT_STRATEGY));
+	}
+
+	@Test
+	void byteBuffers() throws Exception {
+		byte[] data = new byte[200_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i / 7);
+		}
+		for (boolean direct : new boolean[]{false, true}) {
+			ByteBuffer src = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+			src.put(data).flip();
+			ByteBuffer dst = direct ? ByteBuffer.allocateDirect(Compressez.deflateBound(data.length) + 3)
+					: ByteBuffer.allocate(Compressez.deflateBound(data.length) + 3);
+			int n = Compressez.deflate(src, dst);
+			assertFalse(src.hasRemaining());
+			assertEquals(n, dst.position());
+			dst.put(new byte[]{1, 2, 3}).flip();
+
+			ByteBuffer out = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+			assertEquals(data.length, Compressez.inflate(dst, out));
+			// 스트림 뒤의 데이터는 남겨 둔다.
+			assertEquals(3, dst.remaining());
+			out.flip();
+			byte[] read = new byte[out.remaining()];
+			out.get(read);
+			assertArrayEquals(data, read);
+
+			src.rewind();
+			ByteBuffer small = ByteBuffer.allocate(10);
+			assertThrows(BufferOverflowException.class, () -> Compressez.deflate(src, small));
+			assertEquals(0, src.position());
+			assertEquals(0, small.position());
+		}
+	}
+
+	@Test
+	void streams() throws Exception {
+		byte[] data = new byte[150_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 13);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = Compressez.deflatingStream(bytes, Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY)) {
+			out.write(data, 0, 1000);
+			out.flush();
+			// SYNC_FLUSH 로 앞부분을 바로 풀 수 있다.
+			try (InputStream in = Compressez.inflatingStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				byte[] head = new byte[1000];
+				int read = 0;
+				while (read < head.length) {
+					read += in.read(head, read, head.length - read);
+				}
+				assertArrayEquals(Arrays.copyOf(data, 1000), head);
+			}
+			out.write(data, 1000, data.length - 1000);
+		}
+		assertArrayEquals(data, Compressez.inflate(bytes.toByteArray()));
+
+		// 닫은 뒤에는 풀에 돌려준 deflater 를 건드리지 않는다.
+		OutputStream closed = Compressez.deflatingStream(new ByteArrayOutputStream(), Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY);
+		closed.close();
+		assertThrows(IOException.class, () -> closed.write(data, 0, 10));
+		assertThrows(IOException.class, () -> closed.write(1));
+		assertThrows(IOException.class, closed::flush);
+
+		ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+		try (WritableByteChannel channel = Compressez.deflatingChannel(Channels.newChannel(channelBytes))) {
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length / 2);
+			direct.put(data, 0, data.length / 2).flip();
+			channel.write(direct);
+			channel.write(ByteBuffer.wrap(data, data.length / 2, data.length - data.length / 2));
+		}
+		try (InputStream in = Compressez.inflatingStream(new ByteArrayInputStream(channelBytes.toByteArray()))) {
+			assertArrayEquals(data, IOz.readByteArrayFrom(in));
+		}
+	}
+
+	@Test
+	void pooledConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				final byte[] data = ("message " + i + " " + i * 31).getBytes(StandardCharsets.UTF_8);
+				final int level = i % 10;
+				results.add(executor.submit(() -> Arrays.equals(data,
+						Compressez.inflate(Compressez.deflate(data, level, Deflater.DEFAULT_STRATEGY)))));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 200~800 바이트의 비슷한 JSON
+	 */
+	private static byte[] record(final java.util.Random random) {
+		StringBuilder sb = new StringBuilder("{\"type\":\"order\",\"id\":").append(random.nextInt(1_000_000))
+				.append(",\"customer\":{\"name\":\"user").append(random.nextInt(10_000))
+				.append("\",\"country\":\"").append(random.nextBoolean() ? "KR" : "US").append("\"},\"items\":[");
+		int items = 1 + random.nextInt(6);
+		for (int i = 0; i < items; i++) {
+			if (i > 0) sb.append(',');
+			sb.append("{\"sku\":\"SKU-").append(random.nextInt(5000)).append("\",\"quantity\":")
+					.append(1 + random.nextInt(9)).append(",\"price\":").append(random.nextInt(100_000) / 100.0)
+					.append(",\"currency\":\"KRW\"}");
+		}
+		return sb.append("],\"status\":\"created\"}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void dictionary() throws Exception {
+		java.util.Random random = new java.util.Random(1);
+		List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			samples.add(record(random));
+		}
+		DeflateDictionary dictionary = DeflateDictionary.train(samples, 4096);
+		assertTrue(dictionary.size() > 0 && dictionary.size() <= 4096, dictionary::toString);
+		assertEquals(dictionary.getId(), new DeflateDictionary(dictionary.toByteArray()).getId());
+
+		long plain = 0;
+		long withDictionary = 0;
+		for (int i = 0; i < 200; i++) {
+			byte[] data = record(random);
+			byte[] compressed = Compressez.deflate(data, dictionary);
+			assertEquals(dictionary.getId(), Compressez.dictionaryId(compressed));
+			assertArrayEquals(data, Compressez.inflate(compressed, dictionary));
+			plain += Compressez.deflate(data).length;
+			withDictionary += compressed.length;
+		}
+		assertTrue(withDictionary * 10 < plain * 7, withDictionary + " / " + plain);
+
+		byte[] compressed = Compressez.deflate(record(random), dictionary);
+		DeflateDictionary other = new DeflateDictionary("other".getBytes(StandardCharsets.UTF_8));
+		assertThrows(DataFormatException.class, () -> Compressez.inflate(compressed, other));
+	}
+
+	@Test
+	void gzipParallel() throws Exception {
+		Path root = makeTree();
+		try {
+			Path text = root.resolve("src/sub/text.txt");
+			byte[] data = Files.readAllBytes(text);
+			Path gz = root.resolve("text.txt.gz");
+			AtomicLong blocks = new AtomicLong();
+			GzipIndex index = Compressez.gzipParallel(Files.newInputStream(text), gz, Deflater.DEFAULT_COMPRESSION, 3,
+					(n, bytes, elapsed) -> blocks.set(n));
+			assertEquals(4, index.getBlockCount());
+			assertEquals(4, blocks.get());
+			assertEquals(data.length, index.getUncompressedSize());
+			assertEquals(Files.size(gz), index.getCompressedSize());
+			assertEquals(index.toString(), GzipIndex.load(GzipIndex.pathOf(gz)).toString());
+
+			// 여러 멤버 gzip 은 표준 스트림으로도 읽힌다.
+			try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+				assertArrayEquals(data, IOz.readByteArrayFrom(in));
+			}
+
+			// 원하는 위치의 블록만
+			int block = index.blockAt(2_500_000);
+			assertEquals(2, block);
+			int offset = (int) index.getUncompressedOffset(block);
+			assertArrayEquals(Arrays.copyOfRange(data, offset, offset + index.getUncompressedLength(block)),
+					Compressez.readGzipBlock(gz, index, block));
+
+			Path parallel = root.resolve("parallel.txt");
+			Compressez.ungzipParallel(gz, parallel, 3, null);
+			assertArrayEquals(data, Files.readAllBytes(parallel));
+
+			// 목록이 없으면 차례로 푼다.
+			Files.delete(GzipIndex.pathOf(gz));
+			Path sequential = root.resolve("sequential.txt");
+			Compressez.ungzipParallel(gz, sequential);
+			assertArrayEquals(data, Files.readAllBytes(sequential));
+
+			Path empty = root.resolve("empty.gz");
+			assertEquals(1, Compressez.gzipParallel(root.resolve("src/empty.txt"), empty).getBlockCount());
+			Compressez.ungzipParallel(empty, root.resolve("empty.out"));
+			assertEquals(0, Files.size(root.resolve("empty.out")));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void gzipBlockCorruption() throws Exception {
+		Path root = Files.createTempDirectory("compressez");
+		try {
+			Path gz = root.resolve("data.gz");
+			GzipIndex index = Compressez.gzipParallel(new ByteArrayInputStream(Random.nextBytes(1_500_000)), gz,
+					Deflater.BEST_SPEED, 2, null);
+			byte[] bytes = Files.readAllBytes(gz);
+			// 두 번째 블록의 CRC
+			int crc = (int) (index.getCompressedOffset(1) + index.getCompressedLength(1) - 8);
+			bytes[crc] ^= 1;
+			Files.write(gz, bytes);
+			assertThrows(ZipException.class, () -> Compressez.readGzipBlock(gz, index, 1));
+			assertThrows(ZipException.class, () -> Compressez.ungzipParallel(gz, root.resolve("out"), 2, null));
+			assertFalse(Files.exists(root.resolve("out")));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+}
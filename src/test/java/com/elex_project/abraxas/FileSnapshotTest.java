@@ -0,0 +1,135 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSnapshotTest {
+
+	@Test
+	void diff() throws IOException {
+		Path root = Files.createTempDirectory("snapshot").toRealPath();
+		try {
+			Files.createDirectories(root.resolve("a/b"));
+			Files.write(root.resolve("a/b/keep"), new byte[]{1, 2, 3});
+			Files.write(root.resolve("a/b/touch"), new byte[]{4});
+			Files.write(root.resolve("a/gone"), new byte[0]);
+			Files.write(root.resolve("grow"), new byte[1]);
+
+			FileSnapshot before = FileSnapshot.scan(root, true, true);
+			assertEquals(6, before.size());
+			assertTrue(before.get(root.resolve("a")).isDirectory());
+			assertNotEquals(FileSnapshot.Entry.NO_HASH, before.get(root.resolve("a/b/keep")).getHash());
+			assertEquals(2, FileSnapshot.scan(root, false, false).size());
+
+			Path index = root.resolveSibling(root.getFileName() + ".idx");
+			before.save(index);
+			FileSnapshot loaded = FileSnapshot.load(index);
+			Files.delete(index);
+			assertEquals(before.entries().keySet(), loaded.entries().keySet());
+			assertEquals(before.get(root.resolve("a/b/keep")).getHash(), loaded.get(root.resolve("a/b/keep")).getHash());
+			assertTrue(loaded.diff(before).isEmpty());
+
+			Files.setLastModifiedTime(root.resolve("a/b/touch"), FileTime.fromMillis(1_000_000_000_000L));
+			Files.delete(root.resolve("a/gone"));
+			Files.write(root.resolve("grow"), new byte[2]);
+			Files.createDirectories(root.resolve("c"));
+			Files.write(root.resolve("c/new"), new byte[0]);
+
+			FileSnapshot after = FileSnapshot.scan(Collections.singletonMap(root, true), true, loaded,
+					ForkJoinPool.commonPool());
+			FileSnapshot.Diff diff = loaded.diff(after);
+			assertEquals(Arrays.asList(root.resolve("c"), root.resolve("c/new")), diff.getCreated());
+			assertEquals(Collections.singletonList(root.resolve("grow")), diff.getModified());
+			assertEquals(Collections.singletonList(root.resolve("a/gone")), diff.getDeleted());
+
+			// 해시가 없으면 수정 시각만 바뀐 파일도 수정으로 본다.
+			FileSnapshot plain = FileSnapshot.scan(root, true, false);
+			Files.setLastModifiedTime(root.resolve("a/b/keep"), FileTime.fromMillis(1_000_000_000_000L));
+			assertEquals(Collections.singletonList(root.resolve("a/b/keep")),
+					plain.diff(FileSnapshot.scan(root, true, false)).getModified());
+
+			after.remove(root.resolve("a"));
+			assertEquals(3, after.size());
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void partialScan() throws IOException {
+		Path root = Files.createTempDirectory("snapshot").toRealPath();
+		try {
+			Files.createDirectories(root.resolve("good"));
+			Files.write(root.resolve("good/file"), new byte[]{1});
+			Files.createDirectories(root.resolve("bad"));
+			Files.write(root.resolve("bad/file"), new byte[]{2});
+
+			Map<Path, Boolean> roots = new TreeMap<>();
+			roots.put(root.resolve("good"), true);
+			roots.put(root.resolve("bad"), true);
+			FileSnapshot before = FileSnapshot.scan(roots, false, null, ForkJoinPool.commonPool());
+			assertTrue(before.getErrors().isEmpty());
+			assertEquals(2, before.size());
+
+			// 디렉토리로 읽을 수 없게 만든다.
+			Filez.delete(root.resolve("bad"));
+			Files.write(root.resolve("bad"), new byte[0]);
+			Files.write(root.resolve("good/new"), new byte[0]);
+
+			FileSnapshot after = FileSnapshot.scan(roots, false, before, ForkJoinPool.commonPool());
+			assertEquals(1, after.getErrors().size());
+			assertTrue(after.getErrors().get(0) instanceof NotDirectoryException);
+			// 읽은 것은 남고, 읽지 못한 곳은 이전 기록이 남아서 지워진 것으로 보이지 않는다.
+			FileSnapshot.Diff diff = before.diff(after);
+			assertEquals(Collections.singletonList(root.resolve("good/new")), diff.getCreated());
+			assertTrue(diff.getDeleted().isEmpty());
+			assertNotNull(after.get(root.resolve("bad/file")));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+}
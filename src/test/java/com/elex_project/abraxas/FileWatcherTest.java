@@ -0,0 +1,281 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWatcherTest {
+
+	/**
+	 * 받은 이벤트를 "종류:경로"로 모은다.
+	 */
+	private static class Recorder implements FileWatcher.Handler {
+		final List<String> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onCreated(Path path) {
+			events.add("created:" + path);
+		}
+
+		@Override
+		public void onDeleted(Path path) {
+			events.add("deleted:" + path);
+		}
+
+		@Override
+		public void onModified(Path path) {
+			events.add("modified:" + path);
+		}
+
+		@Override
+		public void onOverflow(Path path) {
+			events.add("overflow:" + path);
+		}
+	}
+
+	private static void await(final List<String> events, final String event) throws InterruptedException {
+		for (int i = 0; i < 100 && !events.contains(event); i++) {
+			Thread.sleep(50);
+		}
+		assertTrue(events.contains(event), events::toString);
+	}
+
+	@Test
+	void snapshotOnRestart() throws Exception {
+		Path root = Files.createTempDirectory("watcher").toRealPath();
+		Path index = Files.createTempDirectory("watcher-index").resolve("index");
+		try {
+			Files.write(root.resolve("old"), new byte[1]);
+
+			FileWatcher watcher = new FileWatcher(root);
+			watcher.useSnapshot(index, false);
+			watcher.start(new Recorder());
+			for (int i = 0; i < 100 && null == watcher.getSnapshot(); i++) {
+				Thread.sleep(50);
+			}
+			watcher.stop();
+			assertTrue(Files.exists(index));
+
+			// 멈춰 있는 동안의 변경
+			Files.write(root.resolve("new"), new byte[1]);
+			Files.delete(root.resolve("old"));
+
+			Recorder recorder = new Recorder();
+			watcher = new FileWatcher(root);
+			watcher.useSnapshot(index, false);
+			watcher.start(recorder);
+			await(recorder.events, "created:" + root.resolve("new"));
+			await(recorder.events, "deleted:" + root.resolve("old"));
+
+			// 요청할 때
+			FileSnapshot.Diff diff = watcher.resync();
+			assertTrue(diff.isEmpty(), diff::toString);
+			watcher.stop();
+		} finally {
+			Filez.delete(root);
+			Filez.delete(index.getParent());
+		}
+	}
+
+	@Test
+	void restartAndResync() throws Exception {
+		Path root = Files.createTempDirectory("watcher").toRealPath();
+		try {
+			Set<Thread> threads = ConcurrentHashMap.newKeySet();
+			Recorder recorder = new Recorder() {
+				@Override
+				public void onCreated(Path path) {
+					threads.add(Thread.currentThread());
+					super.onCreated(path);
+				}
+			};
+			FileWatcher watcher = new FileWatcher(root);
+			watcher.useSnapshot(null, false);
+			watcher.start(recorder);
+			for (int i = 0; i < 100 && null == watcher.getSnapshot(); i++) {
+				Thread.sleep(50);
+			}
+			watcher.stop();
+			assertEquals(0, watcher.getWatchedDirectoryCount());
+
+			Files.write(root.resolve("stopped"), new byte[1]);
+			watcher.start(recorder);
+			assertEquals(1, watcher.getWatchedDirectoryCount());
+			await(recorder.events, "created:" + root.resolve("stopped"));
+
+			// 다른 스레드에서 다시 훑어도 핸들러는 와쳐 스레드에서 호출된다.
+			Files.write(root.resolve("resync"), new byte[1]);
+			watcher.resync();
+			await(recorder.events, "created:" + root.resolve("resync"));
+			watcher.stop();
+			assertEquals(1, threads.size());
+			assertFalse(threads.contains(Thread.currentThread()));
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void batches() throws Exception {
+		Path root = Files.createTempDirectory("watcher").toRealPath();
+		try {
+			BlockingQueue<FileWatcher.Batch> batches = new LinkedBlockingQueue<>();
+			FileWatcher watcher = new FileWatcher(root);
+			watcher.start(batches::add, 300, null);
+
+			Path config = root.resolve("config");
+			for (int i = 0; i < 20; i++) {
+				Files.write(config, new byte[i]);
+			}
+			Path temp = root.resolve("temp");
+			Files.write(temp, new byte[1]);
+			Files.delete(temp);
+
+			FileWatcher.Batch batch = batches.poll(5, TimeUnit.SECONDS);
+			assertNotNull(batch);
+			assertEquals(1, batch.getEvents().size(), batch::toString);
+			assertEquals(FileWatcher.Kind.CREATED, batch.getEvents().get(0).getKind());
+			assertEquals(config, batch.getEvents().get(0).getPath());
+			assertTrue(batch.getRawEventCount() > 2, batch::toString);
+			assertTrue(batch.getSettleNanos() >= TimeUnit.MILLISECONDS.toNanos(300), batch::toString);
+			assertTrue(batch.getLatencyNanos() >= batch.getSpanNanos());
+
+			Files.write(config, new byte[1]);
+			batch = batches.poll(5, TimeUnit.SECONDS);
+			assertNotNull(batch);
+			assertEquals(FileWatcher.Kind.MODIFIED, batch.getEvents().get(0).getKind());
+			watcher.stop();
+		} finally {
+			Filez.delete(root);
+		}
+	}
+
+	@Test
+	void recursiveRoots() throws Exception {
+		Path root1 = Files.createTempDirectory("watcher").toRealPath();
+		Path root2 = Files.createTempDirectory("watcher").toRealPath();
+		try {
+			Files.createDirectories(root1.resolve("old"));
+			Recorder recorder = new Recorder();
+			FileWatcher watcher = new FileWatcher();
+			watcher.addWatchPointWithSubDirectories(root1);
+			watcher.addWatchPoint(root2);
+			assertEquals(3, watcher.getWatchedDirectoryCount());
+			watcher.start(recorder);
+
+			// 새 디렉토리가 등록되기 전에 생긴 파일도 알린다.
+			Path deep = Files.createDirectories(root1.resolve("a/b/c"));
+			Files.write(deep.resolve("file"), new byte[1]);
+			Files.write(root2.resolve("file"), new byte[1]);
+			await(recorder.events, "created:" + deep.resolve("file"));
+			await(recorder.events, "created:" + root2.resolve("file"));
+			for (int i = 0; i < 100 && watcher.getWatchedDirectoryCount() < 6; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(6, watcher.getWatchedDirectoryCount());
+
+			Files.write(deep.resolve("later"), new byte[1]);
+			await(recorder.events, "created:" + deep.resolve("later"));
+
+			Filez.delete(root1.resolve("old"));
+			await(recorder.events, "deleted:" + root1.resolve("old"));
+			for (int i = 0; i < 100 && watcher.getWatchedDirectoryCount() > 5; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(5, watcher.getWatchedDirectoryCount());
+			assertTrue(watcher.isRunning());
+			watcher.stop();
+		} finally {
+			Filez.delete(root1);
+			Filez.delete(root2);
+		}
+	}
+
+	@Test
+	void pollingBackend() throws Exception {
+		Path root = Files.createTempDirectory("watcher").toRealPath();
+		try {
+			Files.write(root.resolve("old"), new byte[1]);
+			Recorder recorder = new Recorder();
+			PollingWatchBackend backend = new PollingWatchBackend(20, 200, 2, ForkJoinPool.commonPool());
+			FileWatcher watcher = new FileWatcher(backend);
+			watcher.addWatchPointWithSubDirectories(root);
+			assertEquals(1, watcher.getWatchedDirectoryCount());
+			watcher.start(recorder);
+
+			Path deep = Files.createDirectories(root.resolve("a/b"));
+			Files.write(deep.resolve("file"), new byte[1]);
+			await(recorder.events, "created:" + deep.resolve("file"));
+			assertEquals(3, watcher.getWatchedDirectoryCount());
+
+			Files.write(root.resolve("old"), new byte[2]);
+			await(recorder.events, "modified:" + root.resolve("old"));
+
+			Filez.delete(root.resolve("a"));
+			await(recorder.events, "deleted:" + deep.resolve("file"));
+			await(recorder.events, "deleted:" + root.resolve("a"));
+			assertEquals(1, watcher.getWatchedDirectoryCount());
+
+			// 변경이 없으면 간격이 늘어난다.
+			for (int i = 0; i < 100 && backend.getIntervalMillis() < 200; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(200, backend.getIntervalMillis());
+			assertTrue(watcher.isRunning());
+			watcher.stop();
+			assertEquals(0, watcher.getWatchedDirectoryCount());
+
+			// 다시 시작하면 감시 대상을 다시 등록한다.
+			watcher.start(recorder);
+			assertEquals(1, watcher.getWatchedDirectoryCount());
+			Files.write(root.resolve("again"), new byte[1]);
+			await(recorder.events, "created:" + root.resolve("again"));
+			watcher.stop();
+		} finally {
+			Filez.delete(root);
+		}
+	}
+}
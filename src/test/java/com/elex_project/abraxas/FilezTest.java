@@ -0,0 +1,241 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilezTest {
+
+	/**
+	 * 디렉토리 3단계, 파일 40개
+	 */
+	private static Path makeTree() throws IOException {
+		Path root = Files.createTempDirectory("filez");
+		for (int i = 0; i < 4; i++) {
+			Path dir = Files.createDirectories(root.resolve("d" + i).resolve("e" + i));
+			for (int j = 0; j < 5; j++) {
+				Files.write(dir.resolve("f" + j), Random.nextBytes(1000 * j));
+				Files.write(dir.getParent().resolve("g" + j), Random.nextBytes(j));
+			}
+		}
+		return root;
+	}
+
+	@Test
+	void copyToFile() throws Exception {
+		Path dir = Files.createTempDirectory("filez");
+		try {
+			byte[] bytes = Random.nextBytes(10_000);
+			Path src = dir.resolve("src");
+			Files.write(src, bytes);
+
+			Path dest = dir.resolve("dest");
+			Filez.copyToFileOrThrow(src.toFile(), dest.toFile());
+			assertArrayEquals(bytes, Files.readAllBytes(dest));
+
+			try (FileInputStream in = new FileInputStream(src.toFile())) {
+				assertEquals(100, in.skip(100));
+				Filez.copyToFileOrThrow(in, dest.toFile());
+				assertEquals(-1, in.read());
+			}
+			assertEquals(9_900, Files.size(dest));
+
+			Filez.copyToFileOrThrow(new ByteArrayInputStream(bytes, 0, 10), dest.toFile());
+			assertEquals(10, Files.size(dest));
+
+			Path fifo = dir.resolve("fifo");
+			boolean fifoCreated;
+			try {
+				fifoCreated = new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() == 0;
+			} catch (IOException e) {
+				// mkfifo 가 없는 시스템
+				fifoCreated = false;
+			}
+			if (fifoCreated) {
+				FutureTask<Path> writer = new FutureTask<>(() -> Files.write(fifo, bytes));
+				new Thread(writer).start();
+				try (FileInputStream in = new FileInputStream(fifo.toFile())) {
+					Filez.copyToFileOrThrow(in, dest.toFile());
+				}
+				writer.get();
+				assertArrayEquals(bytes, Files.readAllBytes(dest));
+			}
+
+			assertThrows(FileAlreadyExistsException.class, () -> Filez.copyFile(src, dest));
+			Files.setLastModifiedTime(src, FileTime.fromMillis(1_000_000_000_000L));
+			assertEquals(10_000, Filez.copyFile(src, dest,
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES));
+			assertEquals(Files.getLastModifiedTime(src), Files.getLastModifiedTime(dest));
+
+			// 자기 자신에게 복사하면 아무것도 하지 않는다.
+			Filez.copy(src, src, StandardCopyOption.REPLACE_EXISTING);
+			assertArrayEquals(bytes, Files.readAllBytes(src));
+			assertEquals(0, Filez.copyFile(src, src));
+			assertArrayEquals(bytes, Files.readAllBytes(src));
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void copyFileAttributes() throws IOException {
+		Path dir = Files.createTempDirectory("filez");
+		try {
+			if (null == Files.getFileAttributeView(dir, PosixFileAttributeView.class)) return;
+			Path src = dir.resolve("src");
+			Files.write(src, Random.nextBytes(100));
+
+			Files.setPosixFilePermissions(src, PosixFilePermissions.fromString("rwxr-x---"));
+			Filez.copyFile(src, dir.resolve("exec"));
+			assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("exec"))));
+
+			Files.setPosixFilePermissions(src, PosixFilePermissions.fromString("rw-------"));
+			Filez.copy(src, dir.resolve("secret"));
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("secret"))));
+
+			// umask 를 거치지 않는다.
+			Files.setPosixFilePermissions(src, PosixFilePermissions.fromString("rw-rw-rw-"));
+			Files.setLastModifiedTime(src, FileTime.fromMillis(1_000_000_000_000L));
+			Filez.copyFile(src, dir.resolve("secret"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			assertEquals(Files.getPosixFilePermissions(src), Files.getPosixFilePermissions(dir.resolve("secret")));
+			assertEquals(Files.getLastModifiedTime(src), Files.getLastModifiedTime(dir.resolve("secret")));
+
+			// 링크가 가리키는 파일에 쓰지 않고 링크를 바꾼다.
+			Path other = dir.resolve("other");
+			Files.write(other, new byte[]{1, 2, 3});
+			Path link = Files.createSymbolicLink(dir.resolve("link"), other);
+			Filez.copyFile(src, link, StandardCopyOption.REPLACE_EXISTING);
+			assertFalse(Files.isSymbolicLink(link));
+			assertArrayEquals(Files.readAllBytes(src), Files.readAllBytes(link));
+			assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(other));
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void copyParallel() throws IOException {
+		Path src = makeTree();
+		Path dest = Files.createTempDirectory("filez").resolve("copy");
+		try {
+			AtomicLong lastFiles = new AtomicLong();
+			AtomicLong lastBytes = new AtomicLong();
+			Filez.copyParallel(src, dest, 4, (files, bytes, elapsed) -> {
+				lastFiles.accumulateAndGet(files, Math::max);
+				lastBytes.accumulateAndGet(bytes, Math::max);
+			});
+			assertEquals(40, lastFiles.get());
+			assertEquals(4 * (10_000 + 10), lastBytes.get());
+			for (int i = 0; i < 4; i++) {
+				Path f = src.resolve("d" + i).resolve("e" + i).resolve("f4");
+				assertArrayEquals(Files.readAllBytes(f), Files.readAllBytes(dest.resolve(src.relativize(f))));
+			}
+			assertEquals(Files.getLastModifiedTime(src.resolve("d1")), Files.getLastModifiedTime(dest.resolve("d1")));
+
+			IOException e = assertThrows(IOException.class, () -> Filez.copyParallel(src, dest, 2, null));
+			assertEquals(39, e.getSuppressed().length);
+
+			if (null != Files.getFileAttributeView(src, PosixFileAttributeView.class)) {
+				// 디렉토리도 원본의 권한으로 만들고, 속성은 파일을 다 복사한 뒤에 맞춘다.
+				Files.setPosixFilePermissions(src.resolve("d2"), PosixFilePermissions.fromString("rwx------"));
+				Files.setPosixFilePermissions(src.resolve("d2/e2"), PosixFilePermissions.fromString("rwxrwxrwx"));
+				Files.setLastModifiedTime(src.resolve("d2/e2"), FileTime.fromMillis(1_000_000_000_000L));
+				Path attrs = dest.resolveSibling("attrs");
+				Filez.copyParallel(src, attrs, 2, null, StandardCopyOption.COPY_ATTRIBUTES);
+				assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(attrs.resolve("d2"))));
+				assertEquals("rwxrwxrwx", PosixFilePermissions.toString(Files.getPosixFilePermissions(attrs.resolve("d2/e2"))));
+				assertEquals(Files.getLastModifiedTime(src.resolve("d2/e2")), Files.getLastModifiedTime(attrs.resolve("d2/e2")));
+
+				Path plain = dest.resolveSibling("plain");
+				Filez.copyParallel(src, plain, 2, null);
+				assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(plain.resolve("d2"))));
+				assertEquals(Files.getLastModifiedTime(src.resolve("d2/e2")), Files.getLastModifiedTime(plain.resolve("d2/e2")));
+			}
+		} finally {
+			Filez.delete(src);
+			Filez.delete(dest.getParent());
+		}
+	}
+
+	@Test
+	void scanAndDelete() throws IOException {
+		Path root = makeTree();
+		try {
+			Filez.TreeSize size = Filez.scan(root);
+			assertEquals(40, size.getFiles());
+			assertEquals(9, size.getDirectories());
+			assertEquals(4 * (10_000 + 10), size.getBytes());
+			assertEquals(size.getBytes(), Filez.sizeOf(root));
+			assertEquals(3000, Filez.sizeOf(root.resolve("d0/e0/f3")));
+
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				Filez.deleteParallel(root.resolve("d0"), pool, 1);
+				assertFalse(Files.exists(root.resolve("d0")));
+				assertEquals(30, Filez.scan(root, pool, 2).getFiles());
+			} finally {
+				pool.shutdown();
+			}
+			// 링크는 따라가지 않는다.
+			Files.createSymbolicLink(root.resolve("d2/link"), root.resolve("d1"));
+			Filez.deleteContentsParallel(root.resolve("d2"));
+			assertTrue(Files.isDirectory(root.resolve("d2")));
+			assertEquals(0, Filez.scan(root.resolve("d2")).getFiles());
+			assertEquals(1, Filez.scan(root.resolve("d2")).getDirectories());
+			assertEquals(10, Filez.scan(root.resolve("d1")).getFiles());
+			assertThrows(NotDirectoryException.class, () -> Filez.deleteContentsParallel(root.resolve("d1/g0")));
+
+			Filez.deleteParallel(root);
+			assertFalse(Files.exists(root));
+		} finally {
+			if (Files.exists(root)) Filez.delete(root);
+		}
+	}
+}
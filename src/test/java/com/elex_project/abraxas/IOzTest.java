@@ -0,0 +1,303 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IOzTest {
+
+	@Test
+	void readBytes() throws IOException {
+		byte[] expected = Random.nextBytes(100_000);
+		Path file = Files.createTempFile("ioz", ".bin");
+		try {
+			Files.write(file, expected);
+			assertArrayEquals(expected, IOz.readByteArrayFrom(file));
+			assertArrayEquals(expected, IOz.readAllBytes(file.toFile()));
+			assertArrayEquals(expected, IOz.readByteArrayFrom(new ByteArrayInputStream(expected)));
+
+			FileInputStream in = new FileInputStream(file.toFile());
+			assertEquals(10, in.skip(10));
+			byte[] tail = IOz.readByteArrayFrom(in);
+			assertEquals(expected.length - 10, tail.length);
+			assertEquals(expected[10], tail[0]);
+
+			ByteBuffer heap = IOz.readByteBufferFrom(file);
+			assertTrue(heap.hasArray());
+			assertArrayEquals(expected, heap.array());
+
+			ByteBuffer mapped = IOz.readByteBufferFrom(file, 1024);
+			assertTrue(mapped instanceof MappedByteBuffer);
+			assertEquals(expected.length, mapped.remaining());
+			assertEquals(expected[99_999], mapped.get(99_999));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void readFifo() throws Exception {
+		byte[] expected = Random.nextBytes(100_000);
+		Path dir = Files.createTempDirectory("ioz");
+		try {
+			Path fifo = dir.resolve("fifo");
+			try {
+				if (new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() != 0) return;
+			} catch (IOException e) {
+				// mkfifo 가 없는 시스템
+				return;
+			}
+			for (int i = 0; i < 3; i++) {
+				FutureTask<Path> writer = new FutureTask<>(() -> Files.write(fifo, expected));
+				new Thread(writer).start();
+				if (i == 0) {
+					assertArrayEquals(expected, IOz.readByteArrayFrom(fifo));
+				} else if (i == 1) {
+					assertArrayEquals(expected, IOz.readByteArrayFrom(new FileInputStream(fifo.toFile())));
+				} else {
+					assertEquals(ByteBuffer.wrap(expected), IOz.readByteBufferFrom(fifo, 1024));
+				}
+				writer.get();
+			}
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void lineReader() throws IOException {
+		// 버퍼보다 긴 줄, 버퍼 경계에 걸친 "\r\n", 빈 줄, 구분자 없는 마지막 줄
+		String text = "first\r\nsecond line is long\r\rthird\n\nlast";
+		List<String> expected = Arrays.asList("first", "second line is long", "", "third", "", "last");
+		for (int size = 1; size < 12; size++) {
+			List<String> lines = new ArrayList<>();
+			try (LineReader reader = new LineReader(new StringReader(text), size)) {
+				CharSequence line;
+				while (null != (line = reader.nextLine())) {
+					lines.add(line.toString());
+				}
+			}
+			assertEquals(expected, lines);
+		}
+	}
+
+	@Test
+	void lines() throws IOException {
+		Path file = Files.createTempFile("ioz", ".txt");
+		try {
+			Files.write(file, "가\n나\r\n다".getBytes(StandardCharsets.UTF_8));
+			try (Stream<String> lines = IOz.lines(file)) {
+				assertEquals(Arrays.asList("가", "나", "다"), lines.collect(Collectors.toList()));
+			}
+			try (Stream<String> lines = IOz.lines(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+				assertEquals(3, lines.count());
+			}
+			StringBuilder sb = new StringBuilder();
+			IOz.forEachLine(file, sb::append);
+			assertEquals("가나다", sb.toString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * 쓰는 쪽이 느린 파이프. 읽을 것이 잠시 없어도 끝까지 읽어야 한다.
+	 */
+	private static final class SlowPipe extends PipedInputStream {
+		private final Thread writer;
+		private volatile Exception failure;
+
+		private SlowPipe(final int lines) throws IOException {
+			final OutputStream out = new PipedOutputStream(this);
+			writer = new Thread(() -> {
+				try {
+					for (int i = 0; i < lines; i++) {
+						out.write((i + "\n").getBytes(StandardCharsets.UTF_8));
+						if (i % 1000 == 0) {
+							out.flush();
+							Thread.sleep(5);
+						}
+					}
+					out.close();
+				} catch (Exception e) {
+					failure = e;
+				}
+			});
+			writer.start();
+		}
+
+		/**
+		 * 파이프를 다 읽는다. 쓰는 쪽이 실패했으면, 읽다가 난 예외 대신 그 예외를 던진다.
+		 */
+		private void readWith(final Executable reader) throws Throwable {
+			try {
+				reader.execute();
+			} catch (IOException e) {
+				writer.join();
+				if (null != failure) {
+					failure.addSuppressed(e);
+					throw failure;
+				}
+				throw e;
+			}
+			writer.join();
+			if (null != failure) {
+				throw failure;
+			}
+		}
+	}
+
+	private static final class Counter implements IOz.OnReadingLineListener {
+		int started, finished, batches, lines;
+		long sum;
+		Thread thread;
+
+		@Override
+		public void onStarted() {
+			started++;
+		}
+
+		@Override
+		public void line(String line) {
+			lines++;
+			sum += Long.parseLong(line);
+			thread = Thread.currentThread();
+		}
+
+		@Override
+		public void lines(List<String> lines) {
+			batches++;
+			IOz.OnReadingLineListener.super.lines(lines);
+		}
+
+		@Override
+		public void onFinished() {
+			finished++;
+		}
+	}
+
+	@Test
+	void readLineFrom() throws Throwable {
+		Counter counter = new Counter();
+		SlowPipe pipe = new SlowPipe(10_000);
+		pipe.readWith(() -> IOz.readLineFrom(pipe, counter, 1024, 4096));
+		assertEquals(1, counter.started);
+		assertEquals(1, counter.finished);
+		assertEquals(3, counter.batches);
+		assertEquals(10_000, counter.lines);
+		assertEquals(49_995_000L, counter.sum);
+		assertEquals(Thread.currentThread(), counter.thread);
+
+		Counter async = new Counter();
+		SlowPipe asyncPipe = new SlowPipe(10_000);
+		asyncPipe.readWith(() -> IOz.readLineFrom(asyncPipe, async, 1024, 100, 2));
+		assertEquals(1, async.finished);
+		assertEquals(100, async.batches);
+		assertEquals(49_995_000L, async.sum);
+		assertNotEquals(Thread.currentThread(), async.thread);
+
+		assertThrows(NumberFormatException.class, () -> IOz.readLineFrom(
+				new ByteArrayInputStream("1\nx\n".getBytes(StandardCharsets.UTF_8)), new Counter(), 16, 1, 1));
+
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(InterruptedIOException.class, () -> IOz.readLineFrom(
+					new ByteArrayInputStream("1\n2\n3\n4\n".getBytes(StandardCharsets.UTF_8)), new Counter(), 16, 1, 1));
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	void processLinesParallel() throws IOException {
+		Path file = Files.createTempFile("ioz", ".txt");
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 10_000; i++) {
+				sb.append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+			}
+			sb.append("가나다");
+			Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+			AtomicLong count = new AtomicLong();
+			IOz.processLinesParallel(file, line -> count.incrementAndGet());
+			assertEquals(10_001, count.get());
+
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				for (long chunkSize : new long[]{1, 100, 4096, 1 << 20}) {
+					List<String> lines = IOz.processLinesParallel(file, chunkSize, pool,
+							ArrayList::new, (list, line) -> list.add(line.toString()),
+							(a, b) -> {
+								a.addAll(b);
+								return a;
+							});
+					assertEquals(10_001, lines.size());
+					assertEquals("0", lines.get(0));
+					assertEquals("9999", lines.get(9_999));
+					assertEquals("가나다", lines.get(10_000));
+				}
+			} finally {
+				pool.shutdown();
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
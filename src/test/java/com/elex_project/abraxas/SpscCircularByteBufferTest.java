@@ -0,0 +1,133 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpscCircularByteBufferTest {
+
+	@Test
+	void wrap() {
+		SpscCircularByteBuffer buffer = new SpscCircularByteBuffer(6);
+		assertEquals(8, buffer.capacity());
+
+		assertEquals(6, buffer.put(new byte[]{1, 2, 3, 4, 5, 6}));
+		assertEquals(1, buffer.get());
+		assertEquals(2, buffer.get());
+		assertEquals(4, buffer.put(new byte[]{7, 8, 9, 10, 11}));
+		assertEquals(0, buffer.free());
+
+		assertEquals(0x03040506, buffer.getInt());
+		byte[] dst = new byte[4];
+		assertEquals(4, buffer.get(dst));
+		assertArrayEquals(new byte[]{7, 8, 9, 10}, dst);
+		assertEquals(-1, buffer.get());
+	}
+
+	@Test
+	void listener() {
+		SpscCircularByteBuffer buffer = new SpscCircularByteBuffer();
+		final int[] triggered = new int[1];
+		buffer.addListener(new SpscCircularByteBuffer.InputListener() {
+			@Override
+			public byte getTrigger() {
+				return '\n';
+			}
+
+			@Override
+			public void onDataAvailable(byte trigger, SpscCircularByteBuffer buffer) {
+				triggered[0]++;
+			}
+		});
+		buffer.put(Stringz.toBytes("hello\nwor"));
+		assertEquals(1, triggered[0]);
+		// 알림을 받은 소비자가 읽는다.
+		assertEquals("hello\n", buffer.getString((byte) '\n'));
+		assertEquals(3, buffer.available());
+
+		// 리스너는 읽을 수 없다.
+		buffer.addListener(new SpscCircularByteBuffer.InputListener() {
+			@Override
+			public byte getTrigger() {
+				return ';';
+			}
+
+			@Override
+			public void onDataAvailable(byte trigger, SpscCircularByteBuffer buffer) {
+				buffer.getString(trigger);
+			}
+		});
+		assertThrows(IllegalStateException.class, () -> buffer.put((byte) ';'));
+		assertEquals(4, buffer.available());
+		assertEquals("wor;", buffer.getString((byte) ';'));
+	}
+
+	@Test
+	void producerConsumer() throws InterruptedException {
+		final SpscCircularByteBuffer buffer = new SpscCircularByteBuffer(64);
+		final int total = 100_000;
+		Thread producer = new Thread(() -> {
+			byte[] chunk = new byte[13];
+			int n = 0;
+			while (n < total) {
+				int len = Math.min(chunk.length, total - n);
+				for (int i = 0; i < len; i++) {
+					chunk[i] = (byte) (n + i);
+				}
+				int off = 0;
+				while (off < len) {
+					int count = buffer.put(chunk, off, len - off);
+					if (count == 0) Thread.yield();
+					off += count;
+				}
+				n += len;
+			}
+		});
+		producer.start();
+
+		byte[] dst = new byte[17];
+		int n = 0;
+		while (n < total) {
+			int count = buffer.get(dst);
+			if (count == 0) Thread.yield();
+			for (int i = 0; i < count; i++) {
+				assertEquals((byte) (n + i), dst[i]);
+			}
+			n += count;
+		}
+		producer.join();
+		assertEquals(0, buffer.available());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2021, Elex
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.elex_project.abraxas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipArchiveCacheTest {
+	private static Path makeZip(final Path dir, final String name) throws IOException {
+		final Path zip = dir.resolve(name);
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+			for (String entry : new String[]{"META-INF/MANIFEST.MF", "icons/a.png", "icons/b.png",
+					"icons/big/c.png", "plugin.json", "lib/big.bin", "lib/Outer$Inner[1].class"}) {
+				out.putNextEntry(new ZipEntry(entry));
+				if (entry.equals("lib/big.bin")) {
+					out.write(new byte[100_000]);
+				} else {
+					out.write((name + ":" + entry).getBytes(StandardCharsets.UTF_8));
+				}
+				out.closeEntry();
+			}
+		}
+		return zip;
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		try (InputStream is = in) {
+			return new String(IOz.readByteArrayFrom(is), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void lookupAndList() throws IOException {
+		final Path dir = Files.createTempDirectory("zcache");
+		try {
+			final Path zip = makeZip(dir, "a.jar");
+			try (ZipArchiveCache cache = new ZipArchiveCache()) {
+				assertTrue(cache.contains(zip, "plugin.json"));
+				assertFalse(cache.contains(zip, "missing.json"));
+				assertNull(cache.readBytes(zip, "missing.json"));
+				assertNull(cache.getInputStream(zip, "missing.json"));
+				assertEquals("a.jar:plugin.json", new String(cache.readBytes(zip, "plugin.json"), StandardCharsets.UTF_8));
+				assertEquals("a.jar:icons/a.png", read(cache.getInputStream(zip, "icons/a.png")));
+				assertEquals(100_000, cache.readBytes(zip, "lib/big.bin").length);
+
+				assertEquals(Arrays.asList("icons/a.png", "icons/b.png", "icons/big/c.png"), cache.list(zip, "icons/"));
+				assertEquals(Arrays.asList("icons/big/c.png"), cache.list(zip, "icons/big"));
+				assertEquals(7, cache.list(zip, "").size());
+				assertTrue(cache.list(zip, "nothing/").isEmpty());
+				assertEquals(Arrays.asList("icons/a.png", "icons/b.png"), cache.listGlob(zip, "icons/?.png"));
+				assertEquals(Arrays.asList("icons/b.png", "icons/big/c.png"), cache.listGlob(zip, "icons/b*.png"));
+				assertEquals(Arrays.asList("plugin.json"), cache.listGlob(zip, "*.json"));
+				// '$'와 '['는 글자 그대로 맞춘다.
+				assertEquals(Arrays.asList("lib/Outer$Inner[1].class"), cache.listGlob(zip, "lib/*$Inner[?].class"));
+				assertEquals(Arrays.asList("lib/Outer$Inner[1].class"), cache.listGlob(zip, "lib/Outer$Inner[1]*"));
+				assertTrue(cache.listGlob(zip, "lib/[bO]*").isEmpty());
+				assertEquals(1, cache.getOpenArchiveCount());
+			}
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() throws IOException {
+		final Path dir = Files.createTempDirectory("zcache");
+		try {
+			final Path a = makeZip(dir, "a.zip");
+			final Path b = makeZip(dir, "b.zip");
+			final Path c = makeZip(dir, "c.zip");
+			try (ZipArchiveCache cache = new ZipArchiveCache(2, 0, 0)) {
+				// a 에서 읽고 있는 동안 a 가 닫히면 안 된다.
+				final InputStream held = cache.getInputStream(a, "plugin.json");
+				assertTrue(cache.contains(b, "plugin.json"));
+				assertTrue(cache.contains(c, "plugin.json"));
+				assertEquals(2, cache.getOpenArchiveCount());
+				assertEquals("a.zip:plugin.json", read(held));
+
+				assertEquals("a.zip:icons/a.png", read(cache.getInputStream(a, "icons/a.png")));
+				assertEquals("c.zip:icons/a.png", read(cache.getInputStream(c, "icons/a.png")));
+				assertEquals(2, cache.getOpenArchiveCount());
+				assertEquals(0, cache.getCachedBytes());
+			}
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void cachesSmallEntries() throws IOException {
+		final Path dir = Files.createTempDirectory("zcache");
+		try {
+			final Path zip = makeZip(dir, "a.zip");
+			final int small = "a.zip:plugin.json".length();
+			try (ZipArchiveCache cache = new ZipArchiveCache(4, small * 2 + 1, 1024)) {
+				final byte[] first = cache.readBytes(zip, "plugin.json");
+				assertEquals(0, cache.getHitCount());
+				assertEquals(1, cache.getMissCount());
+				first[0] = 'x';
+				assertEquals("a.zip:plugin.json", read(cache.getInputStream(zip, "plugin.json")));
+				assertEquals(1, cache.getHitCount());
+				assertEquals(small, cache.getCachedBytes());
+
+				// 큰 항목은 보관하지 않는다.
+				cache.readBytes(zip, "lib/big.bin");
+				assertEquals(small, cache.getCachedBytes());
+				assertEquals(1, cache.getMissCount());
+
+				// 한도를 넘으면 오래된 것부터 버린다.
+				cache.readBytes(zip, "icons/a.png");
+				cache.readBytes(zip, "icons/b.png");
+				assertTrue(cache.getCachedBytes() <= small * 2 + 1);
+				cache.readBytes(zip, "plugin.json");
+				assertEquals(4, cache.getMissCount());
+
+				// 아카이브가 바뀌면 다시 읽는다.
+				try (OutputStream out = Files.newOutputStream(zip)) {
+					try (ZipOutputStream zout = new ZipOutputStream(out)) {
+						zout.putNextEntry(new ZipEntry("plugin.json"));
+						zout.write("changed".getBytes(StandardCharsets.UTF_8));
+						zout.closeEntry();
+					}
+				}
+				cache.invalidate(zip);
+				assertEquals(0, cache.getOpenArchiveCount());
+				assertEquals(0, cache.getCachedBytes());
+				assertEquals("changed", new String(cache.readBytes(zip, "plugin.json"), StandardCharsets.UTF_8));
+				assertEquals(Arrays.asList("plugin.json"), cache.list(zip, ""));
+			}
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void concurrentOpen() throws Exception {
+		final Path dir = Files.createTempDirectory("zcache");
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final Path a = makeZip(dir, "a.zip");
+			final Path b = makeZip(dir, "b.zip");
+			Files.write(dir.resolve("broken.zip"), new byte[100]);
+			try (ZipArchiveCache cache = new ZipArchiveCache(4, 1024, 1024)) {
+				final List<Future<String>> results = new ArrayList<>();
+				for (int i = 0; i < 64; i++) {
+					final Path zip = i % 2 == 0 ? a : b;
+					results.add(executor.submit(() -> read(cache.getInputStream(zip, "plugin.json"))));
+				}
+				for (int i = 0; i < results.size(); i++) {
+					assertEquals((i % 2 == 0 ? "a" : "b") + ".zip:plugin.json", results.get(i).get());
+				}
+				assertEquals(2, cache.getOpenArchiveCount());
+				assertThrows(IOException.class, () -> cache.contains(dir.resolve("broken.zip"), "plugin.json"));
+				assertEquals(2, cache.getOpenArchiveCount());
+			}
+		} finally {
+			executor.shutdown();
+			Filez.delete(dir);
+		}
+	}
+
+	@Test
+	void closed() throws IOException {
+		final Path dir = Files.createTempDirectory("zcache");
+		try {
+			final Path zip = makeZip(dir, "a.zip");
+			final ZipArchiveCache cache = new ZipArchiveCache();
+			assertTrue(cache.contains(zip, "plugin.json"));
+			cache.close();
+			assertEquals(0, cache.getOpenArchiveCount());
+			assertThrows(IllegalStateException.class, () -> cache.contains(zip, "plugin.json"));
+		} finally {
+			Filez.delete(dir);
+		}
+	}
+}